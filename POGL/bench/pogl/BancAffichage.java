@@ -0,0 +1,46 @@
+package pogl;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Banc d'essai de l'affichage : [VueGrille] dessine dans une image hors
+ * écran de 768 x 768 pixels, sans fenêtre (mode [headless]).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class BancAffichage {
+    @Param({"6", "64", "512"})
+    public int taille;
+
+    private VueGrille vue;
+    private BufferedImage image;
+    private Graphics2D g;
+
+    @Setup
+    public void prepare() {
+        vue = new VueGrille(BancModele.modele(taille, 42));
+        vue.setSize(vue.getPreferredSize());
+        image = new BufferedImage(VueGrille.VUE_MAX, VueGrille.VUE_MAX, BufferedImage.TYPE_INT_RGB);
+        g = image.createGraphics();
+        g.setClip(0, 0, VueGrille.VUE_MAX, VueGrille.VUE_MAX);
+    }
+
+    @TearDown
+    public void libere() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paintComponent() {
+        vue.paintComponent(g);
+        return image;
+    }
+}
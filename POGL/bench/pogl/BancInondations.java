@@ -0,0 +1,60 @@
+package pogl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Banc d'essai des règles d'inondation (voir [Inondeur]) : un tour
+ * d'inondation sur une île générée de [taille] x [taille] cases.
+ *
+ * Le modèle, règle comprise, est remis dans son état de départ avant
+ * chaque tour ([CModele.restaure]) : chaque appel inonde la même île, au
+ * lieu d'une île qui sombre au fil de l'itération.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BancInondations {
+    @Param({"64", "1000"})
+    public int taille;
+
+    @Param({"lignes", "paquet", "probabilites"})
+    public String regle;
+
+    private CModele modele;
+    private Inondeur inondeur;
+    private EtatModele depart;
+    private Alea rand;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        modele = BancModele.modele(taille, 42);
+        switch (regle) {
+            case "paquet": inondeur = new InondeurPaquet(taille); break;
+            case "probabilites": inondeur = InondeurProbabilites.cotes(modele, 1 / 256.0, 0); break;
+            default: inondeur = Inondeur.LIGNES; break;
+        }
+        modele.setInondeur(inondeur);
+        depart = modele.sauve();
+    }
+
+    @Setup(Level.Iteration)
+    public void tirages() {
+        rand = new Alea(7);
+    }
+
+    @Setup(Level.Invocation)
+    public void remet() {
+        modele.restaure(depart);
+    }
+
+    @Benchmark
+    public CModele tour() {
+        inondeur.inonde(modele, rand);
+        return modele;
+    }
+}
@@ -0,0 +1,129 @@
+package pogl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Bancs d'essai du modèle : construction, copie du plateau, et chacune des
+ * actions du joueur.
+ *
+ * La taille 6 désigne la carte classique ; les autres tailles, une île
+ * générée de [taille] x [taille] cases.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BancModele {
+    @Param({"6", "64", "512"})
+    public int taille;
+
+    private CModele modele;
+
+    /** Un modèle de la taille demandée, sans trace sur la sortie standard. */
+    static CModele modele(int taille, long graine) {
+        CModele m = taille == CModele.LARGEUR ? new CModele(graine) : new CModele(taille, taille, graine);
+        m.setTrace(false);
+        return m;
+    }
+
+    @Setup(Level.Iteration)
+    public void prepare() {
+        modele = modele(taille, 42);
+    }
+
+    /**
+     * Modèle remis dans son état de départ avant chaque appel, pour les
+     * bancs qui le modifient : [passeTour] enfonce l'île, et l'inondation
+     * qui précède un assèchement refusé faute d'action resterait. Sans
+     * cela, l'état dériverait d'un appel à l'autre. [restaure] est en temps
+     * constant (voir [CModele.sauve]).
+     */
+    @State(Scope.Thread)
+    public static class Depart {
+        CModele modele;
+        EtatModele etat;
+        int x, y;
+
+        @Setup(Level.Trial)
+        public void prepare(BancModele banc) {
+            modele = modele(banc.taille, 42);
+            etat = modele.sauve();
+            x = modele.getAventurier().getPositionX();
+            y = modele.getAventurier().getPositionY();
+        }
+
+        @Setup(Level.Invocation)
+        public void remet() {
+            modele.restaure(etat);
+        }
+    }
+
+    @Benchmark
+    public CModele construction() {
+        return modele(taille, 42);
+    }
+
+    @Benchmark
+    public Plateau copiePlateau() {
+        return modele.getPlateau().copie();
+    }
+
+    /** Aller-retour vertical : [aventurierMonte] puis [aventurierDescend]. */
+    @Benchmark
+    public int monteDescend(Depart d) {
+        d.modele.aventurierMonte();
+        d.modele.aventurierDescend();
+        return d.modele.getAventurier().getPositionY();
+    }
+
+    /** Aller-retour horizontal : [aventurierDroite] puis [aventurierGauche]. */
+    @Benchmark
+    public int droiteGauche(Depart d) {
+        d.modele.aventurierDroite();
+        d.modele.aventurierGauche();
+        return d.modele.getAventurier().getPositionX();
+    }
+
+    /**
+     * Chaque assèchement est précédé de l'inondation de la case visée,
+     * directement dans le plateau, pour que l'action ait quelque chose à faire.
+     */
+    @Benchmark
+    public void assecheTuileS(Depart d) {
+        d.modele.getPlateau().decreaseEtat(d.x, d.y);
+        d.modele.assecheTuileS();
+    }
+
+    @Benchmark
+    public void assecheTuileH(Depart d) {
+        d.modele.getPlateau().decreaseEtat(d.x, d.y - 1);
+        d.modele.assecheTuileH();
+    }
+
+    @Benchmark
+    public void assecheTuileB(Depart d) {
+        d.modele.getPlateau().decreaseEtat(d.x, d.y + 1);
+        d.modele.assecheTuileB();
+    }
+
+    @Benchmark
+    public void assecheTuileD(Depart d) {
+        d.modele.getPlateau().decreaseEtat(d.x + 1, d.y);
+        d.modele.assecheTuileD();
+    }
+
+    @Benchmark
+    public void assecheTuileG(Depart d) {
+        d.modele.getPlateau().decreaseEtat(d.x - 1, d.y);
+        d.modele.assecheTuileG();
+    }
+
+    @Benchmark
+    public void passeTour(Depart d) {
+        d.modele.passeTour();
+    }
+}
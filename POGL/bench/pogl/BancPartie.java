@@ -0,0 +1,52 @@
+package pogl;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Banc d'essai des parties complètes sans interface, avec la politique
+ * aléatoire : une partie seule, et un lot réparti sur tous les cœurs.
+ *
+ * Chaque partie construit son propre modèle ; les graines repartent de 0
+ * à chaque itération, pour que toutes les itérations jouent les mêmes
+ * parties.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BancPartie {
+    @Param({"6", "64", "512"})
+    public int taille;
+
+    private Simulateur simulateur;
+    private long graine;
+
+    @Setup
+    public void prepare() {
+        simulateur = new Simulateur(50, ForkJoinPool.commonPool(), g -> BancModele.modele(taille, g));
+    }
+
+    @Setup(Level.Iteration)
+    public void graines() {
+        graine = 0;
+    }
+
+    @Benchmark
+    public Bilan partie() {
+        Bilan bilan = new Bilan();
+        simulateur.joue(graine++, Politique.ALEATOIRE, bilan);
+        return bilan;
+    }
+
+    /** Un lot de 1024 parties, pour mesurer le passage à l'échelle. */
+    @Benchmark
+    @OperationsPerInvocation(1024)
+    public Bilan lot() {
+        return simulateur.lance(graine++, 1024, () -> Politique.ALEATOIRE);
+    }
+}
@@ -1,48 +0,0 @@
-import java.util.ArrayList;
-
-/**
- * Interface des objets observateurs.
- */
-interface Observer {
-    /**
-     * Un observateur doit posséder une méthode [update] déclenchant la mise à
-     * jour.
-     */
-    public void update();
-    /**
-     * La version officielle de Java possède des paramètres précisant le
-     * changement qui a eu lieu.
-     */
-}
-
-/**
- * Classe des objets pouvant être observés.
- */
-abstract class Observable {
-    /**
-     * On a une liste [observers] d'observateurs, initialement vide, à laquelle
-     * viennent s'inscrire les observateurs via la méthode [addObserver].
-     */
-    private ArrayList<Observer> observers;
-    public Observable() {
-        this.observers = new ArrayList<Observer>();
-    }
-    public void addObserver(Observer o) {
-        observers.add(o);
-    }
-
-    /**
-     * Lorsque l'état de l'objet observé change, il est convenu d'appeler la
-     * méthode [notifyObservers] pour prévenir l'ensemble des observateurs
-     * enregistrés.
-     * On le fait ici concrètement en appelant la méthode [update] de chaque
-     * observateur.
-     */
-    public void notifyObservers() {
-        for(Observer o : observers) {
-            o.update();
-        }
-    }
-}
-/** Fin du schéma observateur/observé. */
-
@@ -0,0 +1,267 @@
+package pogl;
+
+import java.util.Arrays;
+
+/**
+ * Index d'accessibilité : les composantes connexes de la terre praticable
+ * (ni mer, ni submergée), tenues à jour au fil des submersions.
+ *
+ * Une case submergée ne s'assèche jamais : la terre praticable ne fait que
+ * perdre des cases, et les composantes ne font que se couper. À chaque
+ * submersion, on lance un parcours en largeur depuis chacun des voisins
+ * praticables de la case, en parallèle et à tour de rôle ; les parcours
+ * qui se rencontrent fusionnent. Dès qu'un parcours s'épuise, il a fait
+ * le tour d'une nouvelle composante, qui reçoit un nouveau numéro ; le
+ * dernier parcours encore actif garde l'ancien numéro sans être terminé.
+ * Avant cela, si les voisins restent reliés par les huit cases qui
+ * entourent la case submergée, rien n'est coupé et aucun parcours n'est
+ * lancé : c'est le cas le plus courant.
+ * Le travail est donc proportionnel à la plus petite des parties coupées,
+ * et chaque case n'est renumérotée qu'au plus log(n) fois sur une partie :
+ * les requêtes ([relies]) se font en temps constant, et les mises à jour
+ * en temps constant amorti.
+ *
+ * L'index correspond à un ensemble de cases submergées, dont il garde
+ * l'empreinte de Zobrist ([getEmpreinte]) : voir [CModele.accessibilite].
+ */
+final class Accessibilite {
+    /** Au plus quatre voisins, donc quatre parcours simultanés. */
+    private static final int[] DX = { 0, 0, 1, -1 }, DY = { -1, 1, 0, 0 };
+    /** Les huit cases autour d'une case, dans l'ordre ; les voisins directs aux indices pairs. */
+    private static final int[] AX = { 0, 1, 1, 1, 0, -1, -1, -1 }, AY = { -1, -1, 0, 1, 1, 1, 0, -1 };
+
+    private final int largeur, hauteur;
+    /** Numéro de composante de chaque case, 0 si elle n'est pas praticable (voir [TableauCreux]). */
+    private final TableauCreux composante;
+    /** Nombre de cases de chaque composante. */
+    private int[] tailles = new int[16];
+    private int prochaine = 1;
+    private long empreinte;
+
+    /**
+     * Marques des parcours : [visite[i] - base] est le parcours passé par
+     * [i]. Alloué à la première coupe.
+     */
+    private TableauCreux visite;
+    private int base = 1;
+    /** Files des parcours, chacune avec les cases visitées, dans l'ordre. */
+    private final int[][] files = new int[4][];
+    private final int[] tete = new int[4], queue = new int[4];
+    /**
+     * Fusion des parcours : [groupe[k]] mène au représentant du parcours
+     * [k], ou vaut -1 si son groupe est épuisé.
+     */
+    private final int[] groupe = new int[4];
+    /** Nombre de parcours de la coupe en cours. */
+    private int parcours;
+
+    /** Construction par un parcours complet du plateau. */
+    Accessibilite(Plateau p, long empreinte) {
+        this.largeur = p.getLargeur();
+        this.hauteur = p.getHauteur();
+        this.composante = new TableauCreux(largeur * hauteur, 0);
+        this.empreinte = empreinte;
+        // Premier passage : les cases praticables sont marquées -1.
+        for (int x = 0, i = 0; x < largeur; x++) {
+            for (int y = 0; y < hauteur; y++, i++) {
+                if (praticable(p, x, y)) composante.set(i, -1);
+            }
+        }
+        int[] file = new int[16];
+        for (int i = 0, n = largeur * hauteur; i < n; i++) {
+            if (composante.get(i) != -1) continue;
+            int c = nouvelle();
+            composante.set(i, c);
+            file[0] = i;
+            int t = 0, q = 1;
+            while (t < q) {
+                int j = file[t++];
+                int cy = j % hauteur;
+                for (int d = 0; d < 4; d++) {
+                    int k = j + DX[d] * hauteur + DY[d], ny = cy + DY[d];
+                    if (k < 0 || k >= largeur * hauteur || ny < 0 || ny >= hauteur || composante.get(k) != -1) continue;
+                    composante.set(k, c);
+                    if (q == file.length) file = Arrays.copyOf(file, 2 * q);
+                    file[q++] = k;
+                }
+            }
+            tailles[c] = q;
+        }
+    }
+
+    private static boolean praticable(Plateau p, int x, int y) {
+        return !p.isMer(x, y) && !p.isSubmergee(x, y);
+    }
+
+    private int nouvelle() {
+        if (prochaine == tailles.length) tailles = Arrays.copyOf(tailles, 2 * prochaine);
+        return prochaine++;
+    }
+
+    /** Empreinte de l'ensemble des cases submergées auquel correspond l'index. */
+    long getEmpreinte() { return empreinte; }
+
+    /** Les deux cases sont-elles praticables, et reliées par de la terre praticable ? */
+    boolean relies(int x1, int y1, int x2, int y2) {
+        int c = composante(x1, y1);
+        return c != 0 && c == composante(x2, y2);
+    }
+
+    /** Nombre de cases praticables atteignables depuis [x, y], elle comprise. */
+    int taille(int x, int y) {
+        int c = composante(x, y);
+        return c == 0 ? 0 : tailles[c];
+    }
+
+    private int composante(int x, int y) {
+        if (x < 0 || y < 0 || x >= largeur || y >= hauteur) return 0;
+        return composante.get(x * hauteur + y);
+    }
+
+    /** La case [x, y] vient d'être submergée : [cle] est sa clé de Zobrist. */
+    void submerge(int x, int y, long cle) {
+        empreinte ^= cle;
+        int i = x * hauteur + y, c = composante.get(i);
+        if (c == 0) return;
+        composante.set(i, 0);
+        tailles[c]--;
+        parcours = 0;
+        for (int d = 0; d < 4; d++) {
+            int nx = x + DX[d], ny = y + DY[d];
+            if (composante(nx, ny) != c) continue;
+            int j = nx * hauteur + ny;
+            if (files[parcours] == null) files[parcours] = new int[16];
+            files[parcours][0] = j;
+            tete[parcours] = 0;
+            queue[parcours] = 1;
+            groupe[parcours] = parcours;
+            parcours++;
+        }
+        if (parcours > 1 && !relieParAnneau(x, y, c)) {
+            if (visite == null) visite = new TableauCreux(largeur * hauteur, 0);
+            for (int k = 0; k < parcours; k++) visite.set(files[k][0], base + k);
+            coupe(c);
+        }
+        base += 4;
+        if (base < 0) {
+            if (visite != null) visite.efface();
+            base = 1;
+        }
+    }
+
+    /**
+     * Les voisins de [x, y] dans [c] sont-ils reliés par les huit cases qui
+     * l'entourent ? Ils le sont s'ils tombent tous dans une même suite de
+     * cases de [c], en faisant le tour.
+     */
+    private boolean relieParAnneau(int x, int y, int c) {
+        int debut = -1;
+        for (int k = 0; k < 8; k++) {
+            if (composante(x + AX[k], y + AY[k]) != c) {
+                debut = k;
+                break;
+            }
+        }
+        if (debut < 0) return true;
+        int suites = 0;
+        boolean dansSuite = false, compte = false;
+        for (int t = 1; t <= 8; t++) {
+            int k = (debut + t) & 7;
+            if (composante(x + AX[k], y + AY[k]) != c) {
+                dansSuite = false;
+                continue;
+            }
+            if (!dansSuite) {
+                dansSuite = true;
+                compte = false;
+            }
+            if ((k & 1) == 0 && !compte) {
+                compte = true;
+                suites++;
+            }
+        }
+        return suites <= 1;
+    }
+
+    private int represente(int k) {
+        while (groupe[k] != k) k = groupe[k];
+        return k;
+    }
+
+    /**
+     * Parcours à tour de rôle depuis les voisins de la case submergée, dans
+     * la composante [c], jusqu'à ce qu'il ne reste qu'un groupe de
+     * parcours actif.
+     */
+    private void coupe(int c) {
+        int actifs = parcours;
+        while (actifs > 1) {
+            for (int k = 0; k < parcours && actifs > 1; k++) {
+                if (groupe[k] != k) continue;
+                if (!avance(c, k)) {
+                    // Le groupe [k] est épuisé : c'est une composante à part.
+                    renumerote(c, k);
+                }
+                actifs = actifs();
+            }
+        }
+    }
+
+    /**
+     * Visite une case du groupe [k] (une de ses files non vides) ; renvoie
+     * faux si toutes ses files sont vides.
+     */
+    private boolean avance(int c, int k) {
+        for (int f = 0; f < parcours; f++) {
+            if (groupe[f] < 0 || represente(f) != k || tete[f] == queue[f]) continue;
+            int j = files[f][tete[f]++];
+            int cx = j / hauteur, cy = j % hauteur;
+            for (int d = 0; d < 4; d++) {
+                int nx = cx + DX[d], ny = cy + DY[d];
+                if (composante(nx, ny) != c) continue;
+                int n = nx * hauteur + ny;
+                int v = visite.get(n) - base;
+                if (v >= 0 && v < 4) {
+                    // Rencontre d'un autre parcours : les groupes fusionnent.
+                    int a = represente(v), b = represente(f);
+                    if (a != b) groupe[Math.max(a, b)] = Math.min(a, b);
+                    continue;
+                }
+                visite.set(n, base + f);
+                if (queue[f] == files[f].length) files[f] = Arrays.copyOf(files[f], 2 * queue[f]);
+                files[f][queue[f]++] = n;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /** Nombre de groupes encore actifs. */
+    private int actifs() {
+        int actifs = 0;
+        for (int k = 0; k < parcours; k++) {
+            if (groupe[k] == k) actifs++;
+        }
+        return actifs;
+    }
+
+    /**
+     * Les cases visitées par le groupe [k] forment une nouvelle
+     * composante ; ses parcours sont marqués épuisés.
+     */
+    private void renumerote(int c, int k) {
+        int n = nouvelle(), total = 0;
+        boolean[] membres = new boolean[parcours];
+        for (int f = 0; f < parcours; f++) {
+            if (groupe[f] < 0 || represente(f) != k) continue;
+            membres[f] = true;
+            for (int t = 0; t < queue[f]; t++) composante.set(files[f][t], n);
+            total += queue[f];
+        }
+        for (int f = 0; f < parcours; f++) {
+            if (membres[f]) groupe[f] = -1;
+        }
+        tailles[n] = total;
+        tailles[c] -= total;
+    }
+}
@@ -0,0 +1,190 @@
+package pogl;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Type enum pour les actions du joueur.
+ * Chaque valeur correspond à une méthode publique de [CModele], ce qui
+ * permet de jouer une partie sans passer par les boutons de la vue.
+ */
+
+public enum Action implements Commande {
+    MONTE, DESCEND, DROITE, GAUCHE,
+    ASSECHE_S, ASSECHE_H, ASSECHE_B, ASSECHE_D, ASSECHE_G,
+    RECUPERE, PASSE;
+
+    /** Tableau partagé, pour éviter la copie faite par [values()]. */
+    static final Action[] TOUTES = values();
+
+    public int code() { return ordinal(); }
+
+    /**
+     * Applique l'action au modèle ; si les mesures sont actives (voir
+     * [Mesures]), sa durée est notée, et un [EvenementAction] émis.
+     */
+    public void applique(CModele modele) {
+        if (!Mesures.actives()) {
+            execute(modele);
+            return;
+        }
+        EvenementAction e = new EvenementAction();
+        e.begin();
+        long debut = System.nanoTime();
+        execute(modele);
+        Mesures.D_ACTION.ajoute(System.nanoTime() - debut);
+        Mesures.action(this).incremente();
+        e.end();
+        if (e.shouldCommit()) {
+            e.action = name();
+            e.commit();
+        }
+    }
+
+    private void execute(CModele modele) {
+        switch (this) {
+            case MONTE: modele.aventurierMonte(); break;
+            case DESCEND: modele.aventurierDescend(); break;
+            case DROITE: modele.aventurierDroite(); break;
+            case GAUCHE: modele.aventurierGauche(); break;
+            case ASSECHE_S: modele.assecheTuileS(); break;
+            case ASSECHE_H: modele.assecheTuileH(); break;
+            case ASSECHE_B: modele.assecheTuileB(); break;
+            case ASSECHE_D: modele.assecheTuileD(); break;
+            case ASSECHE_G: modele.assecheTuileG(); break;
+            case RECUPERE: modele.recupereArtefact(); break;
+            case PASSE: modele.passeTour(); break;
+        }
+    }
+}
+
+/**
+ * Une commande soumise au modèle : une [Action] du joueur, ou une
+ * navigation dans l'historique ([Historique]).
+ * Chaque commande a un code d'un octet, sous lequel elle est enregistrée
+ * (voir [Enregistreur]) ; les commandes de code négatif ne sont pas
+ * enregistrées.
+ */
+interface Commande {
+    void applique(CModele modele);
+
+    int code();
+
+    /** La commande de code [code], ou [null] s'il n'en désigne aucune. */
+    static Commande decode(byte code) {
+        if (code == Historique.ANNULE.code()) return Historique.ANNULE;
+        if (code == Historique.REFAIT.code()) return Historique.REFAIT;
+        return code >= 0 && code < Action.TOUTES.length ? Action.TOUTES[code] : null;
+    }
+
+    /**
+     * La commande de code [code], lu à la position [position] d'un
+     * enregistrement : un code inconnu signale un fichier corrompu.
+     */
+    static Commande decode(byte code, long position) throws IOException {
+        Commande c = decode(code);
+        if (c == null) throw new IOException("code d'action " + code + " invalide à la position " + position);
+        return c;
+    }
+}
+
+/**
+ * Annulation et rétablissement de la dernière action (voir
+ * [CModele.annule]) : l'historique doit avoir été activé sur le modèle.
+ */
+enum Historique implements Commande {
+    ANNULE(0x7E), REFAIT(0x7D);
+
+    private final int code;
+
+    Historique(int code) { this.code = code; }
+
+    public int code() { return code; }
+
+    public void applique(CModele modele) {
+        if (this == ANNULE) modele.annule();
+        else modele.refait();
+    }
+}
+
+/**
+ * Déplacement par clic : le joueur suit un plus court chemin vers la case
+ * [x, y] (voir [CModele.trajet]), aussi loin que ses actions le permettent.
+ * Ce n'est pas une commande enregistrée : le [MoteurModele] enregistre
+ * les déplacements qu'elle produit ([etapes]).
+ */
+final class Trajet implements Commande {
+    final int x, y;
+
+    Trajet(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /** Les déplacements que jouera la commande, dans l'état actuel de [modele]. */
+    List<Action> etapes(CModele modele) {
+        List<Action> chemin = modele.trajet(x, y);
+        int actions = modele.getAventurier().getNumberAction();
+        return chemin.size() > actions ? chemin.subList(0, actions) : chemin;
+    }
+
+    /** Les déplacements, en une suite à jouer d'un bloc (voir [Sequence]). */
+    int sequence(CModele modele) {
+        int s = Sequence.VIDE;
+        for (Action a : etapes(modele)) s = Sequence.ajoute(s, a);
+        return s;
+    }
+
+    public void applique(CModele modele) { modele.joue(sequence(modele)); }
+
+    public int code() { return -1; }
+}
+
+/**
+ * Une suite d'actions codée dans un entier, jouée d'un bloc par
+ * [CModele.joue] : toutes les actions, ou aucune.
+ *
+ * Les 4 bits de poids faible donnent le nombre d'actions, de 0 à [MAX] ;
+ * l'action k occupe les 4 bits suivants, rang [4 * (k + 1)], sous son
+ * code ([Action.code]). Comme [Trajet], ce n'est pas une commande
+ * enregistrée : le [MoteurModele] enregistre ses actions une à une.
+ */
+final class Sequence implements Commande {
+    /** Nombre maximal d'actions d'une suite. */
+    static final int MAX = 7;
+    /** La suite vide. */
+    static final int VIDE = 0;
+
+    final int valeur;
+
+    Sequence(int valeur) { this.valeur = valeur; }
+
+    /** La suite des actions [actions], dans l'ordre. */
+    static int de(Action... actions) {
+        int s = VIDE;
+        for (Action a : actions) s = ajoute(s, a);
+        return s;
+    }
+
+    /** La suite [s] suivie de l'action [a]. */
+    static int ajoute(int s, Action a) {
+        int n = longueur(s);
+        if (n == MAX) throw new IllegalArgumentException("suite pleine : " + MAX + " actions au plus");
+        return (s & ~0xF) | (n + 1) | a.code() << 4 * (n + 1);
+    }
+
+    static int longueur(int s) { return s & 0xF; }
+
+    /** L'action de rang [k] de la suite [s]. */
+    static Action action(int s, int k) { return Action.TOUTES[s >>> 4 * (k + 1) & 0xF]; }
+
+    public void applique(CModele modele) { modele.joue(valeur); }
+
+    public int code() { return -1; }
+
+    public String toString() {
+        StringBuilder res = new StringBuilder("[");
+        for (int k = 0; k < longueur(valeur); k++) res.append(k == 0 ? "" : ", ").append(action(valeur, k));
+        return res.append(']').toString();
+    }
+}
@@ -0,0 +1,48 @@
+package pogl;
+
+/**
+ * Générateur pseudo-aléatoire du modèle (SplitMix64).
+ *
+ * Contrairement à [java.util.SplittableRandom], tout son état tient dans un
+ * [long] accessible : un instantané du modèle (voir [EtatModele]) peut donc
+ * le sauver et le restaurer, et une partie rejouée tire exactement les
+ * mêmes nombres, quel que soit le JDK.
+ */
+final class Alea {
+    private static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long etat;
+
+    Alea(long graine) { this.etat = graine; }
+
+    long getEtat() { return etat; }
+
+    void setEtat(long etat) { this.etat = etat; }
+
+    long nextLong() {
+        long z = (etat += GAMMA);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Entier uniforme dans [0, borne[ : méthode multiplicative de Lemire,
+     * avec rejet pour éliminer le biais.
+     */
+    int nextInt(int borne) {
+        long m = (nextLong() >>> 32) * borne;
+        long bas = m & 0xFFFFFFFFL;
+        if (bas < borne) {
+            long seuil = (1L << 32) % borne;
+            while (bas < seuil) {
+                m = (nextLong() >>> 32) * borne;
+                bas = m & 0xFFFFFFFFL;
+            }
+        }
+        return (int) (m >>> 32);
+    }
+
+    /** Réel uniforme dans [0, 1[. */
+    double nextDouble() { return (nextLong() >>> 11) * 0x1.0p-53; }
+}
@@ -1,3 +1,5 @@
+package pogl;
+
 /**
  * Type enum pour les artefacts
  * On a donc ici les 4 artefacts à récupérer
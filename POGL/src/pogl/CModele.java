@@ -0,0 +1,969 @@
+package pogl;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Le modèle : le coeur de l'application.
+ *
+ * Le modèle étend la classe [Observable] : il va posséder un certain nombre
+ * d'observateurs (ici, un : la partie de la vue responsable de l'affichage)
+ * et devra les prévenir lors des modifications : [notifyObservers] quand
+ * tout a changé, et les méthodes [signale...] pour décrire précisément ce
+ * qui a changé (voir [Changements]).
+ * Voir la méthode [deplaceAventurier] pour cela.
+ */
+class CModele extends Observable {
+    /** Taille de la carte classique. */
+    public static final int HAUTEUR=6, LARGEUR=6;
+    /** Taille de la grille de ce modèle, hors bords. */
+    private final int largeur, hauteur;
+    /** Carte classique dessinée à la main, ou île générée ? */
+    private final boolean classique;
+    /** Carte lue dans un paquet (voir [CarteIle]) : la graine ne suffit pas à la refaire. */
+    private boolean surCarte;
+    /** On stocke les cellules dans un plateau compact (voir [Plateau]). */
+    private Plateau jeu;
+    private Aventurier aventurier = new Aventurier(3, 3, Artefact.NONE, 3);
+    /**
+     * Source d'aléa du modèle : une seule instance, qui peut être graine,
+     * pour que deux parties lancées avec la même graine soient identiques.
+     */
+    private final Alea rand;
+    /** La graine de [rand] : avec la taille de la carte, elle suffit à rejouer une partie. */
+    private final long graine;
+    /** Position de l'héliport et de l'artefact, fixées par [init]. */
+    private int heliX, heliY, artX, artY;
+    /**
+     * Journal des actions (voir [Journal]) : inactif par défaut, sauf pour
+     * le jeu lancé depuis l'interface, qui trace sur la sortie standard.
+     */
+    private Journal journal = Journal.INACTIF;
+    /** Numéro du tour en cours, à partir de 0. */
+    private int tour;
+    /**
+     * Historique des états, pour [annule] et [refait] : désactivé par
+     * défaut (voir [setHistorique]). Chaque état partage ses blocs avec
+     * le plateau courant (voir [Plateau.fige]), et ne coûte donc que les
+     * blocs modifiés depuis.
+     */
+    private boolean historique;
+    private final ArrayDeque<EtatModele> annulations = new ArrayDeque<>();
+    private final ArrayDeque<EtatModele> retablissements = new ArrayDeque<>();
+    /** Nombre d'états conservés au plus pour [annule]. */
+    public static final int HISTORIQUE_MAX = 1000;
+    /**
+     * Composantes connexes de la terre praticable (voir [Accessibilite]),
+     * construites à la première requête, puis tenues à jour à chaque
+     * submersion. Elles correspondent à l'ensemble des cases submergées
+     * d'empreinte [empreinteSubmergees].
+     */
+    private Accessibilite accessibilite;
+    private long empreinteSubmergees;
+    /**
+     * Distances depuis le joueur (voir [ChampDistances]), calculées à la
+     * première requête, réparées à chaque submersion, et oubliées quand
+     * le joueur bouge.
+     */
+    private ChampDistances distances;
+    /**
+     * Règle d'inondation de fin de tour (voir [Inondeur]) : par défaut,
+     * une case par ligne. Son état éventuel est sauvé avec le modèle.
+     */
+    private Inondeur inondeur = Inondeur.LIGNES;
+    /** Cases inondées, et submergées, depuis le début du dernier [passeTour]. */
+    private int inondees, submergees;
+    /**
+     * Issue de la partie, tenue à jour par les déplacements, le ramassage
+     * de l'artefact et les submersions : [estGagnee] et [estPerdue] ne font
+     * que la lire. Fausse à la construction et après [restaure], l'issue
+     * est alors recalculée à la requête suivante (voir [revoitIssue]).
+     */
+    private boolean gagnee, perdue, issueAJour;
+
+    /** Construction : on initialise un tableau de cellules. */
+    public CModele() {
+        this(LARGEUR, HAUTEUR, true, new SplittableRandom().nextLong());
+        this.journal = Journal.console();
+    }
+
+    /**
+     * Construction d'un modèle déterministe : sert à la simulation sans
+     * interface (voir [Simulateur]).
+     */
+    public CModele(long graine) {
+        this(LARGEUR, HAUTEUR, true, graine);
+    }
+
+    /**
+     * Construction d'un modèle sur une île générée (voir [GenerateurIle]),
+     * de taille quelconque.
+     */
+    public CModele(int largeur, int hauteur, long graine) {
+        this(largeur, hauteur, false, graine);
+    }
+
+    /** Modèle de la carte classique ou d'une île générée, selon [classique]. */
+    CModele(int largeur, int hauteur, boolean classique, long graine) {
+        if (largeur < 4 || hauteur < 4) {
+            throw new IllegalArgumentException("une île fait au moins 4 x 4 cases");
+        }
+        this.largeur = largeur;
+        this.hauteur = hauteur;
+        this.classique = classique;
+        this.graine = graine;
+        this.rand = new Alea(graine);
+        /**
+         * Pour éviter les problèmes aux bords, on ajoute une ligne et une
+         * colonne de chaque côté, dont les cellules n'évolueront pas.
+         */
+
+        jeu = new Plateau(largeur+2, hauteur+2);
+        init();
+    }
+
+    /**
+     * Modèle d'une partie sur une carte de paquet (voir [CarteIle]) : son
+     * île, son départ et son héliport, avec l'emplacement de l'artefact
+     * [objectif] ; [graine] ne tire que les inondations. Une telle partie
+     * ne se rejoue pas depuis un enregistrement, qui ne garde pas la carte :
+     * [Enregistreur] la refuse.
+     */
+    CModele(CarteIle carte, Artefact objectif, long graine) {
+        if (objectif == Artefact.NONE) throw new IllegalArgumentException("artefact absent");
+        this.largeur = carte.largeur;
+        this.hauteur = carte.hauteur;
+        this.classique = false;
+        this.surCarte = true;
+        this.graine = graine;
+        this.rand = new Alea(graine);
+        jeu = new Plateau(largeur+2, hauteur+2);
+        for (int k = 0; k < carte.terre.length; k++) {
+            for (long m = carte.terre[k]; m != 0; m &= m - 1) {
+                int i = k * 64 + Long.numberOfTrailingZeros(m);
+                jeu.setTerre(i % largeur + 1, i / largeur + 1);
+            }
+        }
+        this.aventurier.deplaceAventurier(carte.departX, carte.departY);
+        jeu.setAventurier(carte.departX, carte.departY);
+        heliX = carte.heliX;
+        heliY = carte.heliY;
+        jeu.setHeliport(heliX, heliY);
+        artX = carte.artX[objectif.ordinal()];
+        artY = carte.artY[objectif.ordinal()];
+        jeu.setArtefact(artX, artY, objectif);
+
+        Inondeur.LIGNES.inonde(this, rand);
+    }
+
+    /**
+     * Branche : copie du modèle dans le même état, sans observateurs, sans
+     * journal et sans historique, qui partage son plateau avec l'original.
+     * Sert aux aperçus de la vue et à la recherche de solutions. Elle tire
+     * au sort exactement comme le modèle : le [Solveur] en a besoin, mais
+     * un aperçu de fin de tour dévoilerait les inondations à venir (voir
+     * [MoteurModele.apercu]).
+     */
+    private CModele(CModele m) {
+        this.largeur = m.largeur;
+        this.hauteur = m.hauteur;
+        this.classique = m.classique;
+        this.surCarte = m.surCarte;
+        this.graine = m.graine;
+        this.rand = new Alea(m.graine);
+        this.heliX = m.heliX; this.heliY = m.heliY;
+        this.artX = m.artX; this.artY = m.artY;
+        this.jeu = m.jeu.copie();
+        this.empreinteSubmergees = m.empreinteSubmergees;
+        this.inondeur = m.inondeur.copie();
+        charge(m.sauveSansPlateau());
+        this.gagnee = m.gagnee;
+        this.perdue = m.perdue;
+        this.issueAJour = m.issueAJour;
+    }
+
+    public int getLargeur() { return largeur; }
+
+    public long getGraine() { return graine; }
+
+    public boolean isClassique() { return classique; }
+
+    /**
+     * Code de la règle d'inondation à enregistrer avec la partie (voir
+     * [Inondeur.code]), ou -1 si la partie ne se rejoue pas depuis sa
+     * graine : carte de paquet, ou règle qui ne s'enregistre pas.
+     */
+    int codeEnregistrement() { return surCarte ? -1 : inondeur.code(); }
+
+    public int getHauteur() { return hauteur; }
+
+    /**
+     * Initialisation aléatoire des cellules, exceptées celle des bords qui
+     * ont été ajoutés.
+     */
+    public void init() {
+        issueAJour = false;
+        if (!classique) {
+            initIle();
+            return;
+        }
+        // Le plateau est de la mer par défaut : on fait émerger la carte
+        for(int i=0; i<LARGEUR+2; i++) {
+            for(int j=0; j<HAUTEUR+2; j++) {
+                jeu.setTerre(i, j);
+            }
+        }
+        // On init les tuiles mer
+        jeu.setMer(1, 1);
+        jeu.setMer(1, 2);
+        jeu.setMer(2, 1);
+
+        jeu.setMer(1, 5);
+        jeu.setMer(1, 6);
+        jeu.setMer(2, 6);
+
+        jeu.setMer(5, 6);
+        jeu.setMer(6, 6);
+        jeu.setMer(6, 5);
+
+        jeu.setMer(5, 1);
+        jeu.setMer(6, 1);
+        jeu.setMer(6, 2);
+        // + Les tuiles invisbles
+        jeu.setMer(0, 3);
+        jeu.setMer(0, 4);
+
+        jeu.setMer(3, 7);
+        jeu.setMer(4, 7);
+
+        jeu.setMer(7, 3);
+        jeu.setMer(7, 4);
+
+        jeu.setMer(4, 0);
+        jeu.setMer(3, 0);
+
+        // On init les tuiles avec les artefacts
+        // On place le joueur
+        jeu.setAventurier(3, 3);
+
+        // On place les 6 zones inondés de manière aléatoire
+        Inondeur.LIGNES.inonde(this, rand);
+
+        // On place l'héliport de manière aléatoire
+
+        heliX = (rand.nextInt(5-2))+2;
+        heliY = (rand.nextInt(5-2))+2;
+        jeu.setHeliport(heliX, heliY);
+
+        // On place l'artefact
+
+        artX = (rand.nextInt(5-2))+2+1;
+        artY = (rand.nextInt(5-2))+2+1;
+        jeu.setArtefact(artX, artY, Artefact.CRYSTAL);
+    }
+
+    /**
+     * Initialisation d'une île générée : l'aventurier part du centre, qui
+     * émerge toujours, puis l'héliport et l'artefact sont placés sur des
+     * cases de terre libres, et une case par ligne est inondée.
+     */
+    private void initIle() {
+        new GenerateurIle(rand.nextLong(), largeur, hauteur).genere(jeu, largeur, hauteur);
+        int x = (largeur + 1) / 2, y = (hauteur + 1) / 2;
+        this.aventurier.deplaceAventurier(x, y);
+        jeu.setAventurier(x, y);
+
+        long heliport = caseLibre();
+        heliX = (int) (heliport >>> 32);
+        heliY = (int) heliport;
+        jeu.setHeliport(heliX, heliY);
+
+        long artefact;
+        do {
+            artefact = caseLibre();
+        } while (artefact == heliport);
+        artX = (int) (artefact >>> 32);
+        artY = (int) artefact;
+        jeu.setArtefact(artX, artY, Artefact.CRYSTAL);
+
+        Inondeur.LIGNES.inonde(this, rand);
+    }
+
+    /** Tire une case de terre inoccupée, renvoyée sous la forme [x << 32 | y]. */
+    private long caseLibre() {
+        while (true) {
+            int x = 1 + rand.nextInt(largeur), y = 1 + rand.nextInt(hauteur);
+            if (jeu.isValide(x, y)) return (long) x << 32 | y;
+        }
+    }
+
+    /** Active ou coupe l'affichage des déplacements sur la sortie standard. */
+    public void setTrace(boolean trace) { this.journal = trace ? Journal.console() : Journal.INACTIF; }
+
+    public void setJournal(Journal journal) { this.journal = journal; }
+
+    public int getTour() { return tour; }
+
+    /**
+     * Change la règle d'inondation des tours suivants ; les inondations de
+     * départ suivent toujours la règle d'origine. La règle doit convenir
+     * au modèle ([Inondeur.verifie]) : dimensions d'un champ de
+     * probabilités, taille de l'île pour un paquet.
+     */
+    public void setInondeur(Inondeur inondeur) {
+        if (inondeur == null) throw new IllegalArgumentException("inondeur absent");
+        inondeur.verifie(this);
+        this.inondeur = inondeur;
+    }
+
+    public Inondeur getInondeur() { return inondeur; }
+
+    /**
+     * Instantané de l'état du modèle, en temps constant : le plateau est
+     * figé et partagé, et ne sera copié, bloc par bloc, qu'aux écritures
+     * suivantes.
+     */
+    public EtatModele sauve() {
+        Aventurier a = this.aventurier;
+        return new EtatModele(jeu.fige(), a.getPositionX(), a.getPositionY(), a.getNumberAction(),
+                a.haveArtefact(), tour, rand.getEtat(), empreinteSubmergees, inondeur.sauve());
+    }
+
+    /** Comme [sauve], pour [branche], qui copie le plateau à part. */
+    private EtatModele sauveSansPlateau() {
+        Aventurier a = this.aventurier;
+        return new EtatModele(null, a.getPositionX(), a.getPositionY(), a.getNumberAction(),
+                a.haveArtefact(), tour, rand.getEtat(), empreinteSubmergees, inondeur.sauve());
+    }
+
+    /**
+     * Retour à un état sauvé par [sauve] sur ce modèle (ou sur une de ses
+     * branches), en temps constant ; les observateurs sont prévenus que
+     * tout a changé. L'index d'accessibilité est gardé si les cases
+     * submergées sont les mêmes, et reconstruit à la demande sinon.
+     */
+    public void restaure(EtatModele e) {
+        this.jeu = e.getPlateau().copie();
+        this.empreinteSubmergees = e.getEmpreinteSubmergees();
+        if (accessibilite != null && accessibilite.getEmpreinte() != empreinteSubmergees) accessibilite = null;
+        distances = null;
+        charge(e);
+        notifyObservers();
+    }
+
+    private void charge(EtatModele e) {
+        issueAJour = false;
+        this.aventurier.restaure(e.getPositionX(), e.getPositionY(), e.getNumberAction(), e.haveArtefact());
+        this.tour = e.getTour();
+        this.rand.setEtat(e.getAlea());
+        this.inondeur.restaure(e.getInondeur());
+    }
+
+    /**
+     * Empreinte de Zobrist de l'état du modèle : celle du plateau, tenue à
+     * jour par ses écritures, et les clés des actions restantes, de
+     * l'artefact porté, de l'aléa et de l'état de l'inondeur (les
+     * inondations à venir en dépendent).
+     * Deux états égaux ont la même empreinte ; le numéro du tour, qui ne
+     * change pas la suite de la partie, n'y entre pas.
+     */
+    public long getEmpreinte() {
+        long h = jeu.getEmpreinte() ^ Zobrist.cle(Zobrist.ACTIONS + this.aventurier.getNumberAction())
+                ^ Zobrist.melange(rand.getEtat() ^ Zobrist.cle(Zobrist.ALEA)) ^ inondeur.getEmpreinte();
+        return this.aventurier.haveArtefact() ? h ^ Zobrist.cle(Zobrist.PORTE_ARTEFACT) : h;
+    }
+
+    /** Copie indépendante du modèle, pour essayer des actions sans le toucher. */
+    public CModele branche() { return new CModele(this); }
+
+    /**
+     * Remplace l'état de l'aléa : les inondations à venir changent, le
+     * reste du modèle non. Sert à tirer d'autres suites d'inondations sur
+     * une branche (voir [Solveur.estime]).
+     */
+    void setEtatAlea(long etat) { this.rand.setEtat(etat); }
+
+    public int getHeliportX() { return heliX; }
+
+    public int getHeliportY() { return heliY; }
+
+    public int getArtefactX() { return artX; }
+
+    public int getArtefactY() { return artY; }
+
+    /**
+     * L'action [a] changerait-elle quelque chose au modèle ? Mêmes
+     * conditions que les méthodes correspondantes, sans rien modifier.
+     */
+    public boolean estPossible(Action a) {
+        int x = this.aventurier.getPositionX(), y = this.aventurier.getPositionY();
+        switch (a) {
+            case MONTE: return peutAller(x, y - 1);
+            case DESCEND: return peutAller(x, y + 1);
+            case DROITE: return peutAller(x + 1, y);
+            case GAUCHE: return peutAller(x - 1, y);
+            case ASSECHE_S: return peutAssecher(x, y);
+            case ASSECHE_H: return peutAssecher(x, y - 1);
+            case ASSECHE_B: return peutAssecher(x, y + 1);
+            case ASSECHE_D: return peutAssecher(x + 1, y);
+            case ASSECHE_G: return peutAssecher(x - 1, y);
+            case RECUPERE: return jeu.isArtefact(x, y) && !jeu.isSubmergee(x, y);
+            default: return true;
+        }
+    }
+
+    /**
+     * La suite d'actions [s] (voir [Sequence]) peut-elle être jouée en
+     * entier, chaque action changeant quelque chose ? Les actions sont
+     * vérifiées dans l'ordre, depuis la position et les actions que le
+     * joueur aurait après les précédentes, sans rien modifier : la case
+     * quittée redevient accessible, une case asséchée ne l'est pas deux
+     * fois, l'artefact n'est ramassé qu'une fois. L'inondation qui suit
+     * [PASSE] étant tirée au hasard, [PASSE] ne peut être que la dernière
+     * action de la suite.
+     */
+    public boolean estPossible(int s) {
+        int n = Sequence.longueur(s);
+        if (n == 0 || n > Sequence.MAX) return false;
+        int x0 = this.aventurier.getPositionX(), y0 = this.aventurier.getPositionY();
+        int x = x0, y = y0, actions = this.aventurier.getNumberAction();
+        /** Cases asséchées par la suite, en [x, y] successifs. */
+        int[] asseches = new int[2 * Sequence.MAX];
+        int nAsseches = 0;
+        boolean ramasse = false;
+        for (int k = 0; k < n; k++) {
+            int code = s >>> 4 * (k + 1) & 0xF;
+            if (code >= Action.TOUTES.length) return false;
+            Action a = Action.TOUTES[code];
+            int dx = 0, dy = 0;
+            switch (a) {
+                case MONTE: case ASSECHE_H: dy = -1; break;
+                case DESCEND: case ASSECHE_B: dy = 1; break;
+                case DROITE: case ASSECHE_D: dx = 1; break;
+                case GAUCHE: case ASSECHE_G: dx = -1; break;
+                default: break;
+            }
+            switch (a) {
+                case MONTE: case DESCEND: case DROITE: case GAUCHE:
+                    if (actions < 1) return false;
+                    if ((x + dx != x0 || y + dy != y0) && !jeu.isValide(x + dx, y + dy)) return false;
+                    x += dx;
+                    y += dy;
+                    actions--;
+                    break;
+                case RECUPERE:
+                    if (ramasse || !jeu.isArtefact(x, y) || jeu.isSubmergee(x, y)) return false;
+                    ramasse = true;
+                    break;
+                case PASSE:
+                    if (k != n - 1) return false;
+                    break;
+                default:
+                    if (!peutAssecher(x + dx, y + dy)) return false;
+                    for (int i = 0; i < nAsseches; i++) {
+                        if (asseches[2 * i] == x + dx && asseches[2 * i + 1] == y + dy) return false;
+                    }
+                    asseches[2 * nAsseches] = x + dx;
+                    asseches[2 * nAsseches++ + 1] = y + dy;
+                    break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Joue d'un bloc la suite d'actions [s] (voir [Sequence]) : si elle
+     * peut être jouée en entier ([estPossible]), toutes ses actions sont
+     * appliquées, et leurs changements partent en une seule notification ;
+     * sinon rien n'est modifié, et la méthode renvoie faux.
+     *
+     * L'historique garde une entrée par action : une partie enregistrée
+     * action par action s'annule et se rejoue à l'identique.
+     */
+    public boolean joue(int s) {
+        if (!estPossible(s)) return false;
+        debutLot();
+        try {
+            for (int k = 0; k < Sequence.longueur(s); k++) Sequence.action(s, k).applique(this);
+        } finally {
+            finLot();
+        }
+        return true;
+    }
+
+    private boolean peutAller(int x, int y) {
+        return jeu.isValide(x, y) && this.aventurier.getNumberAction() >= 1;
+    }
+
+    private boolean peutAssecher(int x, int y) {
+        return jeu.getEtat(x, y) == 0 && !jeu.isMer(x, y);
+    }
+
+    /** Active ou coupe l'historique ; le couper l'efface. */
+    public void setHistorique(boolean historique) {
+        this.historique = historique;
+        if (!historique) {
+            annulations.clear();
+            retablissements.clear();
+        }
+    }
+
+    public boolean peutAnnuler() { return !annulations.isEmpty(); }
+
+    public boolean peutRefaire() { return !retablissements.isEmpty(); }
+
+    /** Annule la dernière action ayant modifié le modèle, s'il y en a une. */
+    public void annule() {
+        if (annulations.isEmpty()) return;
+        retablissements.push(sauve());
+        restaure(annulations.pop());
+    }
+
+    /** Rétablit la dernière action annulée, s'il y en a une. */
+    public void refait() {
+        if (retablissements.isEmpty()) return;
+        annulations.push(sauve());
+        restaure(retablissements.pop());
+    }
+
+    /**
+     * Appelé juste avant chaque modification : l'état courant entre dans
+     * l'historique, et les actions annulées ne peuvent plus être refaites.
+     */
+    private void memorise() {
+        if (!historique) return;
+        annulations.push(sauve());
+        if (annulations.size() > HISTORIQUE_MAX) annulations.removeLast();
+        retablissements.clear();
+    }
+
+    /**
+     * Mouvement avance du joueur
+     */
+    public void aventurierMonte() { deplaceAventurier(0, -1); }
+
+    public void aventurierDescend() { deplaceAventurier(0, 1); }
+
+    public void aventurierDroite() { deplaceAventurier(1, 0); }
+
+    public void aventurierGauche() { deplaceAventurier(-1, 0); }
+
+    /**
+     * Déplacement commun aux quatre directions : le joueur avance d'une case
+     * de [dx, dy] si la tuile visée est valide et qu'il lui reste une action.
+     */
+    private void deplaceAventurier(int dx, int dy) {
+        int posX = this.aventurier.getPositionX();
+        int posY = this.aventurier.getPositionY();
+        if (peutAller(posX+dx, posY+dy)) {
+            memorise();
+            distances = null;
+            this.aventurier.decreaseNumberAction();
+            this.aventurier.deplaceAventurier(posX+dx, posY+dy);
+            jeu.supprimeAventurier(posX, posY);
+            jeu.setAventurier(posX+dx, posY+dy);
+            // Le joueur reste sur sa composante de terre : seule la victoire peut changer.
+            if (issueAJour) gagnee = estSurHeliportAvecArtefact();
+            /**
+             * Pour finir, le modèle ayant changé, on signale aux
+             * observateurs ce qui doit être mis à jour : les quatre
+             * changements partent en une seule notification.
+             */
+            debutLot();
+            signaleTuile(posX, posY);
+            signaleTuile(posX+dx, posY+dy);
+            signaleJoueur();
+            signaleActions();
+            finLot();
+        }
+        journal.ecrit(Journal.TRACE, Journal.DEPLACEMENT, posX, posY,
+                this.aventurier.getPositionX() != posX || this.aventurier.getPositionY() != posY ? 1 : 0);
+    }
+
+    /**
+     * Une méthode pour renvoyer la cellule aux coordonnées choisies (sera
+     * utilisée par la vue).
+     */
+    public Tuile getTuile(int x, int y) {
+        return new Tuile(jeu, x, y);
+    }
+
+    /** Accès direct au plateau compact, pour la vue et la simulation. */
+    public Plateau getPlateau() { return jeu; }
+
+    /**
+     * Fin du tour : les actions du joueur sont rechargées et l'île s'enfonce.
+     * Toutes les cases inondées sont notifiées ensemble, à la fin.
+     */
+    public void passeTour() {
+        EvenementTour mesure = null;
+        long debut = 0;
+        if (Mesures.actives()) {
+            mesure = new EvenementTour();
+            mesure.begin();
+            debut = System.nanoTime();
+        }
+        inondees = submergees = 0;
+        memorise();
+        debutLot();
+        try {
+            this.aventurier.resetNumberAction();
+            tour++;
+            journal.ecrit(Journal.INFO, Journal.TOUR, tour, 0, 0);
+            signaleActions();
+            signaleTour();
+            inondeur.inonde(this, rand);
+        } finally {
+            finLot();
+        }
+        if (mesure != null) mesureTour(mesure, debut);
+    }
+
+    /** Cases de terre inondées ou submergées par le dernier [passeTour]. */
+    int getInondationsTour() { return inondees; }
+
+    /** Mesures d'une fin de tour commencée à [debut] (voir [Mesures]). */
+    private void mesureTour(EvenementTour e, long debut) {
+        Mesures.D_TOUR.ajoute(System.nanoTime() - debut);
+        Mesures.D_INONDATIONS_TOUR.ajoute(inondees);
+        Mesures.C_INONDATIONS.ajoute(inondees);
+        Mesures.C_SUBMERSIONS.ajoute(submergees);
+        e.end();
+        if (e.shouldCommit()) {
+            e.tour = tour;
+            e.inondations = inondees;
+            e.submersions = submergees;
+            e.commit();
+        }
+    }
+
+    public void assecheTuileS() { asseche(0, 0); }
+
+    public void assecheTuileH() { asseche(0, -1); }
+
+    public void assecheTuileB() { asseche(0, 1); }
+
+    public void assecheTuileD() { asseche(1, 0); }
+
+    public void assecheTuileG() { asseche(-1, 0); }
+
+    /** Assèchement commun aux cinq variantes : la case visée doit être inondée. */
+    private void asseche(int dx, int dy) {
+        int x = this.aventurier.getPositionX() + dx;
+        int y = this.aventurier.getPositionY() + dy;
+        if (peutAssecher(x, y)) {
+            memorise();
+            jeu.increaseEtat(x, y);
+            signaleTuile(x, y);
+            journal.ecrit(Journal.TRACE, Journal.ASSECHEMENT, x, y, 0);
+        }
+    }
+
+    /** Inondation d'une case, signalée aux observateurs (voir [Inondeur]). */
+    void inonde(int x, int y) {
+        // Les tirages tombés sur la mer, ou sur une case déjà submergée, ne changent rien.
+        boolean terre = !jeu.isMer(x, y) && !jeu.isSubmergee(x, y);
+        boolean submerge = terre && jeu.getEtat(x, y) == 0;
+        jeu.decreaseEtat(x, y);
+        if (terre) inondees++;
+        if (submerge) {
+            submergees++;
+            long cle = Zobrist.cle(x, y, Zobrist.SUBMERGEE);
+            empreinteSubmergees ^= cle;
+            if (accessibilite != null) accessibilite.submerge(x, y, cle);
+            if (distances != null) distances.submerge(jeu, x, y);
+            if (issueAJour) submersion(x, y);
+        }
+        signaleTuile(x, y);
+        journal.ecrit(Journal.TRACE, Journal.INONDATION, x, y, jeu.getEtat(x, y));
+    }
+
+    public void recupereArtefact() {
+        int posX = this.aventurier.getPositionX();
+        int posY = this.aventurier.getPositionY();
+        // La case du joueur est occupée, donc jamais [isValide] : on vérifie
+        // seulement qu'elle n'est pas submergée.
+        if (jeu.isArtefact(posX, posY) && !jeu.isSubmergee(posX, posY)) {
+            memorise();
+            jeu.supprimeArtefact(posX, posY);
+            this.aventurier.recupereArtefact();
+            if (issueAJour) gagnee = estSurHeliportAvecArtefact();
+            journal.ecrit(Journal.INFO, Journal.ARTEFACT, posX, posY, 0);
+            debutLot();
+            signaleTuile(posX, posY);
+            signaleJoueur();
+            finLot();
+        }
+    }
+
+    public Aventurier getAventurier() { return this.aventurier; }
+
+    /**
+     * La partie est gagnée lorsque le joueur, artefact en poche, se tient
+     * sur l'héliport. Temps constant.
+     */
+    public boolean estGagnee() {
+        if (!issueAJour) revoitIssue();
+        return gagnee;
+    }
+
+    /**
+     * La partie est perdue si le joueur se noie, si l'héliport est submergé,
+     * si l'artefact sombre avant d'avoir été récupéré, ou si le joueur ne
+     * peut plus les atteindre (voir [peutSEchapper]). Une partie perdue le
+     * reste, même si le joueur quitte ensuite la case où il s'est noyé.
+     * Temps constant.
+     */
+    public boolean estPerdue() {
+        if (!issueAJour) revoitIssue();
+        return perdue;
+    }
+
+    private boolean estSurHeliportAvecArtefact() {
+        return this.aventurier.haveArtefact()
+                && this.aventurier.getPositionX() == heliX
+                && this.aventurier.getPositionY() == heliY;
+    }
+
+    /**
+     * Calcul complet de l'issue, après une construction ou une
+     * restauration ; ensuite, seules les submersions (voir [inonde]) et
+     * les actions du joueur la modifient.
+     */
+    private void revoitIssue() {
+        gagnee = estSurHeliportAvecArtefact();
+        perdue = jeu.isSubmergee(this.aventurier.getPositionX(), this.aventurier.getPositionY())
+                || jeu.isSubmergee(heliX, heliY)
+                || (!this.aventurier.haveArtefact() && jeu.isSubmergee(artX, artY))
+                || !peutSEchapper();
+        issueAJour = true;
+    }
+
+    /**
+     * La case [x, y] vient d'être submergée : la partie est perdue si c'est
+     * celle du joueur, l'héliport ou l'artefact à ramasser, ou si elle
+     * coupe le joueur de l'un d'eux.
+     */
+    private void submersion(int x, int y) {
+        int px = this.aventurier.getPositionX(), py = this.aventurier.getPositionY();
+        perdue |= (x == px && y == py) || (x == heliX && y == heliY)
+                || (!this.aventurier.haveArtefact() && x == artX && y == artY)
+                || !peutSEchapper();
+    }
+
+    /** Cases de terre de l'île, en temps constant (voir [Plateau.nombreTerres]). */
+    public int getCasesTerre() { return jeu.nombreTerres(); }
+
+    /** Cases de terre inondées, en temps constant. */
+    public int getCasesInondees() { return jeu.nombreInondees(); }
+
+    /** Cases de terre submergées, en temps constant. */
+    public int getCasesSubmergees() { return jeu.nombreSubmergees(); }
+
+    /**
+     * Le joueur peut-il encore atteindre l'héliport, et l'artefact s'il
+     * ne l'a pas, par la terre praticable ? Les cases submergées ne
+     * s'asséchant jamais, une réponse négative est définitive.
+     * Temps constant, hors construction de l'index.
+     */
+    public boolean peutSEchapper() {
+        Accessibilite a = accessibilite();
+        int x = this.aventurier.getPositionX(), y = this.aventurier.getPositionY();
+        return a.relies(x, y, heliX, heliY)
+                && (this.aventurier.haveArtefact() || a.relies(x, y, artX, artY));
+    }
+
+    /** Le champ des distances depuis le joueur, calculé au besoin. */
+    ChampDistances distances() {
+        if (distances == null) {
+            distances = new ChampDistances(jeu, this.aventurier.getPositionX(), this.aventurier.getPositionY());
+        }
+        return distances;
+    }
+
+    /**
+     * Les déplacements d'un plus court chemin du joueur vers [x, y], sans
+     * tenir compte des actions restantes ; liste vide si la case est
+     * inaccessible.
+     */
+    public List<Action> trajet(int x, int y) { return distances().chemin(x, y); }
+
+    /** L'index d'accessibilité, construit au besoin. */
+    Accessibilite accessibilite() {
+        if (accessibilite == null) accessibilite = new Accessibilite(jeu, empreinteSubmergees);
+        return accessibilite;
+    }
+}
+
+/** Fin de la classe CModele. */
+
+/**
+ * Définition de la classe zones pour les zones du jeu
+ */
+
+class Tuile {
+    /**
+     * Une tuile n'est plus qu'une vue sur une case du [Plateau] : elle ne
+     * stocke rien elle-même, et toutes ses méthodes lisent ou écrivent
+     * directement dans le plateau.
+     *
+     * L'Etat est défini par un entier
+     * 1 = normale
+     * 0 = inondee
+     * -1 = submergee
+     */
+    private final Plateau plateau;
+    private final int x, y;
+
+    public Tuile(Plateau plateau, int x, int y) {
+        this.plateau = plateau;
+        this.x = x; this.y = y;
+    }
+
+    public int getX() { return this.x; }
+
+    public int getY() { return this.y; }
+
+    public int getEtat() { return plateau.getEtat(x, y); }
+
+    public Artefact getArtefact() { return plateau.getArtefact(x, y); }
+
+    public void decreaseEtat() { plateau.decreaseEtat(x, y); }
+
+    public  void increaseEtat() { plateau.increaseEtat(x, y); }
+
+    public boolean isNormale() { return getEtat() == 1; }
+
+    public boolean isInondee() { return getEtat() == 0; }
+
+    public boolean isSubmergee() { return getEtat() == -1; }
+
+    public boolean isHeliport() { return plateau.isHeliport(x, y); }
+
+    public void setHeliport() { plateau.setHeliport(x, y); }
+
+    // Si c'est dans la mer
+    // On ne peut pas accéder à cette tuile;
+    public boolean isMer() { return plateau.isMer(x, y); }
+
+    public void setMer() { plateau.setMer(x, y); }
+
+    public boolean isAventurier() { return plateau.isAventurier(x, y); }
+
+    public void setAventurier() { plateau.setAventurier(x, y); }
+
+    public void supprimeAventurier() { plateau.supprimeAventurier(x, y); }
+
+    public void supprimeArtefact() { plateau.supprimeArtefact(x, y); }
+
+    public boolean isArtefact() { return plateau.isArtefact(x, y); }
+
+    public void setArtefact(Artefact type) { plateau.setArtefact(x, y, type); }
+
+    // Permet de savoir si une tuile est valide
+    public boolean isValide() { return plateau.isValide(x, y); }
+}
+
+class Aventurier {
+
+    private int positionX, positionY;
+    private Artefact cle;
+    private boolean artefact;
+    private int numberAction;
+
+    public Aventurier(int positionX, int positionY, Artefact cle, int numberAction) {
+        this.cle = cle;
+        this.numberAction = numberAction;
+        this.positionX = positionX;
+        this.positionY = positionY;
+        this.artefact = false;
+    }
+
+    public int getPositionX() { return this.positionX; }
+
+    public int getPositionY() { return this.positionY; }
+
+    public void ajouteCle(Artefact cle) {
+        this.cle = cle;
+    }
+
+    public int getNumberAction() { return this.numberAction; }
+
+    public void decreaseNumberAction() {
+        if (this.numberAction > 0) {
+            this.numberAction--;
+        }
+    }
+
+    public void resetNumberAction() { this.numberAction = 3; }
+
+    public void deplaceAventurier(int positionX, int positionY) {
+        this.positionX = positionX;
+        this.positionY = positionY;
+    }
+
+    public boolean haveArtefact() {
+        return this.artefact;
+    }
+
+    public void recupereArtefact() {
+        this.artefact = true;
+    }
+
+    /** Retour à un état sauvé (voir [CModele.restaure]). */
+    void restaure(int positionX, int positionY, int numberAction, boolean artefact) {
+        this.positionX = positionX;
+        this.positionY = positionY;
+        this.numberAction = numberAction;
+        this.artefact = artefact;
+    }
+
+}
+
+/**
+ * Un état sauvé du modèle (voir [CModele.sauve]) : le plateau figé,
+ * l'aventurier, le tour, et l'état de l'aléa et de l'inondeur. Il n'est jamais modifié, et
+ * plusieurs états successifs partagent les blocs du plateau qu'aucune
+ * action n'a touchés entre eux.
+ */
+final class EtatModele {
+    private final Plateau plateau;
+    private final int x, y, actions, tour;
+    private final boolean artefact;
+    private final long alea, submergees;
+    /** État de l'inondeur (voir [Inondeur.sauve]), ou [null]. */
+    private final Object inondeur;
+
+    EtatModele(Plateau plateau, int x, int y, int actions, boolean artefact, int tour, long alea,
+            long submergees, Object inondeur) {
+        this.plateau = plateau;
+        this.x = x;
+        this.y = y;
+        this.actions = actions;
+        this.artefact = artefact;
+        this.tour = tour;
+        this.alea = alea;
+        this.submergees = submergees;
+        this.inondeur = inondeur;
+    }
+
+    public Plateau getPlateau() { return plateau; }
+
+    public int getPositionX() { return x; }
+
+    public int getPositionY() { return y; }
+
+    public int getNumberAction() { return actions; }
+
+    public boolean haveArtefact() { return artefact; }
+
+    public int getTour() { return tour; }
+
+    long getAlea() { return alea; }
+
+    /** Empreinte de Zobrist de l'ensemble des cases submergées. */
+    long getEmpreinteSubmergees() { return submergees; }
+
+    Object getInondeur() { return inondeur; }
+}
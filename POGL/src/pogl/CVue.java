@@ -0,0 +1,664 @@
+package pogl;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.VolatileImage;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * La vue : l'interface avec l'utilisateur.
+ *
+ * On définit une classe chapeau [CVue] qui crée la fenêtre principale de 
+ * l'application et contient les deux parties principales de notre vue :
+ *  - Une zone d'affichage où on voit l'ensemble des cellules.
+ *  - Une zone de commande avec un bouton pour passer à la génération suivante.
+ */
+class CVue {
+    /**
+     * JFrame est une classe fournie pas Swing. Elle représente la fenêtre
+     * de l'application graphique.
+     */
+    private JFrame frame;
+    /**
+     * VueGrille et VueCommandes sont deux classes définies plus loin, pour
+     * nos deux parties de l'interface graphique.
+     */
+    private VueGrille grille;
+    private JPanel commandes;
+
+    /** Construction d'une vue attachée à un modèle. */
+    public CVue(CModele modele) {
+        /**
+         * Le modèle n'est plus modifié dans le fil d'événements Swing : les
+         * boutons soumettent des commandes au moteur, qui les applique dans
+         * son propre fil et publie des instantanés pour l'affichage.
+         */
+        this(new MoteurModele(modele));
+    }
+
+    public CVue(MoteurModele moteur) {
+        this(moteur, new VueCommandes(moteur));
+    }
+
+    /**
+     * Construction d'une vue dont la zone de commande est fournie : par
+     * exemple [VueRelecture], pour rejouer une partie enregistrée.
+     */
+    public CVue(MoteurModele moteur, JPanel commandes) {
+        /** Définition de la fenêtre principale. */
+        frame = new JFrame();
+        frame.setTitle("L'Île interdite.");
+        /**
+         * On précise un mode pour disposer les différents éléments à
+         * l'intérieur de la fenêtre. Quelques possibilités sont :
+         *  - BorderLayout (défaut pour la classe JFrame) : chaque élément est
+         *    disposé au centre ou le long d'un bord.
+         *  - FlowLayout (défaut pour un JPanel) : les éléments sont disposés
+         *    l'un à la suite de l'autre, dans l'ordre de leur ajout, les lignes
+         *    se formant de gauche à droite et de haut en bas. Un élément peut
+         *    passer à la ligne lorsque l'on redimensionne la fenêtre.
+         *  - GridLayout : les éléments sont disposés l'un à la suite de
+         *    l'autre sur une grille avec un nombre de lignes et un nombre de
+         *    colonnes définis par le programmeur, dont toutes les cases ont la
+         *    même dimension. Cette dimension est calculée en fonction du
+         *    nombre de cases à placer et de la dimension du contenant.
+         */
+        frame.setLayout(new FlowLayout());
+
+        /** Définition des deux vues et ajout à la fenêtre. */
+        grille = new VueGrille(moteur);
+        /**
+         * La grille est placée dans un [JScrollPane] : seule la partie
+         * visible est dessinée, ce qui permet d'afficher de très grandes
+         * cartes. La fenêtre est limitée à une taille raisonnable.
+         */
+        JScrollPane defilement = new JScrollPane(grille);
+        Dimension dim = grille.getPreferredSize();
+        defilement.getViewport().setPreferredSize(new Dimension(
+                Math.min(dim.width, VueGrille.VUE_MAX), Math.min(dim.height, VueGrille.VUE_MAX)));
+        defilement.setWheelScrollingEnabled(true);
+        frame.add(defilement);
+        this.commandes = commandes;
+        frame.add(commandes);
+        /** Case à cocher du calque des risques d'inondation (voir [CarteRisques]). */
+        JCheckBox risques = new JCheckBox("Risques à " + CarteRisques.HORIZON + " tours");
+        risques.addActionListener(e -> grille.setRisquesVisibles(risques.isSelected()));
+        frame.add(risques);
+        /**
+         * Remarque : on peut passer à la méthode [add] des paramètres
+         * supplémentaires indiquant où placer l'élément. Par exemple, si on
+         * avait conservé la disposition par défaut [BorderLayout], on aurait
+         * pu écrire le code suivant pour placer la grille à gauche et les
+         * commandes à droite.
+         *     frame.add(grille, BorderLayout.WEST);
+         *     frame.add(commandes, BorderLayout.EAST);
+         */
+
+        /**
+         * Fin de la plomberie :
+         *  - Ajustement de la taille de la fenêtre en fonction du contenu.
+         *  - Indiquer qu'on quitte l'application si la fenêtre est fermée.
+         *  - Préciser que la fenêtre doit bien apparaître à l'écran.
+         */
+        frame.pack();
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.setVisible(true);
+    }
+}
+
+
+/**
+ * Une classe pour représenter la zone d'affichage des cellules.
+ *
+ * JPanel est une classe d'éléments graphiques, pouvant comme JFrame contenir
+ * d'autres éléments graphiques.
+ *
+ * Cette vue va être un observateur du modèle et sera mise à jour à chaque
+ * nouvelle génération des cellules.
+ */
+class VueGrille extends JPanel implements Observer {
+    /** On maintient une référence vers le modèle. */
+    private CModele modele;
+    /**
+     * Si la vue est branchée sur un [MoteurModele], on lit ses instantanés
+     * plutôt que le modèle lui-même, qui évolue dans un autre fil.
+     */
+    private MoteurModele moteur;
+    /** Définition d'une taille (en pixels) pour l'affichage des cellules. */
+    private final static int TAILLE = 96;
+    /** Bornes du zoom, en pixels par cellule. */
+    private final static int TAILLE_MIN = 1, TAILLE_MAX = 96;
+    /** Côté maximal de la zone visible à l'ouverture de la fenêtre. */
+    final static int VUE_MAX = 768;
+    /** Taille courante des cellules, modifiée par le zoom. */
+    private int taille = TAILLE;
+    /** Dessin des cases à la taille [taille], depuis l'atlas des tuiles ; remplacé après un zoom. */
+    private RenduGrille rendu;
+    /**
+     * Les cases visibles, déjà dessinées, dans une image que Java2D peut
+     * garder en mémoire vidéo : un affichage n'y redessine que les cases
+     * signalées par le modèle ([aRedessiner]), puis la copie à l'écran
+     * d'un seul coup. [zoneTampon] est la zone du composant qu'elle couvre.
+     */
+    private VolatileImage tampon;
+    private final Rectangle zoneTampon = new Rectangle();
+    /** Zone du tampon à redessiner au prochain affichage ; tout le tampon si [toutRedessiner]. */
+    private final Rectangle aRedessiner = new Rectangle();
+    private boolean toutRedessiner = true;
+    /** Durée du dernier affichage, en nanosecondes. */
+    private volatile long dureeAffichage;
+    /**
+     * Calque des risques d'inondation, créé à la première demande et
+     * calculé en arrière-plan ; il n'est tenu à jour que s'il est visible.
+     */
+    private CarteRisques risques;
+    private boolean risquesVisibles;
+
+    /**
+     * Constructeur. Le regroupement des notifications par passage du fil
+     * d'événements Swing est laissé au choix de l'appelant
+     * ([Observable.setRegroupementEDT]).
+     */
+    public VueGrille(CModele modele) {
+        this.modele = modele;
+        /** On enregistre la vue [this] en tant qu'observateur de [modele]. */
+        modele.addObserver(this);
+        initialise();
+    }
+
+    /** Constructeur pour une vue alimentée par les instantanés d'un moteur. */
+    public VueGrille(MoteurModele moteur) {
+        this.modele = moteur.getModele();
+        this.moteur = moteur;
+        moteur.addObserver(this);
+        initialise();
+    }
+
+    private void initialise() {
+        /**
+         * Sur une grande carte, on part d'un zoom qui fait tenir l'île
+         * entière dans la fenêtre, sans descendre sous [TAILLE_MIN].
+         */
+        int cote = Math.max(modele.getLargeur(), modele.getHauteur());
+        this.taille = Math.max(TAILLE_MIN, Math.min(TAILLE, VUE_MAX / cote));
+        /** L'atlas des tuiles est construit ici, une fois, et non au premier affichage. */
+        this.rendu = new RenduGrille(taille);
+        dimensionne();
+        /**
+         * Molette avec Ctrl : zoom centré sur le pointeur. Sans Ctrl, on
+         * rend l'événement au [JScrollPane] pour qu'il fasse défiler la vue.
+         */
+        this.addMouseWheelListener(this::molette);
+        /**
+         * Déplacement par clic, avec le moteur seulement : le survol d'une
+         * case montre le chemin que suivrait le joueur, le clic l'y envoie.
+         */
+        if (moteur != null) {
+            MouseAdapter souris = new MouseAdapter() {
+                private int survolX, survolY;
+
+                public void mouseMoved(MouseEvent e) {
+                    int x = e.getX()/taille + 1, y = e.getY()/taille + 1;
+                    if (x == survolX && y == survolY) return;
+                    survolX = x;
+                    survolY = y;
+                    moteur.apercu(new Trajet(x, y));
+                }
+
+                public void mouseExited(MouseEvent e) {
+                    survolX = survolY = 0;
+                    moteur.apercu(null);
+                }
+
+                public void mouseClicked(MouseEvent e) {
+                    moteur.soumet(new Trajet(e.getX()/taille + 1, e.getY()/taille + 1));
+                }
+            };
+            this.addMouseListener(souris);
+            this.addMouseMotionListener(souris);
+        }
+    }
+
+    /**
+     * Définition et application de la taille de cette zone de l'interface,
+     * calculée en fonction du nombre de cellules et de la taille d'affichage.
+     */
+    private void dimensionne() {
+        Dimension dim = new Dimension(taille*modele.getLargeur(),
+                taille*modele.getHauteur());
+        this.setPreferredSize(dim);
+        this.revalidate();
+    }
+
+    private void molette(MouseWheelEvent e) {
+        JScrollPane defilement = (JScrollPane) SwingUtilities.getAncestorOfClass(JScrollPane.class, this);
+        if ((e.getModifiersEx() & InputEvent.CTRL_DOWN_MASK) == 0) {
+            if (defilement != null) {
+                defilement.dispatchEvent(SwingUtilities.convertMouseEvent(this, e, defilement));
+            }
+            return;
+        }
+        int nouvelle = e.getWheelRotation() < 0 ? taille * 2 : taille / 2;
+        nouvelle = Math.max(TAILLE_MIN, Math.min(TAILLE_MAX, nouvelle));
+        if (nouvelle == taille) return;
+        /** Le point sous le pointeur doit rester sous le pointeur. */
+        Point souris = e.getPoint();
+        Rectangle visible = getVisibleRect();
+        double facteur = (double) nouvelle / taille;
+        taille = nouvelle;
+        rendu = new RenduGrille(taille);
+        toutRedessiner = true;
+        dimensionne();
+        if (defilement != null) {
+            JViewport vue = defilement.getViewport();
+            vue.validate();
+            int vx = (int) (souris.x * facteur) - (souris.x - visible.x);
+            int vy = (int) (souris.y * facteur) - (souris.y - visible.y);
+            Dimension dim = getPreferredSize();
+            vx = Math.max(0, Math.min(vx, dim.width - visible.width));
+            vy = Math.max(0, Math.min(vy, dim.height - visible.height));
+            vue.setViewPosition(new Point(vx, vy));
+        }
+        repaint();
+    }
+
+    /**
+     * L'interface [Observer] demande de fournir une méthode [update], qui
+     * sera appelée lorsque la vue sera notifiée d'un changement dans le
+     * modèle. Ici on se content de réafficher toute la grille avec la méthode
+     * prédéfinie [repaint].
+     */
+    public void update() {
+        if (risquesVisibles) actualiseRisques(null);
+        redessineTout();
+    }
+
+    /** Redessine toutes les cases, et pas seulement les cases signalées. */
+    private void redessineTout() {
+        toutRedessiner = true;
+        repaint();
+    }
+
+    /**
+     * Lorsque le modèle précise ce qui a changé, on ne redessine que les
+     * rectangles des cases modifiées. Swing regroupe les demandes reçues
+     * avant le prochain affichage.
+     */
+    public void update(Changements c) {
+        if (risquesVisibles) actualiseRisques(c);
+        if (c.contient(Changements.TOUT)) {
+            redessineTout();
+            return;
+        }
+        for (int k = 0; k < c.nombreTuiles(); k++) {
+            Rectangle r = new Rectangle((c.tuileX(k)-1)*taille, (c.tuileY(k)-1)*taille, taille, taille);
+            if (aRedessiner.isEmpty()) aRedessiner.setBounds(r);
+            else aRedessiner.add(r);
+            repaint(r);
+        }
+    }
+
+    /**
+     * Transmet les changements [c] à la carte des risques, ou demande un
+     * calcul complet si [c] est nul, avec le plateau affiché, figé, et sa
+     * règle d'inondation : ceux du dernier instantané du moteur, ou ceux
+     * du modèle, qui n'est modifié que dans ce fil.
+     */
+    private void actualiseRisques(Changements c) {
+        Plateau p;
+        Inondeur regle;
+        if (moteur == null) {
+            p = modele.getPlateau().fige();
+            regle = modele.getInondeur();
+        } else {
+            Instantane i = moteur.getInstantane();
+            p = i.getPlateau();
+            regle = i.getInondeur();
+        }
+        if (c == null) risques.recalcule(p, regle);
+        else risques.actualise(p, regle, c);
+    }
+
+    /** Affiche ou masque le calque des risques ; l'afficher le recalcule en entier. */
+    public void setRisquesVisibles(boolean visibles) {
+        if (visibles == risquesVisibles) return;
+        risquesVisibles = visibles;
+        if (visibles) {
+            if (risques == null) risques = new CarteRisques(modele, CarteRisques.HORIZON, this::redessineTout);
+            actualiseRisques(null);
+        }
+        redessineTout();
+    }
+
+    /** Durée du dernier appel à [paintComponent], en nanosecondes. */
+    public long getDureeAffichage() { return dureeAffichage; }
+
+    /**
+     * Les éléments graphiques comme [JPanel] possèdent une méthode
+     * [paintComponent] qui définit l'action à accomplir pour afficher cet
+     * élément. On la redéfinit ici pour lui confier l'affichage des cellules.
+     *
+     * Les cellules sont dessinées dans [tampon], et seulement celles que le
+     * modèle a signalées ; l'affichage copie ensuite le tampon à l'écran,
+     * puis y ajoute l'aperçu. Quand Swing redemande une zone sans que rien
+     * n'ait changé (fenêtre découverte...), seule la copie a lieu. Le coût
+     * d'un affichage dépend de ce qui est à l'écran, pas de la taille de la
+     * carte ; rien ne tourne quand le jeu est au repos.
+     *
+     * La classe [Graphics] regroupe les éléments de style sur le dessin,
+     * comme la couleur actuelle.
+     */
+    public void paintComponent(Graphics g) {
+        EvenementAffichage mesure = Mesures.actives() ? new EvenementAffichage() : null;
+        if (mesure != null) mesure.begin();
+        long debut = System.nanoTime();
+        Plateau p = moteur == null ? modele.getPlateau() : moteur.getInstantane().getPlateau();
+        /** Pendant un aperçu, on dessine l'état prévu, et on encadre ce qui change. */
+        Instantane apercu = moteur == null ? null : moteur.getApercu();
+        Plateau actuel = p;
+        if (apercu != null) p = apercu.getPlateau();
+        IntBinaryOperator niveaux = risquesVisibles ? risques::niveau : null;
+        Rectangle visible = getVisibleRect();
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) clip = visible;
+        if (dessineTampon(p, visible, niveaux)) {
+            g.drawImage(tampon, zoneTampon.x, zoneTampon.y, null);
+        } else {
+            /** Pas de tampon hors de l'écran : on dessine directement. */
+            rendu.dessine(g, p, clip, niveaux);
+        }
+        if (apercu != null) encadreApercu(g, p, actuel, clip);
+        if (apercu != null && apercu.getChemin() != null) dessineChemin(g, apercu.getChemin());
+        dureeAffichage = System.nanoTime() - debut;
+        if (mesure != null) {
+            Mesures.D_AFFICHAGE.ajoute(dureeAffichage);
+            mesure.end();
+            if (mesure.shouldCommit()) {
+                mesure.cases = (clip.width/taille + 1) * (clip.height/taille + 1);
+                mesure.commit();
+            }
+        }
+    }
+
+    /**
+     * Met [tampon] à jour pour la zone [visible] du composant : tout, ou
+     * les cases signalées et les bandes découvertes par un défilement.
+     * Renvoie faux si le composant n'est pas affiché.
+     *
+     * Le contenu d'une [VolatileImage] peut être perdu à tout moment
+     * (changement d'écran, de mode...) : on la revalide avant de dessiner,
+     * et on recommence tant que le dessin a été perdu.
+     */
+    private boolean dessineTampon(Plateau p, Rectangle visible, IntBinaryOperator niveaux) {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (gc == null || visible.isEmpty()) return false;
+        if (tampon != null && (tampon.getWidth() != visible.width || tampon.getHeight() != visible.height)) {
+            tampon.flush();
+            tampon = null;
+        }
+        boolean perdu;
+        do {
+            int v = tampon == null ? VolatileImage.IMAGE_INCOMPATIBLE : tampon.validate(gc);
+            if (v == VolatileImage.IMAGE_INCOMPATIBLE) {
+                if (tampon != null) tampon.flush();
+                tampon = gc.createCompatibleVolatileImage(visible.width, visible.height, Transparency.OPAQUE);
+            }
+            if (v != VolatileImage.IMAGE_OK) toutRedessiner = true;
+            Graphics2D gt = tampon.createGraphics();
+            gt.translate(-visible.x, -visible.y);
+            if (toutRedessiner) {
+                rendu.dessine(gt, p, visible, niveaux);
+            } else {
+                if (!visible.getLocation().equals(zoneTampon.getLocation())) defile(gt, p, visible, niveaux);
+                Rectangle zone = aRedessiner.intersection(visible);
+                if (!zone.isEmpty()) rendu.dessine(gt, p, zone, niveaux);
+            }
+            gt.dispose();
+            zoneTampon.setBounds(visible);
+            perdu = tampon.contentsLost();
+            if (perdu) toutRedessiner = true;
+        } while (perdu);
+        toutRedessiner = false;
+        aRedessiner.setSize(0, 0);
+        return true;
+    }
+
+    /**
+     * Défilement de la vue : ce qui reste visible est décalé dans le
+     * tampon, et seules les bandes découvertes sont dessinées.
+     */
+    private void defile(Graphics2D gt, Plateau p, Rectangle visible, IntBinaryOperator niveaux) {
+        Rectangle commun = zoneTampon.intersection(visible);
+        if (commun.isEmpty()) {
+            rendu.dessine(gt, p, visible, niveaux);
+            return;
+        }
+        int dx = zoneTampon.x - visible.x, dy = zoneTampon.y - visible.y;
+        gt.copyArea(commun.x - dx, commun.y - dy, commun.width, commun.height, dx, dy);
+        int droite = commun.x + commun.width, bas = commun.y + commun.height;
+        int fin = visible.x + visible.width, finY = visible.y + visible.height;
+        if (visible.x < commun.x) rendu.dessine(gt, p, new Rectangle(visible.x, visible.y, commun.x - visible.x, visible.height), niveaux);
+        if (droite < fin) rendu.dessine(gt, p, new Rectangle(droite, visible.y, fin - droite, visible.height), niveaux);
+        if (visible.y < commun.y) rendu.dessine(gt, p, new Rectangle(visible.x, visible.y, visible.width, commun.y - visible.y), niveaux);
+        if (bas < finY) rendu.dessine(gt, p, new Rectangle(visible.x, bas, visible.width, finY - bas), niveaux);
+    }
+
+    /** Encadre en orange les cases de [clip] que l'aperçu [p] change par rapport à [actuel]. */
+    private void encadreApercu(Graphics g, Plateau p, Plateau actuel, Rectangle clip) {
+        int i0 = Math.max(1, clip.x/taille + 1);
+        int j0 = Math.max(1, clip.y/taille + 1);
+        int i1 = Math.min(modele.getLargeur(), (clip.x + clip.width - 1)/taille + 1);
+        int j1 = Math.min(modele.getHauteur(), (clip.y + clip.height - 1)/taille + 1);
+        g.setColor(Color.ORANGE);
+        for(int i=i0; i<=i1; i++) {
+            for(int j=j0; j<=j1; j++) {
+                if (AtlasTuiles.tuile(p, i, j) != AtlasTuiles.tuile(actuel, i, j)) {
+                    g.drawRect((i-1)*taille, (j-1)*taille, taille-1, taille-1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Le chemin d'un aperçu de déplacement : en orange les cases que les
+     * actions restantes permettent d'atteindre, en gris les suivantes.
+     */
+    private void dessineChemin(Graphics g, int[] chemin) {
+        int budget = moteur.getInstantane().getNumberAction();
+        int rayon = Math.max(1, taille/4);
+        for (int k = 0; k < chemin.length/2; k++) {
+            g.setColor(k < budget ? Color.ORANGE : Color.GRAY);
+            int px = (chemin[2*k] - 1)*taille + taille/2, py = (chemin[2*k + 1] - 1)*taille + taille/2;
+            g.fillOval(px - rayon/2, py - rayon/2, rayon, rayon);
+        }
+    }
+}
+
+
+/**
+ * Une classe pour représenter la zone contenant le bouton.
+ *
+ * Cette zone n'aura pas à être mise à jour et ne sera donc pas un observateur.
+ * En revanche, comme la zone précédente, celle-ci est un panneau [JPanel].
+ */
+class VueCommandes extends JPanel {
+    /**
+     * Pour que le bouton puisse transmettre ses ordres, on garde une
+     * référence au modèle.
+     */
+    private MoteurModele moteur;
+    private int nAction;
+
+    /** Constructeur. */
+    public VueCommandes(MoteurModele moteur) {
+        this.moteur = moteur;
+        CModele modele = moteur.getModele();
+        this.nAction = 3;
+        /**
+         * On crée un nouveau bouton, de classe [JButton], en précisant le
+         * texte qui doit l'étiqueter.
+         * Puis on ajoute ce bouton au panneau [this].
+         */
+        JButton monte = new JButton("Monte");
+        monte.setActionCommand("Monte");
+        /**
+         * Nouveaux boutons pour le joueur
+         */
+
+        this.add(monte);
+        /**
+         * Le bouton, lorsqu'il est cliqué par l'utilisateur, produit un
+         * événement, de classe [ActionEvent].
+         *
+         * On a ici une variante du schéma observateur/observé : un objet
+         * implémentant une interface [ActionListener] va s'inscrire pour
+         * "écouter" les événements produits par le bouton, et recevoir
+         * automatiquements des notifications.
+         * D'autres variantes d'auditeurs pour des événements particuliers :
+         * [MouseListener], [KeyboardListener], [WindowListener].
+         *
+         * Cet observateur va enrichir notre schéma Modèle-Vue d'une couche
+         * intermédiaire Contrôleur, dont l'objectif est de récupérer les
+         * événements produits par la vue et de les traduire en instructions
+         * pour le modèle.
+         * Cette strate intermédiaire est potentiellement riche, et peut
+         * notamment traduire les mêmes événements de différentes façons en
+         * fonction d'un état de l'application.
+         * Ici nous avons un seul bouton réalisant une seule action, notre
+         * contrôleur sera donc particulièrement simple. Cela nécessite
+         * néanmoins la création d'une classe dédiée.
+         */
+        Controleur ctrl = new Controleur(modele);
+        /** Enregistrement du contrôleur comme auditeur du bouton. */
+        monte.addActionListener(ctrl);
+
+        /**
+         * Variante : une lambda-expression qui évite de créer une classe
+         * spécifique pour un contrôleur simplissime.
+         *
+         JButton boutonAvance = new JButton(">");
+         this.add(boutonAvance);
+         boutonAvance.addActionListener(e -> { modele.avance(); });
+         *
+         */
+        JButton droite = new JButton("Droite");
+        JButton gauche = new JButton("Gauche");
+        JButton descend = new JButton("Descendre");
+        JButton passe = new JButton("Passez au tour suivant");
+        JButton assecheS = new JButton("Assèche sur place");
+        JButton assecheH = new JButton("Assèche en haut");
+        JButton assecheB = new JButton("Assèche en bas");
+        JButton assecheD = new JButton("Assèche à droite");
+        JButton assecheG = new JButton("Assèche à gauche");
+
+        JButton recupA = new JButton("Récupère artefact");
+
+        /**
+         * Les boutons ne touchent pas au modèle : ils soumettent une
+         * commande au moteur et rendent la main immédiatement.
+         */
+        monte.addActionListener(e -> { moteur.soumet(Action.MONTE); });
+        droite.addActionListener(e -> { moteur.soumet(Action.DROITE); });
+        gauche.addActionListener(e -> { moteur.soumet(Action.GAUCHE); });
+        descend.addActionListener(e -> { moteur.soumet(Action.DESCEND); });
+        passe.addActionListener(e -> { moteur.soumet(Action.PASSE);} );
+
+        assecheS.addActionListener(e -> { moteur.soumet(Action.ASSECHE_S); });
+        assecheH.addActionListener(e -> { moteur.soumet(Action.ASSECHE_H); });
+        assecheB.addActionListener(e -> { moteur.soumet(Action.ASSECHE_B); });
+        assecheD.addActionListener(e -> { moteur.soumet(Action.ASSECHE_D); });
+        assecheG.addActionListener(e -> { moteur.soumet(Action.ASSECHE_G); });
+
+        recupA.addActionListener(e -> { moteur.soumet(Action.RECUPERE); });
+
+        /** Annulation et rétablissement : l'historique du modèle doit être actif. */
+        JButton annule = new JButton("Annuler");
+        JButton refait = new JButton("Refaire");
+        annule.addActionListener(e -> { moteur.soumet(Historique.ANNULE); });
+        refait.addActionListener(e -> { moteur.soumet(Historique.REFAIT); });
+
+        /** Au survol, la grille montre l'état qu'atteindrait le modèle. */
+        apercu(droite, Action.DROITE);
+        apercu(gauche, Action.GAUCHE);
+        apercu(descend, Action.DESCEND);
+        apercu(monte, Action.MONTE);
+        apercu(assecheS, Action.ASSECHE_S);
+        apercu(assecheH, Action.ASSECHE_H);
+        apercu(assecheB, Action.ASSECHE_B);
+        apercu(assecheD, Action.ASSECHE_D);
+        apercu(assecheG, Action.ASSECHE_G);
+        apercu(recupA, Action.RECUPERE);
+        // Pas d'aperçu pour la fin du tour ni pour l'historique : voir [MoteurModele.apercu].
+
+        this.add(droite);
+        this.add(gauche);
+        this.add(descend);
+        this.add(passe);
+        this.add(assecheS);
+        this.add(assecheH);
+        this.add(assecheB);
+        this.add(assecheD);
+        this.add(assecheG);
+        this.add(recupA);
+        this.add(annule);
+        this.add(refait);
+    }
+
+    /** Demande au moteur l'aperçu de [c] tant que la souris survole [bouton]. */
+    private void apercu(JButton bouton, Commande c) {
+        bouton.addMouseListener(new MouseAdapter() {
+            public void mouseEntered(MouseEvent e) { moteur.apercu(c); }
+
+            public void mouseExited(MouseEvent e) { moteur.apercu(null); }
+        });
+    }
+}
+
+/**
+ * Zone de commande pour rejouer pas à pas une partie enregistrée : chaque
+ * pas soumet au moteur l'action suivante de l'enregistrement.
+ */
+@SuppressWarnings("serial")
+class VueRelecture extends JPanel {
+    private final MoteurModele moteur;
+    private final PartieEnregistree partie;
+    private final JLabel etat = new JLabel();
+    /** Lecture automatique, un pas toutes les 200 ms. */
+    private final Timer minuteur;
+    private int pas;
+
+    public VueRelecture(MoteurModele moteur, PartieEnregistree partie) {
+        this.moteur = moteur;
+        this.partie = partie;
+        JButton suivant = new JButton("Pas suivant");
+        JButton lecture = new JButton("Lecture / pause");
+        minuteur = new Timer(200, e -> avance());
+        suivant.addActionListener(e -> avance());
+        lecture.addActionListener(e -> {
+            if (minuteur.isRunning()) minuteur.stop(); else minuteur.start();
+        });
+        this.add(suivant);
+        this.add(lecture);
+        this.add(etat);
+        affiche();
+    }
+
+    private void avance() {
+        if (pas >= partie.nombreActions()) {
+            minuteur.stop();
+            return;
+        }
+        moteur.soumet(partie.action(pas++));
+        affiche();
+    }
+
+    private void affiche() {
+        etat.setText("action " + pas + " / " + partie.nombreActions()
+                + (pas > 0 ? " (" + partie.action(pas - 1) + ")" : ""));
+    }
+}
+/** Fin de la vue. */
\ No newline at end of file
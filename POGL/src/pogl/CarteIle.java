@@ -0,0 +1,241 @@
+package pogl;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Une carte d'île générée (voir [GenerateurIle]), indépendante de toute
+ * partie : la forme de l'île, un bit par case, le départ du joueur,
+ * l'héliport, et un emplacement pour chaque type d'[Artefact].
+ *
+ * Une partie ne cherche qu'un artefact : [modele] la lance avec l'un des
+ * quatre emplacements pour objectif. Une carte donne donc quatre parties
+ * sur la même île, et [trie] les vérifie toutes les quatre.
+ *
+ * La case [x, y] (de 1 à [largeur], de 1 à [hauteur]) est au rang
+ * [(y - 1) * largeur + (x - 1)] de [terre].
+ */
+final class CarteIle {
+    /** Nombre de types d'artefacts, [Artefact.NONE] exclu. */
+    static final int ARTEFACTS = Artefact.values().length - 1;
+    /** Actions du premier tour : un objectif plus proche se gagne avant toute inondation. */
+    private static final int ACTIONS = 3;
+
+    /** Verdict de [trie], dans l'ordre où les épreuves sont faites. */
+    enum Tri {
+        /** Moins de cases que le départ, l'héliport et les artefacts. */
+        TROP_PETITE,
+        /** L'héliport ou un artefact est hors de l'île du départ. */
+        INJOUABLE,
+        /** Un artefact et l'héliport s'atteignent dès le premier tour. */
+        TRIVIALE,
+        /** Refusée par l'épreuve donnée à [PaquetCartes.genere] (un solveur, par exemple). */
+        INSOLUBLE,
+        RETENUE
+    }
+
+    final long graine;
+    final int largeur, hauteur;
+    final long[] terre;
+    final int departX, departY, heliX, heliY;
+    /** Emplacements des artefacts, par [Artefact.ordinal]. */
+    final int[] artX, artY;
+
+    CarteIle(long graine, int largeur, int hauteur, long[] terre, int departX, int departY,
+             int heliX, int heliY, int[] artX, int[] artY) {
+        this.graine = graine;
+        this.largeur = largeur;
+        this.hauteur = hauteur;
+        this.terre = terre;
+        this.departX = departX;
+        this.departY = departY;
+        this.heliX = heliX;
+        this.heliY = heliY;
+        this.artX = artX;
+        this.artY = artY;
+    }
+
+    /** Nombre de mots de [terre] pour une carte de cette taille. */
+    static int mots(int largeur, int hauteur) { return (int) (((long) largeur * hauteur + 63) / 64); }
+
+    boolean isTerre(int x, int y) {
+        if (x < 1 || x > largeur || y < 1 || y > hauteur) return false;
+        int i = (y - 1) * largeur + (x - 1);
+        return (terre[i >>> 6] >>> i & 1) != 0;
+    }
+
+    int surface() {
+        int n = 0;
+        for (long m : terre) n += Long.bitCount(m);
+        return n;
+    }
+
+    /**
+     * Génère la carte de graine [graine] : la forme de l'île, puis
+     * l'héliport et les artefacts, tirés sur des cases de terre distinctes
+     * du départ, au centre de la carte. Renvoie [null] si l'île a trop peu
+     * de cases pour les placer.
+     */
+    static CarteIle genere(long graine, int largeur, int hauteur) {
+        if (largeur < 4 || hauteur < 4) {
+            throw new IllegalArgumentException("une île fait au moins 4 x 4 cases");
+        }
+        Alea rand = new Alea(graine);
+        long[] terre = new long[mots(largeur, hauteur)];
+        new GenerateurIle(rand.nextLong(), largeur, hauteur).genere(terre, largeur, hauteur);
+        int surface = 0;
+        for (long m : terre) surface += Long.bitCount(m);
+        if (surface < 2 + ARTEFACTS) return null;
+
+        // Rangs des cases tirées : le départ, l'héliport, puis les artefacts.
+        int[] pris = new int[2 + ARTEFACTS];
+        pris[0] = ((hauteur + 1) / 2 - 1) * largeur + ((largeur + 1) / 2 - 1);
+        for (int k = 1; k < pris.length; k++) {
+            int i;
+            do {
+                i = nieme(terre, rand.nextInt(surface));
+            } while (contient(pris, k, i));
+            pris[k] = i;
+        }
+        int[] artX = new int[ARTEFACTS], artY = new int[ARTEFACTS];
+        for (int a = 0; a < ARTEFACTS; a++) {
+            artX[a] = pris[2 + a] % largeur + 1;
+            artY[a] = pris[2 + a] / largeur + 1;
+        }
+        return new CarteIle(graine, largeur, hauteur, terre, pris[0] % largeur + 1, pris[0] / largeur + 1,
+                pris[1] % largeur + 1, pris[1] / largeur + 1, artX, artY);
+    }
+
+    private static boolean contient(int[] t, int n, int v) {
+        for (int k = 0; k < n; k++) if (t[k] == v) return true;
+        return false;
+    }
+
+    /** Rang du bit à 1 numéro [n] (à partir de 0) de [bits]. */
+    private static int nieme(long[] bits, int n) {
+        for (int k = 0; ; k++) {
+            int c = Long.bitCount(bits[k]);
+            if (n < c) {
+                long m = bits[k];
+                for (; n > 0; n--) m &= m - 1;
+                return k * 64 + Long.numberOfTrailingZeros(m);
+            }
+            n -= c;
+        }
+    }
+
+    /**
+     * Trie la carte, des épreuves les moins chères aux plus chères : un
+     * parcours en largeur depuis le départ, arrêté dès que l'héliport et
+     * les artefacts sont atteints, vérifie qu'ils sont tous sur l'île du
+     * joueur ; puis, seulement si un artefact est à [ACTIONS] pas au plus
+     * du départ, un parcours depuis l'héliport, borné à [ACTIONS] pas, cherche
+     * une partie gagnable dès le premier tour. Les inondations de départ
+     * ne submergent rien : elles ne changent pas ces distances.
+     */
+    Tri trie(Parcours p) {
+        int depart = rang(departX, departY);
+        if ((terre[depart >>> 6] >>> depart & 1) == 0) return Tri.INJOUABLE;
+        int[] cibles = new int[1 + ARTEFACTS];
+        cibles[0] = rang(heliX, heliY);
+        for (int a = 0; a < ARTEFACTS; a++) cibles[1 + a] = rang(artX[a], artY[a]);
+        int[] depuisDepart = new int[cibles.length];
+        p.distances(this, depart, cibles, depuisDepart, Integer.MAX_VALUE);
+        int proche = Integer.MAX_VALUE;
+        for (int k = 0; k < cibles.length; k++) {
+            if (depuisDepart[k] < 0) return Tri.INJOUABLE;
+            if (k > 0) proche = Math.min(proche, depuisDepart[k]);
+        }
+        if (proche > ACTIONS) return Tri.RETENUE;
+        int[] depuisHeliport = new int[cibles.length];
+        p.distances(this, cibles[0], cibles, depuisHeliport, ACTIONS);
+        for (int k = 1; k < cibles.length; k++) {
+            if (depuisHeliport[k] >= 0 && depuisDepart[k] + depuisHeliport[k] <= ACTIONS) return Tri.TRIVIALE;
+        }
+        return Tri.RETENUE;
+    }
+
+    private int rang(int x, int y) { return (y - 1) * largeur + (x - 1); }
+
+    /** Une partie sur cette carte, pour l'artefact [objectif] (voir [CModele]). */
+    CModele modele(Artefact objectif, long graine) { return new CModele(this, objectif, graine); }
+
+    /** Octets d'une carte de cette taille dans un paquet (voir [PaquetCartes]). */
+    static int taille(int largeur, int hauteur) { return 8 + 2 * 2 * (2 + ARTEFACTS) + 8 * mots(largeur, hauteur); }
+
+    void ecrit(ByteBuffer b) {
+        b.putLong(graine).putShort((short) departX).putShort((short) departY)
+                .putShort((short) heliX).putShort((short) heliY);
+        for (int a = 0; a < ARTEFACTS; a++) b.putShort((short) artX[a]).putShort((short) artY[a]);
+        b.asLongBuffer().put(terre);
+        b.position(b.position() + 8 * terre.length);
+    }
+
+    static CarteIle lit(ByteBuffer b, int largeur, int hauteur) {
+        long graine = b.getLong();
+        int departX = b.getShort(), departY = b.getShort(), heliX = b.getShort(), heliY = b.getShort();
+        int[] artX = new int[ARTEFACTS], artY = new int[ARTEFACTS];
+        for (int a = 0; a < ARTEFACTS; a++) {
+            artX[a] = b.getShort();
+            artY[a] = b.getShort();
+        }
+        long[] terre = new long[mots(largeur, hauteur)];
+        b.asLongBuffer().get(terre);
+        b.position(b.position() + 8 * terre.length);
+        return new CarteIle(graine, largeur, hauteur, terre, departX, departY, heliX, heliY, artX, artY);
+    }
+
+    /**
+     * Parcours en largeur sur la terre d'une carte. La file et les cases
+     * vues sont gardées d'une carte à l'autre : un parcours ne se partage
+     * pas entre fils.
+     */
+    static final class Parcours {
+        private int[] file = new int[0];
+        private long[] vues = new long[0];
+
+        /**
+         * Distances, en déplacements, de la case de rang [depart] à chaque
+         * case de [cibles], dans [res] : -1 si elle n'est pas atteinte.
+         * S'arrête dès que toutes les cibles sont atteintes, ou au-delà
+         * de [limite] pas.
+         */
+        void distances(CarteIle c, int depart, int[] cibles, int[] res, int limite) {
+            int cases = c.largeur * c.hauteur;
+            if (file.length < cases) file = new int[cases];
+            if (vues.length < c.terre.length) vues = new long[c.terre.length];
+            Arrays.fill(vues, 0, c.terre.length, 0);
+            Arrays.fill(res, -1);
+            int restantes = cibles.length;
+            int tete = 0, queue = 0, finNiveau, niveau = 0;
+            file[queue++] = depart;
+            vues[depart >>> 6] |= 1L << depart;
+            while (tete < queue && niveau <= limite) {
+                finNiveau = queue;
+                for (; tete < finNiveau; tete++) {
+                    int i = file[tete];
+                    for (int k = 0; k < cibles.length; k++) {
+                        if (cibles[k] == i && res[k] < 0) {
+                            res[k] = niveau;
+                            if (--restantes == 0) return;
+                        }
+                    }
+                    int x = i % c.largeur;
+                    if (x > 0) queue = visite(c, i - 1, queue);
+                    if (x < c.largeur - 1) queue = visite(c, i + 1, queue);
+                    if (i >= c.largeur) queue = visite(c, i - c.largeur, queue);
+                    if (i + c.largeur < cases) queue = visite(c, i + c.largeur, queue);
+                }
+                niveau++;
+            }
+        }
+
+        private int visite(CarteIle c, int i, int queue) {
+            long bit = 1L << i;
+            if ((c.terre[i >>> 6] & bit) == 0 || (vues[i >>> 6] & bit) != 0) return queue;
+            vues[i >>> 6] |= bit;
+            file[queue] = i;
+            return queue + 1;
+        }
+    }
+}
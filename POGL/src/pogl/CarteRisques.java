@@ -0,0 +1,223 @@
+package pogl;
+
+import java.awt.EventQueue;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Carte des risques : pour chaque case de l'île, la probabilité d'être
+ * submergée d'ici [horizon] tours, que la vue teinte en rouge (voir
+ * [VueGrille]).
+ *
+ * La probabilité d'inondation d'une case à chaque tour est donnée par la
+ * règle du modèle ([Inondeur.probabilite]). Une case passe de normale à
+ * inondée, puis à submergée, à chaque inondation : la loi de son état est
+ * calculée tour par tour, de l'état actuel jusqu'à l'horizon ([risque]).
+ * Les assèchements à venir ne sont pas pris en compte.
+ *
+ * Le calcul se fait dans un fil à part, et son résultat est publié sous
+ * forme d'un niveau de risque par case, de 0 à [NIVEAUX] - 1 ([niveau]),
+ * rangé par pages : seules les pages modifiées depuis la publication
+ * précédente sont copiées, et la mer n'en a pas. La vue a une image par
+ * état et par niveau, déjà teintée, et dessine chaque case d'un seul
+ * [drawImage] comme sans calque. Afficher les risques n'ajoute donc rien
+ * au temps d'affichage. Seules les cases signalées par le modèle sont
+ * recalculées ; tout est recalculé quand tout a changé, ou quand une
+ * submersion modifie les probabilités de la règle
+ * ([Inondeur.probabilitesVariables]). Les demandes reçues pendant un
+ * calcul sont regroupées en un seul calcul suivant.
+ */
+final class CarteRisques {
+    /** Horizon par défaut, en tours. */
+    static final int HORIZON = 3;
+    /** Nombre de niveaux de risque ; le niveau 0 n'est pas teinté. */
+    static final int NIVEAUX = 16;
+
+    private final CModele modele;
+    private final int horizon, hauteur;
+    /**
+     * Niveau de risque de chaque case, à l'indice [x * hauteur + y], par
+     * pages allouées comme celles d'un [TableauCreux] : tenu par le fil du
+     * calcul. La mer et les cases sans risque n'occupent pas de page.
+     */
+    private final byte[][] calcul;
+    /** Pages de [calcul] déjà publiées : le fil du calcul les copie avant d'y écrire. */
+    private final boolean[] publiees;
+    /**
+     * Copie des pages de [calcul] publiée à la fin de chaque calcul, lue
+     * par la vue : ni la table ni ses pages ne sont modifiées une fois
+     * publiées.
+     */
+    private volatile byte[][] niveaux;
+    private final ExecutorService executeur;
+    /** Appelé, dans le fil d'événements Swing, quand le calque a changé. */
+    private final Runnable apresCalcul;
+
+    /**
+     * Demande en attente : le plateau à lire, sa règle d'inondation, et ce
+     * qui a changé depuis le dernier calcul.
+     */
+    private final Changements enAttente = new Changements();
+    private Plateau plateauEnAttente;
+    private Inondeur regleEnAttente;
+    private boolean calculPrevu;
+    /** Plateau et règle du dernier calcul, lus seulement par le fil du calcul. */
+    private Plateau dernier;
+    private Inondeur inondeur;
+    /**
+     * Niveaux des cases normales et inondées pour la dernière probabilité
+     * vue : les règles n'en ont que quelques-unes, souvent la même d'une
+     * case à la suivante.
+     */
+    private float qConnue = -1;
+    private int niveauNormale, niveauInondee;
+
+    /**
+     * Carte des risques de [modele] ; [apresCalcul] est appelé dans le fil
+     * d'événements Swing à la fin de chaque calcul. La règle d'inondation
+     * est donnée à chaque demande, avec le plateau : en changer recalcule
+     * tout.
+     */
+    CarteRisques(CModele modele, int horizon, Runnable apresCalcul) {
+        if (horizon < 1) throw new IllegalArgumentException("horizon d'au moins un tour");
+        this.modele = modele;
+        this.horizon = horizon;
+        this.hauteur = modele.getHauteur() + 2;
+        int pages = ((modele.getLargeur() + 2) * hauteur + TableauCreux.MASQUE) >>> TableauCreux.DECALAGE;
+        this.calcul = new byte[pages][];
+        this.publiees = new boolean[pages];
+        this.niveaux = calcul.clone();
+        this.apresCalcul = apresCalcul;
+        this.executeur = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "carte-risques");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    public int getHorizon() { return horizon; }
+
+    /**
+     * Demande la mise à jour pour le plateau figé [p], où les changements
+     * [c] ont eu lieu, avec la règle [regle] ; n'attend pas le calcul.
+     * [p] et [regle] sont lus par l'appelant, dans le fil qui modifie le
+     * modèle ou dans un instantané : le calcul ne lit pas le modèle.
+     */
+    public void actualise(Plateau p, Inondeur regle, Changements c) {
+        synchronized (enAttente) {
+            enAttente.fusionne(c);
+            plateauEnAttente = p;
+            regleEnAttente = regle;
+            if (calculPrevu) return;
+            calculPrevu = true;
+        }
+        executeur.execute(this::calcule);
+    }
+
+    /** Demande un calcul complet pour le plateau figé [p] et la règle [regle]. */
+    public void recalcule(Plateau p, Inondeur regle) {
+        Changements tout = new Changements();
+        tout.tout();
+        actualise(p, regle, tout);
+    }
+
+    public void arrete() { executeur.shutdownNow(); }
+
+    private void calcule() {
+        Plateau p;
+        Inondeur regle;
+        Changements c;
+        synchronized (enAttente) {
+            p = plateauEnAttente;
+            regle = regleEnAttente;
+            c = enAttente.copie();
+            enAttente.vide();
+            plateauEnAttente = null;
+            regleEnAttente = null;
+            calculPrevu = false;
+        }
+        if (dernier == null || regle != inondeur || c.contient(Changements.TOUT) || submersion(p, c)) {
+            inondeur = regle;
+            for (int x = 1; x <= modele.getLargeur(); x++) {
+                for (int y = 1; y <= modele.getHauteur(); y++) colore(p, x, y);
+            }
+        } else {
+            for (int k = 0; k < c.nombreTuiles(); k++) colore(p, c.tuileX(k), c.tuileY(k));
+        }
+        dernier = p;
+        niveaux = calcul.clone();
+        Arrays.fill(publiees, true);
+        EventQueue.invokeLater(apresCalcul);
+    }
+
+    /** Une case de [c] vient-elle d'être submergée, avec une règle qui en dépend ? */
+    private boolean submersion(Plateau p, Changements c) {
+        if (!inondeur.probabilitesVariables()) return false;
+        for (int k = 0; k < c.nombreTuiles(); k++) {
+            int x = c.tuileX(k), y = c.tuileY(k);
+            if (p.isSubmergee(x, y) && !dernier.isSubmergee(x, y)) return true;
+        }
+        return false;
+    }
+
+    /** Niveau de risque de la case [x, y]. */
+    private void colore(Plateau p, int x, int y) {
+        if (x < 1 || y < 1 || x > modele.getLargeur() || y > modele.getHauteur()) return;
+        int niveau = 0;
+        // Les cases déjà submergées se voient sans calque.
+        if (!p.isMer(x, y) && !p.isSubmergee(x, y)) {
+            float qc = inondeur.probabilite(modele, p, x, y);
+            if (qc != qConnue) {
+                qConnue = qc;
+                niveauNormale = Math.round((NIVEAUX - 1) * risque(1, qc, horizon));
+                niveauInondee = Math.round((NIVEAUX - 1) * risque(0, qc, horizon));
+            }
+            niveau = p.getEtat(x, y) > 0 ? niveauNormale : niveauInondee;
+        }
+        ecrit(x * hauteur + y, niveau);
+    }
+
+    private void ecrit(int i, int niveau) {
+        int k = i >>> TableauCreux.DECALAGE;
+        byte[] page = calcul[k];
+        if (page == null) {
+            if (niveau == 0) return;
+            page = calcul[k] = new byte[TableauCreux.PAGE];
+        } else if (page[i & TableauCreux.MASQUE] == niveau) {
+            return;
+        } else if (publiees[k]) {
+            page = calcul[k] = page.clone();
+        }
+        publiees[k] = false;
+        page[i & TableauCreux.MASQUE] = (byte) niveau;
+    }
+
+    /**
+     * Niveau de risque de la case [x, y] au dernier calcul, de 0 à
+     * [NIVEAUX] - 1 ; 0 tant que rien n'est calculé.
+     */
+    int niveau(int x, int y) {
+        int i = x * hauteur + y;
+        byte[] page = niveaux[i >>> TableauCreux.DECALAGE];
+        return page == null ? 0 : page[i & TableauCreux.MASQUE];
+    }
+
+    /**
+     * Probabilité qu'une case dans l'état [etat] (1 normale, 0 inondée,
+     * -1 submergée) soit submergée dans [tours] tours, si elle est inondée
+     * avec la probabilité [q] à chaque tour : on fait avancer la loi de
+     * son état d'un tour à la fois.
+     */
+    static float risque(int etat, float q, int tours) {
+        if (etat < 0) return 1;
+        float normale = etat > 0 ? 1 : 0, inondee = 1 - normale, submergee = 0;
+        for (int t = 0; t < tours; t++) {
+            submergee += q * inondee;
+            inondee = inondee * (1 - q) + q * normale;
+            normale *= 1 - q;
+        }
+        return submergee;
+    }
+}
@@ -0,0 +1,182 @@
+package pogl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Champ des distances depuis le joueur : pour chaque case, le nombre de
+ * déplacements du plus court chemin qui y mène par la terre praticable
+ * (ni mer, ni submergée), calculé par un parcours en largeur.
+ *
+ * Le champ sert au déplacement par clic (voir [Trajet]) : le chemin vers
+ * une case se lit en descendant les distances depuis cette case, sans
+ * nouveau parcours. Il est gardé tant que le joueur ne bouge pas.
+ *
+ * Inonder ou assécher une case ne change pas les chemins : seule une
+ * submersion retire une case. Le champ est alors réparé sur place
+ * ([submerge]) : on retire les cases qui n'ont plus de prédécesseur à la
+ * distance inférieure, de proche en proche, puis on leur recalcule une
+ * distance depuis les cases restées en place. Seules les cases dont la
+ * distance change sont visitées.
+ */
+final class ChampDistances {
+    static final int INFINI = Integer.MAX_VALUE;
+    private static final int[] DX = { 0, 0, 1, -1 }, DY = { -1, 1, 0, 0 };
+    /** Le déplacement qui fait passer de la case voisine d'indice [d] à la case elle-même. */
+    private static final Action[] VERS = { Action.DESCEND, Action.MONTE, Action.GAUCHE, Action.DROITE };
+
+    private final int largeur, hauteur;
+    private final int x, y;
+    /** Distance de chaque case, [INFINI] hors d'atteinte (voir [TableauCreux]). */
+    private final TableauCreux distance;
+    /** File des parcours, réutilisée. */
+    private int[] file = new int[64];
+
+    /** Parcours en largeur complet depuis [x, y]. */
+    ChampDistances(Plateau p, int x, int y) {
+        this.largeur = p.getLargeur();
+        this.hauteur = p.getHauteur();
+        this.x = x;
+        this.y = y;
+        this.distance = new TableauCreux(largeur * hauteur, INFINI);
+        if (!praticable(p, x, y)) return;
+        distance.set(x * hauteur + y, 0);
+        file[0] = x * hauteur + y;
+        int t = 0, q = 1;
+        while (t < q) {
+            int j = file[t++];
+            int cx = j / hauteur, cy = j % hauteur;
+            for (int d = 0; d < 4; d++) {
+                int nx = cx + DX[d], ny = cy + DY[d];
+                if (!dans(nx, ny)) continue;
+                int k = nx * hauteur + ny;
+                if (distance.get(k) != INFINI || !praticable(p, nx, ny)) continue;
+                distance.set(k, distance.get(j) + 1);
+                q = ajoute(q, k);
+            }
+        }
+    }
+
+    private static boolean praticable(Plateau p, int x, int y) {
+        return !p.isMer(x, y) && !p.isSubmergee(x, y);
+    }
+
+    private boolean dans(int x, int y) { return x >= 0 && y >= 0 && x < largeur && y < hauteur; }
+
+    private int ajoute(int q, int k) {
+        if (q == file.length) file = Arrays.copyOf(file, 2 * q);
+        file[q] = k;
+        return q + 1;
+    }
+
+    public int getX() { return x; }
+
+    public int getY() { return y; }
+
+    /** Nombre de déplacements jusqu'à [x, y], ou [INFINI]. */
+    public int distance(int x, int y) {
+        return dans(x, y) ? distance.get(x * hauteur + y) : INFINI;
+    }
+
+    /**
+     * Les déplacements d'un plus court chemin vers [cx, cy] : liste vide
+     * si la case est inaccessible ou si c'est celle du joueur.
+     */
+    public List<Action> chemin(int cx, int cy) {
+        int dist = distance(cx, cy);
+        if (dist == INFINI) return Collections.emptyList();
+        List<Action> chemin = new ArrayList<>(dist);
+        while (dist > 0) {
+            for (int d = 0; d < 4; d++) {
+                int nx = cx + DX[d], ny = cy + DY[d];
+                if (distance(nx, ny) == dist - 1) {
+                    chemin.add(VERS[d]);
+                    cx = nx;
+                    cy = ny;
+                    break;
+                }
+            }
+            dist--;
+        }
+        Collections.reverse(chemin);
+        return chemin;
+    }
+
+    /** Réparation du champ après la submersion de [sx, sy] ; [p] est déjà à jour. */
+    void submerge(Plateau p, int sx, int sy) {
+        int s = sx * hauteur + sy, ds = distance.get(s);
+        if (ds == INFINI) return;
+        if (ds == 0) {
+            // Le joueur se noie : plus rien n'est accessible.
+            distance.efface();
+            return;
+        }
+        distance.set(s, INFINI);
+        /**
+         * Première phase : les orphelins, qui n'ont plus de voisin à la
+         * distance juste inférieure. La file est rangée par distance
+         * croissante, donc les prédécesseurs d'une case sont tous jugés
+         * avant elle.
+         */
+        int[] anciennes = new int[16];
+        int q = 0;
+        for (int d = 0; d < 4; d++) {
+            int k = voisin(s, d);
+            if (k >= 0 && distance.get(k) == ds + 1) q = ajoute(q, k);
+        }
+        int orphelins = 0;
+        for (int t = 0; t < q; t++) {
+            int j = file[t], dj = distance.get(j);
+            if (dj == INFINI || aUnPredecesseur(j, dj)) continue;
+            distance.set(j, INFINI);
+            if (orphelins == anciennes.length) anciennes = Arrays.copyOf(anciennes, 2 * orphelins);
+            anciennes[orphelins++] = j;
+            for (int d = 0; d < 4; d++) {
+                int k = voisin(j, d);
+                if (k >= 0 && distance.get(k) == dj + 1) q = ajoute(q, k);
+            }
+        }
+        /**
+         * Seconde phase : les orphelins reprennent une distance depuis
+         * leurs voisins restés en place, par ordre de distance croissante.
+         */
+        PriorityQueue<Long> tas = new PriorityQueue<>();
+        for (int o = 0; o < orphelins; o++) {
+            int j = anciennes[o], best = INFINI;
+            for (int d = 0; d < 4; d++) {
+                int k = voisin(j, d);
+                if (k >= 0 && distance.get(k) != INFINI) best = Math.min(best, distance.get(k) + 1);
+            }
+            if (best != INFINI) tas.add((long) best << 32 | j);
+        }
+        while (!tas.isEmpty()) {
+            long e = tas.poll();
+            int j = (int) e, dj = (int) (e >>> 32);
+            if (distance.get(j) <= dj) continue;
+            distance.set(j, dj);
+            for (int d = 0; d < 4; d++) {
+                int k = voisin(j, d);
+                if (k < 0 || distance.get(k) <= dj + 1) continue;
+                if (!praticable(p, k / hauteur, k % hauteur)) continue;
+                tas.add((long) (dj + 1) << 32 | k);
+            }
+        }
+    }
+
+    /** Indice du voisin [d] de la case [j], ou -1 hors du plateau. */
+    private int voisin(int j, int d) {
+        int nx = j / hauteur + DX[d], ny = j % hauteur + DY[d];
+        return dans(nx, ny) ? nx * hauteur + ny : -1;
+    }
+
+    private boolean aUnPredecesseur(int j, int dj) {
+        for (int d = 0; d < 4; d++) {
+            int k = voisin(j, d);
+            if (k >= 0 && distance.get(k) == dj - 1) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,77 @@
+package pogl;
+
+/**
+ * Description des changements survenus dans le modèle depuis la dernière
+ * notification.
+ *
+ * Un objet [Changements] regroupe toutes les modifications faites par une
+ * opération du modèle (ou par plusieurs, voir [Observable.debutLot]) :
+ *  - la liste des cases modifiées ;
+ *  - des indicateurs pour le déplacement du joueur, le nombre d'actions
+ *    restantes, le passage au tour suivant, ou un changement global.
+ * Les observateurs peuvent ainsi ne traiter que ce qui a réellement changé.
+ *
+ * L'objet est réutilisé d'une notification à l'autre : un observateur qui
+ * veut le conserver doit en faire une [copie()].
+ */
+class Changements {
+    /** Indicateurs de changement. */
+    public static final int TUILE = 1, JOUEUR = 2, ACTIONS = 4, TOUR = 8, TOUT = 16;
+
+    private int indicateurs;
+    /** Coordonnées des cases modifiées, dans l'ordre des modifications. */
+    private int[] xs = new int[16], ys = new int[16];
+    private int nombre;
+
+    /** Une case a changé. Les doublons ne sont pas filtrés. */
+    public void tuile(int x, int y) {
+        if (nombre == xs.length) {
+            xs = java.util.Arrays.copyOf(xs, nombre * 2);
+            ys = java.util.Arrays.copyOf(ys, nombre * 2);
+        }
+        xs[nombre] = x;
+        ys[nombre] = y;
+        nombre++;
+        indicateurs |= TUILE;
+    }
+
+    public void joueur() { indicateurs |= JOUEUR; }
+
+    public void actions() { indicateurs |= ACTIONS; }
+
+    public void tour() { indicateurs |= TOUR; }
+
+    /** Tout le modèle est à reconsidérer (par exemple après [init]). */
+    public void tout() { indicateurs |= TOUT; }
+
+    public boolean isVide() { return indicateurs == 0; }
+
+    /** Teste un ou plusieurs indicateurs, par exemple [contient(JOUEUR | TOUR)]. */
+    public boolean contient(int indicateur) { return (indicateurs & indicateur) != 0; }
+
+    public int getIndicateurs() { return indicateurs; }
+
+    public int nombreTuiles() { return nombre; }
+
+    public int tuileX(int k) { return xs[k]; }
+
+    public int tuileY(int k) { return ys[k]; }
+
+    /** Ajoute à [this] les changements de [autre]. */
+    public void fusionne(Changements autre) {
+        for (int k = 0; k < autre.nombre; k++) tuile(autre.xs[k], autre.ys[k]);
+        indicateurs |= autre.indicateurs;
+    }
+
+    public Changements copie() {
+        Changements c = new Changements();
+        c.fusionne(this);
+        return c;
+    }
+
+    /** Remise à zéro, sans libérer les tableaux. */
+    public void vide() {
+        indicateurs = 0;
+        nombre = 0;
+    }
+}
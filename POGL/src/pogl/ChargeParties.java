@@ -0,0 +1,134 @@
+package pogl;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Générateur de charge pour [ServeurParties] : [clients] clients
+ * simultanés, chacun dans son fil, enchaînent des parties et y jouent
+ * des commandes tirées au hasard, une à la fois, en mesurant le temps
+ * d'aller-retour de chacune.
+ *
+ * Chaque client rejoue aussi ses commandes sur un modèle à lui, construit
+ * avec la même graine : l'état renvoyé par le serveur doit être le même
+ * octet pour octet. Un écart signale des sessions qui ne seraient pas
+ * isolées, ou un protocole mal suivi.
+ */
+class ChargeParties {
+    /** Une partie est abandonnée après ce nombre de tours. */
+    private static final int TOURS_MAX = 50;
+
+    private final SocketAddress adresse;
+    private final int clients, commandes, largeur, hauteur;
+    private final long graine;
+
+    /**
+     * Charge de [clients] clients jouant [commandes] commandes chacun, sur
+     * la carte classique ([largeur] nulle) ou une île générée.
+     */
+    ChargeParties(SocketAddress adresse, int clients, int commandes, long graine, int largeur, int hauteur) {
+        this.adresse = adresse;
+        this.clients = clients;
+        this.commandes = commandes;
+        this.graine = graine;
+        this.largeur = largeur;
+        this.hauteur = hauteur;
+    }
+
+    /** Lance les clients et attend qu'ils aient tous fini. */
+    public Resultat lance() throws InterruptedException {
+        List<Thread> fils = new ArrayList<>(clients);
+        Resultat total = new Resultat();
+        long debut = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            int indice = i;
+            fils.add(Fils.demarre("client-" + i, () -> {
+                Resultat r = new Resultat();
+                try {
+                    joue(indice, r);
+                } catch (IOException e) {
+                    r.erreurs++;
+                }
+                synchronized (total) {
+                    total.fusionne(r);
+                }
+            }));
+        }
+        for (Thread t : fils) t.join();
+        total.secondes = (System.nanoTime() - debut) / 1e9;
+        return total;
+    }
+
+    /** Les parties du client [indice], jusqu'à épuiser ses commandes. */
+    private void joue(int indice, Resultat r) throws IOException {
+        Alea rand = new Alea(Simulateur.graine(~graine, indice));
+        ByteBuffer commande = ByteBuffer.allocate(1);
+        ByteBuffer recu = ByteBuffer.allocate(Protocole.ETAT), attendu = ByteBuffer.allocate(Protocole.ETAT);
+        int jouees = 0;
+        for (long partie = indice; jouees < commandes; partie += clients) {
+            long g = Simulateur.graine(graine, partie);
+            try (SocketChannel c = SocketChannel.open(adresse)) {
+                Protocole.ecritTout(c, Protocole.ouverture(g, largeur, hauteur));
+                recu.clear();
+                Protocole.litTout(c, recu);
+                if ((recu.get(0) & Protocole.REFUSEE) != 0) {
+                    r.erreurs++;
+                    return;
+                }
+                CModele miroir = largeur == 0 ? new CModele(g) : new CModele(largeur, hauteur, g);
+                miroir.setTrace(false);
+                miroir.setHistorique(true);
+                r.sessions++;
+                while (jouees < commandes && miroir.getTour() < TOURS_MAX
+                        && !miroir.estGagnee() && !miroir.estPerdue()) {
+                    // Une annulation de temps en temps, pour l'historique.
+                    Commande a = rand.nextInt(16) == 0 ? Historique.ANNULE
+                            : Action.TOUTES[rand.nextInt(Action.TOUTES.length)];
+                    commande.clear();
+                    commande.put((byte) a.code()).flip();
+                    recu.clear();
+                    long debut = System.nanoTime();
+                    Protocole.ecritTout(c, commande);
+                    Protocole.litTout(c, recu);
+                    r.latences.ajoute(System.nanoTime() - debut);
+                    jouees++;
+                    r.commandes++;
+                    a.applique(miroir);
+                    attendu.clear();
+                    Protocole.etat(attendu, miroir, 0);
+                    if (!recu.flip().equals(attendu.flip())) r.ecarts++;
+                }
+                commande.clear();
+                commande.put(Protocole.FIN).flip();
+                Protocole.ecritTout(c, commande);
+            }
+        }
+    }
+
+    /** Résultat d'une charge ; comme [Bilan], rempli par un fil puis fusionné. */
+    static final class Resultat {
+        long sessions, commandes, ecarts, erreurs;
+        double secondes;
+        /** Temps d'aller-retour des commandes, en nanosecondes. */
+        final Histogramme latences = new Histogramme();
+
+        void fusionne(Resultat autre) {
+            sessions += autre.sessions;
+            commandes += autre.commandes;
+            ecarts += autre.ecarts;
+            erreurs += autre.erreurs;
+            latences.fusionne(autre.latences);
+        }
+
+        public String toString() {
+            return "sessions : " + sessions + ", commandes : " + commandes + ", écarts : " + ecarts
+                    + ", erreurs : " + erreurs
+                    + String.format(", %.0f commandes/s", commandes / Math.max(secondes, 1e-9))
+                    + "\nlatences aller-retour : " + latences;
+        }
+    }
+}
@@ -1,3 +1,5 @@
+package pogl;
+
 import javax.swing.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
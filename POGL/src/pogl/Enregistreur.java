@@ -0,0 +1,271 @@
+package pogl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Enregistrement binaire des parties.
+ *
+ * Une partie est entièrement déterminée par sa carte (taille, classique ou
+ * générée), sa graine, sa règle d'inondation et la suite des actions
+ * jouées : c'est tout ce qui est écrit. Les parties qui ne se refont pas
+ * ainsi (carte de paquet, règle sans code, voir [CModele.codeEnregistrement])
+ * sont refusées. Le fichier de données contient, après un en-tête de
+ * 8 octets (magique, [VERSION]), une suite de parties au format :
+ *     graine (long) | largeur (int) | hauteur (int) | classique (octet)
+ *     | règle (int, voir [Inondeur.code])
+ *     | une commande par octet (voir [Commande.code]) | FIN (0xFF)
+ * Un fichier d'index [<fichier>.idx] donne, pour chaque indice de partie,
+ * la position de la partie dans le fichier de données : on peut donc
+ * retrouver la partie n d'un lot de plusieurs millions sans tout relire.
+ *
+ * Les deux fichiers sont écrits par projection en mémoire, par fenêtres
+ * de [Projection.FENETRE] octets, et tronqués à leur taille utile par
+ * [close()].
+ */
+final class Enregistreur implements Closeable {
+    static final int MAGIQUE = 0x494C4531; // "ILE1"
+    /** Version du format, vérifiée à la relecture ; la version 2 ajoute la règle. */
+    static final int VERSION = 2;
+    static final int ENTETE = 8, ENTETE_PARTIE = 21;
+    static final byte FIN = (byte) 0xFF;
+
+    private final Projection donnees, index;
+    private long position = ENTETE;
+    /** Plus grand indice de partie écrit, plus un. */
+    private long parties;
+    /** Partie en cours d'écriture en continu, voir [debutPartie]. */
+    private boolean enCours;
+
+    Enregistreur(Path fichier) throws IOException {
+        this.donnees = new Projection(fichier);
+        this.index = new Projection(fichierIndex(fichier));
+        donnees.ecritInt(0, MAGIQUE);
+        donnees.ecritInt(4, VERSION);
+    }
+
+    static Path fichierIndex(Path fichier) {
+        return fichier.resolveSibling(fichier.getFileName() + ".idx");
+    }
+
+    /**
+     * Écriture en continu (session interactive) : l'en-tête de la partie
+     * est écrit tout de suite, puis chaque action dès qu'elle est jouée.
+     * La règle d'inondation est celle du modèle à cet instant.
+     */
+    synchronized void debutPartie(long indice, CModele modele) {
+        int regle = regle(modele);
+        if (enCours) finPartie();
+        indexe(indice);
+        entete(modele.getGraine(), modele.getLargeur(), modele.getHauteur(), modele.isClassique(), regle);
+        donnees.ecrit(position, FIN);
+        enCours = true;
+    }
+
+    /**
+     * Chaque action est suivie d'une marque de fin, écrasée par l'action
+     * suivante : si le programme s'arrête brutalement, la partie reste
+     * lisible jusqu'à sa dernière action.
+     */
+    synchronized void action(Commande a) {
+        donnees.ecrit(position++, (byte) a.code());
+        donnees.ecrit(position, FIN);
+    }
+
+    synchronized void finPartie() {
+        donnees.ecrit(position++, FIN);
+        enCours = false;
+    }
+
+    /**
+     * Écriture d'une partie complète, tamponnée par l'appelant : c'est ce
+     * que font les fils du [Simulateur], dont les parties se terminent dans
+     * le désordre. L'index reste rangé par indice de partie.
+     */
+    synchronized void ajoute(long indice, PartieEnregistree p) {
+        if (enCours) finPartie();
+        indexe(indice);
+        entete(p.getGraine(), p.getLargeur(), p.getHauteur(), p.isClassique(), p.getRegle());
+        for (int k = 0; k < p.nombreActions(); k++) {
+            donnees.ecrit(position++, p.octet(k));
+        }
+        donnees.ecrit(position++, FIN);
+    }
+
+    private void indexe(long indice) {
+        index.ecritLong(indice * 8, position);
+        parties = Math.max(parties, indice + 1);
+    }
+
+    private void entete(long graine, int largeur, int hauteur, boolean classique, int regle) {
+        donnees.ecritLong(position, graine);
+        donnees.ecritInt(position + 8, largeur);
+        donnees.ecritInt(position + 12, hauteur);
+        donnees.ecrit(position + 16, (byte) (classique ? 1 : 0));
+        donnees.ecritInt(position + 17, regle);
+        position += ENTETE_PARTIE;
+    }
+
+    /** Code de la règle de [modele] (voir [CModele.codeEnregistrement]) ; refuse une partie qui ne se rejoue pas. */
+    static int regle(CModele modele) {
+        int regle = modele.codeEnregistrement();
+        if (regle < 0) throw new IllegalArgumentException("partie impossible à rejouer depuis sa graine : non enregistrée");
+        return regle;
+    }
+
+    public synchronized void close() throws IOException {
+        if (enCours) finPartie();
+        donnees.ferme(position);
+        index.ferme(parties * 8);
+    }
+}
+
+/**
+ * Un fichier écrit par projection en mémoire, une fenêtre à la fois.
+ * Les fenêtres sont alignées : un [int] ou un [long] aligné ne chevauche
+ * jamais deux fenêtres, les autres écritures se font octet par octet.
+ */
+final class Projection {
+    static final int FENETRE = 1 << 20;
+
+    private final FileChannel canal;
+    private MappedByteBuffer fenetre;
+    private long debut = -1;
+
+    Projection(Path fichier) throws IOException {
+        this.canal = FileChannel.open(fichier, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private MappedByteBuffer fenetre(long position) {
+        long d = position & -FENETRE;
+        if (d != debut) {
+            try {
+                fenetre = canal.map(FileChannel.MapMode.READ_WRITE, d, FENETRE);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            debut = d;
+        }
+        return fenetre;
+    }
+
+    void ecrit(long position, byte b) {
+        fenetre(position).put((int) (position & (FENETRE - 1)), b);
+    }
+
+    void ecritInt(long position, int v) {
+        if ((position & 3) == 0) {
+            fenetre(position).putInt((int) (position & (FENETRE - 1)), v);
+        } else {
+            for (int k = 0; k < 4; k++) ecrit(position + k, (byte) (v >>> (24 - 8 * k)));
+        }
+    }
+
+    void ecritLong(long position, long v) {
+        if ((position & 7) == 0) {
+            fenetre(position).putLong((int) (position & (FENETRE - 1)), v);
+        } else {
+            ecritInt(position, (int) (v >>> 32));
+            ecritInt(position + 4, (int) v);
+        }
+    }
+
+    /** Force l'écriture sur disque, puis ramène le fichier à [taille] octets. */
+    void ferme(long taille) throws IOException {
+        if (fenetre != null) fenetre.force();
+        fenetre = null;
+        canal.truncate(taille);
+        canal.close();
+    }
+}
+
+/**
+ * Une partie enregistrée : sa carte, sa graine, sa règle d'inondation et
+ * ses actions. Sert aussi de tampon pendant l'enregistrement d'une partie
+ * du [Simulateur].
+ */
+final class PartieEnregistree {
+    private long graine;
+    private int largeur, hauteur;
+    private boolean classique;
+    /** Code de la règle d'inondation (voir [Inondeur.code]). */
+    private int regle;
+    private byte[] actions;
+    private int nombre;
+
+    PartieEnregistree() {
+        this.actions = new byte[64];
+    }
+
+    PartieEnregistree(long graine, int largeur, int hauteur, boolean classique, int regle, byte[] actions) {
+        this.graine = graine;
+        this.largeur = largeur;
+        this.hauteur = hauteur;
+        this.classique = classique;
+        this.regle = regle;
+        this.actions = actions;
+        this.nombre = actions.length;
+    }
+
+    /** Réutilisation du tampon pour une nouvelle partie ; refuse une partie qui ne se rejoue pas. */
+    void debut(CModele modele) {
+        this.regle = Enregistreur.regle(modele);
+        this.graine = modele.getGraine();
+        this.largeur = modele.getLargeur();
+        this.hauteur = modele.getHauteur();
+        this.classique = modele.isClassique();
+        this.nombre = 0;
+    }
+
+    void action(Commande a) {
+        if (nombre == actions.length) actions = Arrays.copyOf(actions, nombre * 2);
+        actions[nombre++] = (byte) a.code();
+    }
+
+    public long getGraine() { return graine; }
+
+    public int getLargeur() { return largeur; }
+
+    public int getHauteur() { return hauteur; }
+
+    public boolean isClassique() { return classique; }
+
+    public int getRegle() { return regle; }
+
+    public int nombreActions() { return nombre; }
+
+    byte octet(int k) { return actions[k]; }
+
+    public Commande action(int k) { return Commande.decode(actions[k]); }
+
+    /** La partie contient-elle des annulations ou des rétablissements ? */
+    public boolean utiliseHistorique() {
+        for (int k = 0; k < nombre; k++) {
+            if (actions[k] == Historique.ANNULE.code() || actions[k] == Historique.REFAIT.code()) return true;
+        }
+        return false;
+    }
+
+    /** Le modèle tel qu'il était au début de la partie, règle d'inondation comprise. */
+    public CModele modeleInitial() {
+        CModele modele = new CModele(largeur, hauteur, classique, graine);
+        modele.setInondeur(Inondeur.decode(regle));
+        return modele;
+    }
+
+    /** Rejoue toute la partie, sans interface, et renvoie le modèle final. */
+    public CModele rejoue() {
+        CModele modele = modeleInitial();
+        modele.setHistorique(utiliseHistorique());
+        for (int k = 0; k < nombre; k++) {
+            Commande.decode(actions[k]).applique(modele);
+        }
+        return modele;
+    }
+}
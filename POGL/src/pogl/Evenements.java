@@ -0,0 +1,68 @@
+package pogl;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Événements du JDK Flight Recorder émis par le jeu, quand les mesures
+ * sont actives (voir [Mesures]).
+ *
+ * Hors enregistrement, [shouldCommit] est faux et rien n'est écrit. Les
+ * piles d'appels ne sont pas enregistrées, ces événements étant fréquents.
+ *
+ * Ces sous-classes de [Event] ne se compilent pas avec [--release] : le
+ * projet est compilé avec [-source] et [-target] (voir le pom.xml).
+ */
+@Name("pogl.Action")
+@Label("Action")
+@Category({ "Île interdite", "Modèle" })
+@Description("Une action du joueur appliquée au modèle")
+@StackTrace(false)
+final class EvenementAction extends Event {
+    @Label("Action")
+    String action;
+}
+
+@Name("pogl.Tour")
+@Label("Fin de tour")
+@Category({ "Île interdite", "Modèle" })
+@Description("Fin de tour : rechargement des actions et inondations")
+@StackTrace(false)
+final class EvenementTour extends Event {
+    @Label("Tour")
+    int tour;
+
+    @Label("Cases inondées")
+    int inondations;
+
+    @Label("Cases submergées")
+    int submersions;
+}
+
+@Name("pogl.Notification")
+@Label("Notification des observateurs")
+@Category({ "Île interdite", "Vue" })
+@Description("Envoi des changements accumulés à chaque observateur")
+@StackTrace(false)
+final class EvenementNotification extends Event {
+    @Label("Observateurs")
+    int observateurs;
+
+    /** -1 : tout le plateau. */
+    @Label("Cases signalées")
+    int cases;
+}
+
+@Name("pogl.Affichage")
+@Label("Affichage de la grille")
+@Category({ "Île interdite", "Vue" })
+@Description("Un appel à VueGrille.paintComponent")
+@StackTrace(false)
+final class EvenementAffichage extends Event {
+    @Label("Cases dessinées")
+    int cases;
+}
@@ -0,0 +1,52 @@
+package pogl;
+
+import java.lang.reflect.Method;
+
+/**
+ * Création des fils d'exécution d'arrière-plan.
+ *
+ * Sur un JDK qui les propose (21 et plus), on utilise des fils virtuels :
+ * ils ne coûtent presque rien tant qu'ils attendent, ce qui permet d'en
+ * avoir des milliers. Sinon, on se rabat sur des fils démons classiques.
+ * La détection se fait une seule fois, par réflexion : le projet vise
+ * Java 17 (pom.xml et IDE), qui n'a pas [Thread.ofVirtual].
+ */
+final class Fils {
+    private static final Method OF_VIRTUAL, NAME, START;
+
+    static {
+        Method ofVirtual = null, name = null, start = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            name = builder.getMethod("name", String.class);
+            start = builder.getMethod("start", Runnable.class);
+        } catch (ReflectiveOperationException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        START = start;
+    }
+
+    private Fils() { }
+
+    /** Les fils créés par [demarre] sont-ils virtuels ? */
+    static boolean virtuels() { return OF_VIRTUAL != null; }
+
+    /** Démarre [tache] dans un nouveau fil, virtuel si possible. */
+    static Thread demarre(String nom, Runnable tache) {
+        if (OF_VIRTUAL != null) {
+            try {
+                Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), nom);
+                return (Thread) START.invoke(builder, tache);
+            } catch (ReflectiveOperationException e) {
+                // On retombe sur un fil classique.
+            }
+        }
+        Thread t = new Thread(tache, nom);
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+}
@@ -0,0 +1,105 @@
+package pogl;
+
+/**
+ * Génération procédurale d'une île de taille quelconque.
+ *
+ * La forme de l'île combine un dôme (les cases proches du centre émergent)
+ * et un bruit de valeur à plusieurs octaves, qui découpe la côte. Le bruit
+ * est calculé à partir d'un hachage des coordonnées : aucun tableau
+ * intermédiaire n'est alloué, quelle que soit la taille de la carte.
+ *
+ * Le centre de l'île émerge toujours, et l'île ne déborde jamais du
+ * rectangle [1, largeur] x [1, hauteur] : le plateau garde une bordure
+ * de mer, comme la carte classique.
+ */
+class GenerateurIle {
+    /** Poids du bruit face au dôme, et seuil d'émergence. */
+    private static final double RELIEF = 0.6, SEUIL = 0.25;
+    /** Au-delà de ce rayon (normalisé), aucune case ne peut émerger. */
+    private static final double RAYON_MAX = 1 - SEUIL + RELIEF / 2;
+
+    private final long graine;
+    private final double echelle;
+
+    public GenerateurIle(long graine, int largeur, int hauteur) {
+        this.graine = graine;
+        this.echelle = Math.max(8, Math.min(largeur, hauteur) / 8.0);
+    }
+
+    /**
+     * Fait émerger les cases de l'île dans [p]. Seules les lignes et
+     * colonnes qui peuvent contenir de la terre sont parcourues.
+     */
+    public void genere(Plateau p, int largeur, int hauteur) {
+        genere(largeur, hauteur, p::setTerre);
+    }
+
+    /**
+     * Fait émerger les cases de l'île dans [terre], un bit par case, la
+     * case [x, y] au rang [(y - 1) * largeur + (x - 1)] (voir [CarteIle]).
+     */
+    public void genere(long[] terre, int largeur, int hauteur) {
+        genere(largeur, hauteur, (x, y) -> {
+            int i = (y - 1) * largeur + (x - 1);
+            terre[i >>> 6] |= 1L << i;
+        });
+    }
+
+    /** Reçoit les cases qui émergent. */
+    private interface Emersion {
+        void emerge(int x, int y);
+    }
+
+    private void genere(int largeur, int hauteur, Emersion e) {
+        double cx = (largeur + 1) / 2.0, cy = (hauteur + 1) / 2.0;
+        double rx = largeur / 2.0, ry = hauteur / 2.0;
+        for (int y = 1; y <= hauteur; y++) {
+            double dy = (y - cy) / ry;
+            double reste = RAYON_MAX * RAYON_MAX - dy * dy;
+            if (reste <= 0) continue;
+            int demi = (int) Math.ceil(Math.sqrt(reste) * rx);
+            int x0 = Math.max(1, (int) cx - demi), x1 = Math.min(largeur, (int) cx + demi + 1);
+            for (int x = x0; x <= x1; x++) {
+                double dx = (x - cx) / rx;
+                double d = Math.sqrt(dx * dx + dy * dy);
+                if ((1 - d) + RELIEF * (bruit(x / echelle, y / echelle) - 0.5) > SEUIL) {
+                    e.emerge(x, y);
+                }
+            }
+        }
+    }
+
+    /** Bruit fractal dans [0, 1] : trois octaves de bruit de valeur. */
+    double bruit(double x, double y) {
+        double somme = 0, amplitude = 0.5, total = 0;
+        for (int octave = 0; octave < 3; octave++) {
+            somme += amplitude * valeur(x, y, octave);
+            total += amplitude;
+            x *= 2;
+            y *= 2;
+            amplitude /= 2;
+        }
+        return somme / total;
+    }
+
+    /** Bruit de valeur : interpolation lissée entre les sommets d'une grille. */
+    private double valeur(double x, double y, int octave) {
+        int x0 = (int) Math.floor(x), y0 = (int) Math.floor(y);
+        double fx = lisse(x - x0), fy = lisse(y - y0);
+        double a = sommet(x0, y0, octave), b = sommet(x0 + 1, y0, octave);
+        double c = sommet(x0, y0 + 1, octave), d = sommet(x0 + 1, y0 + 1, octave);
+        double haut = a + (b - a) * fx, bas = c + (d - c) * fx;
+        return haut + (bas - haut) * fy;
+    }
+
+    private static double lisse(double t) { return t * t * (3 - 2 * t); }
+
+    /** Valeur pseudo-aléatoire dans [0, 1[ attachée à un sommet de la grille. */
+    private double sommet(int x, int y, int octave) {
+        long z = graine ^ (x * 0x9E3779B97F4A7C15L) ^ (y * 0xC2B2AE3D27D4EB4FL) ^ ((long) octave << 58);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (z >>> 11) * 0x1.0p-53;
+    }
+}
@@ -0,0 +1,102 @@
+package pogl;
+
+import java.util.Arrays;
+
+/**
+ * Histogramme de durées (ou de toute valeur positive), pour les centiles
+ * de latence.
+ *
+ * Les valeurs sont rangées dans des seaux log-linéaires : 16 seaux par
+ * puissance de deux, soit une erreur relative d'au plus 1/16 sur les
+ * centiles, pour une taille fixe de moins de mille compteurs, quelle que
+ * soit l'étendue des valeurs.
+ *
+ * Comme [Bilan], un histogramme n'est pas partagé entre fils : chacun
+ * remplit le sien, et les histogrammes sont fusionnés ensuite.
+ */
+final class Histogramme {
+    /** Seaux par puissance de deux ; les valeurs inférieures ont chacune leur seau. */
+    private static final int SOUS_SEAUX = 16, BITS = 4;
+    static final int SEAUX = (63 - BITS + 1) * SOUS_SEAUX;
+
+    private final long[] comptes;
+    private long nombre, total, max;
+
+    Histogramme() { this.comptes = new long[SEAUX]; }
+
+    /** Histogramme des comptes [comptes] par seau, repris tels quels (voir [Mesures.Distribution]). */
+    Histogramme(long[] comptes, long total, long max) {
+        if (comptes.length != SEAUX) throw new IllegalArgumentException("seaux : " + comptes.length);
+        this.comptes = comptes;
+        for (long c : comptes) nombre += c;
+        this.total = total;
+        this.max = max;
+    }
+
+    /** Seau de la valeur [v], positive. */
+    static int seau(long v) {
+        if (v < SOUS_SEAUX) return (int) v;
+        int e = 63 - Long.numberOfLeadingZeros(v);
+        return (e - BITS + 1) * SOUS_SEAUX + (int) (v >>> (e - BITS) & (SOUS_SEAUX - 1));
+    }
+
+    /** Plus petite valeur du seau [s]. */
+    static long borne(int s) {
+        if (s < SOUS_SEAUX) return s;
+        int e = s / SOUS_SEAUX + BITS - 1;
+        return (long) (SOUS_SEAUX + s % SOUS_SEAUX) << (e - BITS);
+    }
+
+    void ajoute(long valeur) {
+        if (valeur < 0) valeur = 0;
+        comptes[seau(valeur)]++;
+        nombre++;
+        total += valeur;
+        if (valeur > max) max = valeur;
+    }
+
+    Histogramme fusionne(Histogramme autre) {
+        for (int s = 0; s < SEAUX; s++) comptes[s] += autre.comptes[s];
+        nombre += autre.nombre;
+        total += autre.total;
+        max = Math.max(max, autre.max);
+        return this;
+    }
+
+    void vide() {
+        Arrays.fill(comptes, 0);
+        nombre = total = max = 0;
+    }
+
+    public long getNombre() { return nombre; }
+
+    public long getMax() { return max; }
+
+    public double getMoyenne() { return nombre == 0 ? 0 : (double) total / nombre; }
+
+    /**
+     * La valeur sous laquelle tombe la fraction [q] des valeurs, à la
+     * précision des seaux près (borne basse du seau) ; 0 si l'histogramme
+     * est vide.
+     */
+    public long quantile(double q) {
+        if (nombre == 0) return 0;
+        long rang = (long) Math.ceil(q * nombre), cumul = 0;
+        for (int s = 0; s < SEAUX; s++) {
+            cumul += comptes[s];
+            if (cumul >= rang && cumul > 0) return Math.min(borne(s), max);
+        }
+        return max;
+    }
+
+    /** Les centiles usuels, les valeurs étant des nanosecondes, affichés en microsecondes. */
+    public String toString() {
+        return "n : " + nombre
+                + String.format(", moyenne : %.1f µs", getMoyenne() / 1e3)
+                + String.format(", p50 : %.1f µs", quantile(0.50) / 1e3)
+                + String.format(", p90 : %.1f µs", quantile(0.90) / 1e3)
+                + String.format(", p99 : %.1f µs", quantile(0.99) / 1e3)
+                + String.format(", p99.9 : %.1f µs", quantile(0.999) / 1e3)
+                + String.format(", max : %.1f µs", max / 1e3);
+    }
+}
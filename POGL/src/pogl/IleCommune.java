@@ -0,0 +1,316 @@
+package pogl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Île partagée par plusieurs joueurs, en coopération : chaque [Joueur] est
+ * mené par son propre fil, et tous agissent en même temps.
+ *
+ * Le [Plateau] du modèle n'a qu'un écrivain ; ici, chaque case tient dans
+ * un entier d'un [AtomicIntegerArray] (état, mer, héliport, artefact et
+ * numéro de l'occupant), et chaque écriture est un compareAndSet sur sa
+ * case, sans verrou. Entrer sur une case vérifie qu'elle est valide (ni
+ * mer, ni submergée, ni occupée) et la prend dans le même compareAndSet :
+ * deux joueurs ne peuvent pas entrer sur la même case, et personne
+ * n'entre sur une case que la mer vient d'engloutir. La case quittée est
+ * libérée ensuite ; entre les deux, le joueur occupe brièvement les deux.
+ *
+ * Les tours se jouent par manches : chaque joueur vivant a ses trois
+ * actions, puis passe ([passe]) ; le dernier à passer inonde l'île (même
+ * règle que [InondeurLignes]), puis ouvre la manche suivante. Un joueur
+ * qui a passé attend cette manche ([attend]), endormi : le dernier à
+ * passer le réveille, comme le joueur qui fait gagner l'équipe. Seule
+ * l'inondation submerge des cases : un joueur se noie donc toujours entre
+ * deux manches.
+ *
+ * L'équipe gagne quand le porteur de l'artefact atteint l'héliport ; elle
+ * perd si l'héliport est submergé, si l'artefact sombre avant d'avoir été
+ * ramassé, ou si tous les joueurs se sont noyés.
+ *
+ * Les opérations sur un joueur ne doivent être appelées que par le fil qui
+ * le mène.
+ */
+class IleCommune {
+    /** Bits d'une case : l'état (codé comme dans [Plateau]), puis les marques. */
+    private static final int ETAT = 0b11, SUBMERGEE = 2, MER = 1 << 2, HELIPORT = 1 << 3, ARTEFACT = 1 << 4;
+    /** L'occupant est rangé au-dessus, numéro + 1 (0 : case libre). */
+    private static final int OCCUPANT = 8;
+
+    private final CModele modele;
+    private final int hauteur;
+    private final AtomicIntegerArray cases;
+    private final Joueur[] joueurs;
+    private final int heliX, heliY, artX, artY;
+    /** Numéro du joueur qui porte l'artefact, -1 tant qu'il n'est pas ramassé. */
+    private final AtomicInteger porteur = new AtomicInteger(-1);
+    /** Numéro de la manche en cours, et joueurs qui n'ont pas encore passé. */
+    private final AtomicInteger manche = new AtomicInteger(), enAttente = new AtomicInteger();
+    /** Fil endormi par [attend] pour chaque joueur, ou [null]. */
+    private final AtomicReferenceArray<Thread> endormis;
+    /** Joueurs hors de l'eau, recomptés après chaque inondation. */
+    private final AtomicInteger vivants = new AtomicInteger();
+    /** Aléa des inondations, utilisé seulement par le dernier joueur à passer. */
+    private final Alea rand;
+
+    /**
+     * Île commune reprenant la carte de [modele] dans son état actuel, pour
+     * [nombre] joueurs : le premier part de la case de l'aventurier du
+     * modèle, les autres des cases libres les plus proches.
+     */
+    IleCommune(CModele modele, int nombre) {
+        if (nombre < 1 || nombre >= 1 << (32 - OCCUPANT)) throw new IllegalArgumentException("nombre de joueurs : " + nombre);
+        this.modele = modele;
+        Plateau p = modele.getPlateau();
+        this.hauteur = p.getHauteur();
+        this.cases = new AtomicIntegerArray(p.getLargeur() * hauteur);
+        for (int x = 0; x < p.getLargeur(); x++) {
+            for (int y = 0; y < hauteur; y++) {
+                int v = 1 - p.getEtat(x, y);
+                if (p.isMer(x, y)) v |= MER;
+                if (p.isHeliport(x, y)) v |= HELIPORT;
+                if (p.isArtefact(x, y)) v |= ARTEFACT;
+                cases.set(x * hauteur + y, v);
+            }
+        }
+        this.heliX = modele.getHeliportX();
+        this.heliY = modele.getHeliportY();
+        this.artX = modele.getArtefactX();
+        this.artY = modele.getArtefactY();
+        this.rand = new Alea(modele.getGraine() ^ 0x636F6F70L);
+        this.joueurs = new Joueur[nombre];
+        this.endormis = new AtomicReferenceArray<>(nombre);
+        place(modele.getAventurier().getPositionX(), modele.getAventurier().getPositionY());
+        enAttente.set(nombre);
+        vivants.set(nombre);
+    }
+
+    /** Place les joueurs depuis [x0, y0], en élargissant le carré de recherche. */
+    private void place(int x0, int y0) {
+        int n = 0;
+        for (int r = 0; n < joueurs.length; r++) {
+            if (r > Math.max(modele.getLargeur(), modele.getHauteur())) {
+                throw new IllegalArgumentException("pas assez de cases libres pour " + joueurs.length + " joueurs");
+            }
+            for (int x = x0 - r; x <= x0 + r && n < joueurs.length; x++) {
+                for (int y = y0 - r; y <= y0 + r && n < joueurs.length; y++) {
+                    if (Math.max(Math.abs(x - x0), Math.abs(y - y0)) != r || !dans(x, y)) continue;
+                    int i = x * hauteur + y, v = cases.get(i);
+                    if (!valide(v)) continue;
+                    cases.set(i, v | (n + 1) << OCCUPANT);
+                    joueurs[n] = new Joueur(n, x, y);
+                    n++;
+                }
+            }
+        }
+    }
+
+    private boolean dans(int x, int y) {
+        return x >= 1 && y >= 1 && x <= modele.getLargeur() && y <= modele.getHauteur();
+    }
+
+    private static boolean valide(int v) {
+        return (v & MER) == 0 && (v & ETAT) != SUBMERGEE && v >>> OCCUPANT == 0;
+    }
+
+    public int nombreJoueurs() { return joueurs.length; }
+
+    public Joueur getJoueur(int k) { return joueurs[k]; }
+
+    public int getManche() { return manche.get(); }
+
+    /** Le joueur [j] est-il encore hors de l'eau ? */
+    public boolean estVivant(Joueur j) { return (cases.get(j.x * hauteur + j.y) & ETAT) != SUBMERGEE; }
+
+    public int getEtat(int x, int y) { return 1 - (cases.get(x * hauteur + y) & ETAT); }
+
+    /** Numéro du joueur sur la case [x, y], ou -1. */
+    public int occupant(int x, int y) { return (cases.get(x * hauteur + y) >>> OCCUPANT) - 1; }
+
+    /** Numéro du porteur de l'artefact, ou -1. */
+    public int getPorteur() { return porteur.get(); }
+
+    public boolean estGagnee() {
+        int k = porteur.get();
+        return k >= 0 && occupant(heliX, heliY) == k;
+    }
+
+    public boolean estPerdue() {
+        if ((cases.get(heliX * hauteur + heliY) & ETAT) == SUBMERGEE) return true;
+        int art = cases.get(artX * hauteur + artY);
+        return (porteur.get() < 0 && (art & ETAT) == SUBMERGEE && (art & ARTEFACT) != 0) || vivants.get() == 0;
+    }
+
+    public boolean estTerminee() { return estGagnee() || estPerdue(); }
+
+    /**
+     * Le joueur [j] peut-il agir ? Il doit être vivant, et ne pas avoir
+     * passé dans la manche en cours ; un joueur qui voit une nouvelle
+     * manche retrouve ses actions.
+     */
+    private boolean peutAgir(Joueur j) {
+        int m = manche.get();
+        if (j.manche != m) {
+            j.manche = m;
+            j.actions = 3;
+            j.passe = false;
+        }
+        return !j.passe && estVivant(j);
+    }
+
+    /** Applique l'action [a] au joueur [j] ; renvoie faux si elle n'a rien changé. */
+    public boolean joue(Joueur j, Action a) {
+        switch (a) {
+            case MONTE: return deplace(j, 0, -1);
+            case DESCEND: return deplace(j, 0, 1);
+            case DROITE: return deplace(j, 1, 0);
+            case GAUCHE: return deplace(j, -1, 0);
+            case ASSECHE_S: return asseche(j, 0, 0);
+            case ASSECHE_H: return asseche(j, 0, -1);
+            case ASSECHE_B: return asseche(j, 0, 1);
+            case ASSECHE_D: return asseche(j, 1, 0);
+            case ASSECHE_G: return asseche(j, -1, 0);
+            case RECUPERE: return recupere(j);
+            default: return passe(j);
+        }
+    }
+
+    /**
+     * Déplacement de [j] d'une case : la case visée est vérifiée et prise
+     * d'un seul compareAndSet, puis la case quittée est libérée.
+     */
+    public boolean deplace(Joueur j, int dx, int dy) {
+        if (!peutAgir(j) || j.actions < 1) return false;
+        int x = j.x + dx, y = j.y + dy;
+        if (!dans(x, y)) return false;
+        int i = x * hauteur + y, v;
+        do {
+            v = cases.get(i);
+            if (!valide(v)) return false;
+        } while (!cases.compareAndSet(i, v, v | (j.numero + 1) << OCCUPANT));
+        int s = j.x * hauteur + j.y, w;
+        do {
+            w = cases.get(s);
+        } while (!cases.compareAndSet(s, w, w & ((1 << OCCUPANT) - 1)));
+        j.x = x;
+        j.y = y;
+        j.actions--;
+        if (estGagnee()) reveille();
+        return true;
+    }
+
+    /** Assèchement d'une case inondée, sur place ou voisine ; ne coûte pas d'action. */
+    public boolean asseche(Joueur j, int dx, int dy) {
+        if (!peutAgir(j)) return false;
+        int x = j.x + dx, y = j.y + dy;
+        if (!dans(x, y)) return false;
+        int i = x * hauteur + y, v;
+        do {
+            v = cases.get(i);
+            if ((v & MER) != 0 || (v & ETAT) != 1) return false;
+        } while (!cases.compareAndSet(i, v, v - 1));
+        return true;
+    }
+
+    /** Ramassage de l'artefact : un seul joueur peut retirer la marque de la case. */
+    public boolean recupere(Joueur j) {
+        if (!peutAgir(j)) return false;
+        int i = j.x * hauteur + j.y, v;
+        do {
+            v = cases.get(i);
+            if ((v & ARTEFACT) == 0 || (v & ETAT) == SUBMERGEE) return false;
+        } while (!cases.compareAndSet(i, v, v & ~ARTEFACT));
+        porteur.set(j.numero);
+        if (estGagnee()) reveille();
+        return true;
+    }
+
+    /**
+     * Fin de manche pour [j] ; le dernier joueur vivant à passer inonde
+     * l'île et ouvre la manche suivante.
+     */
+    public boolean passe(Joueur j) {
+        if (!peutAgir(j)) return false;
+        j.passe = true;
+        if (enAttente.decrementAndGet() == 0) {
+            for (int y = 1; y <= modele.getHauteur(); y++) inonde(InondeurLignes.colonne(modele, y, rand), y);
+            int n = 0;
+            for (Joueur k : joueurs) {
+                if (estVivant(k)) n++;
+            }
+            vivants.set(n);
+            enAttente.set(n);
+            manche.incrementAndGet();
+            reveille();
+        }
+        return true;
+    }
+
+    /**
+     * Attend, endormi, que [j] puisse de nouveau agir ou que la partie soit
+     * finie ; renvoie faux dans ce dernier cas, ou si [j] s'est noyé.
+     * Le fil s'inscrit dans [endormis] avant de revérifier la manche : un
+     * [reveille] qui suit le changement ne peut pas le manquer.
+     */
+    public boolean attend(Joueur j) {
+        while (!peutAgir(j)) {
+            if (!estVivant(j) || estTerminee()) return false;
+            endormis.set(j.numero, Thread.currentThread());
+            if (manche.get() == j.manche && !estTerminee()) LockSupport.park(this);
+            endormis.set(j.numero, null);
+        }
+        return !estTerminee();
+    }
+
+    /** Réveille les joueurs endormis dans [attend]. */
+    private void reveille() {
+        for (int k = 0; k < joueurs.length; k++) {
+            Thread t = endormis.get(k);
+            if (t != null) LockSupport.unpark(t);
+        }
+    }
+
+    /** Inondation d'une case, par compareAndSet sur son état. */
+    void inonde(int x, int y) {
+        int i = x * hauteur + y, v;
+        do {
+            v = cases.get(i);
+            if ((v & MER) != 0 || (v & ETAT) == SUBMERGEE) return;
+        } while (!cases.compareAndSet(i, v, v + 1));
+    }
+
+    /** Nombre de cases occupées : égal au nombre de joueurs hors déplacement. */
+    int casesOccupees() {
+        int n = 0;
+        for (int i = 0; i < cases.length(); i++) {
+            if (cases.get(i) >>> OCCUPANT != 0) n++;
+        }
+        return n;
+    }
+}
+
+/**
+ * Un joueur de [IleCommune] : sa position et ses actions ne sont lues et
+ * écrites que par le fil qui le mène.
+ */
+final class Joueur {
+    final int numero;
+    int x, y, actions = 3;
+    /** Dernière manche vue par le joueur, et a-t-il passé dans celle-ci ? */
+    int manche;
+    boolean passe;
+
+    Joueur(int numero, int x, int y) {
+        this.numero = numero;
+        this.x = x;
+        this.y = y;
+    }
+
+    public int getPositionX() { return x; }
+
+    public int getPositionY() { return y; }
+
+    public int getNumberAction() { return actions; }
+}
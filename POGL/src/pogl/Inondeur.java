@@ -0,0 +1,347 @@
+package pogl;
+
+import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Règle d'inondation de fin de tour (voir [CModele.passeTour]) : choisit
+ * les cases à inonder, et les inonde par [CModele.inonde].
+ *
+ * Un inondeur peut avoir un état (le paquet de [InondeurPaquet]) : il fait
+ * alors partie de l'état du modèle, et doit pouvoir être sauvé et restauré
+ * en temps constant (voir [CModele.sauve]), et copié pour une branche.
+ */
+interface Inondeur {
+    /** Inonde les cases d'un tour, en tirant au sort avec [rand]. */
+    void inonde(CModele modele, Alea rand);
+
+    /**
+     * Vérifie que la règle peut servir au modèle [modele] (voir
+     * [CModele.setInondeur]) ; lève [IllegalArgumentException] sinon.
+     */
+    default void verifie(CModele modele) { }
+
+    /** Copie indépendante, pour une branche du modèle ; [this] s'il est sans état. */
+    default Inondeur copie() { return this; }
+
+    /** État à sauver avec le modèle, jamais modifié ensuite ; [null] s'il est sans état. */
+    default Object sauve() { return null; }
+
+    /** Retour à un état rendu par [sauve], ou [null] pour l'état de départ. */
+    default void restaure(Object etat) { }
+
+    /** Empreinte de l'état (voir [CModele.getEmpreinte]), 0 s'il est sans état. */
+    default long getEmpreinte() { return 0; }
+
+    /**
+     * Probabilité que la case [x, y] de l'île soit inondée au prochain
+     * tour ; sert à la carte des risques ([CarteRisques]), case par case,
+     * sans tableau de la taille de la carte. Ne lit que le plateau figé [p]
+     * et les dimensions du modèle : peut être appelée depuis n'importe quel
+     * fil.
+     */
+    float probabilite(CModele modele, Plateau p, int x, int y);
+
+    /** Les probabilités de [probabilite] changent-elles quand une case est submergée ? */
+    default boolean probabilitesVariables() { return false; }
+
+    /**
+     * Code de la règle dans un enregistrement (voir [Enregistreur]) : la
+     * règle [decode(code())] doit inonder exactement comme celle-ci à partir
+     * de maintenant. -1 si la règle ne s'enregistre pas ; la partie ne peut
+     * alors pas être enregistrée.
+     */
+    default int code() { return -1; }
+
+    /** Règle de code [code] (voir [code]). */
+    static Inondeur decode(int code) {
+        if (code == 0) return LIGNES;
+        if (code > 0) return new InondeurPaquet(code);
+        throw new IllegalArgumentException("règle d'inondation inconnue : " + code);
+    }
+
+    /** Règle d'origine : une case tirée au hasard sur chaque ligne. */
+    Inondeur LIGNES = new InondeurLignes();
+}
+
+/**
+ * Une case inondée par ligne. Sur la carte classique, chaque ligne a ses
+ * bornes, dessinées à la main ; sur une île générée, la case est tirée sur
+ * toute la largeur.
+ */
+final class InondeurLignes implements Inondeur {
+    /** Colonnes tirées sur chaque ligne de la carte classique, bornes comprises. */
+    private static final int[] DEBUT = { 3, 2, 1, 1, 2, 3 }, NOMBRE = { 1, 3, 5, 5, 3, 1 };
+
+    public void inonde(CModele modele, Alea rand) {
+        for (int y = 1; y <= modele.getHauteur(); y++) modele.inonde(colonne(modele, y, rand), y);
+    }
+
+    /** Tire la colonne inondée sur la ligne [y] ; sert aussi à [IleCommune]. */
+    static int colonne(CModele modele, int y, Alea rand) {
+        if (modele.isClassique()) return rand.nextInt(NOMBRE[y - 1]) + DEBUT[y - 1];
+        return 1 + rand.nextInt(modele.getLargeur());
+    }
+
+    public int code() { return 0; }
+
+    public float probabilite(CModele modele, Plateau p, int x, int y) {
+        if (x < 1 || y < 1 || x > modele.getLargeur() || y > modele.getHauteur()) return 0;
+        if (!modele.isClassique()) return 1f / modele.getLargeur();
+        int debut = DEBUT[y - 1], nombre = NOMBRE[y - 1];
+        return x >= debut && x < debut + nombre ? 1f / nombre : 0;
+    }
+}
+
+/**
+ * Paquet d'inondation, comme dans le jeu de plateau : une carte par case
+ * de terre, mélangées. Une carte est rangée dans un [int], [x << 16 | y] :
+ * l'île fait au plus [COTE_MAX] cases de côté. À chaque tour, on tire [cartesParTour] cartes et
+ * on inonde leurs cases ; la carte d'une case submergée est retirée du
+ * jeu. Quand le paquet est vide, la défausse est mélangée et devient le
+ * nouveau paquet.
+ *
+ * Le paquet est construit, à partir du plateau, au premier tour. Tirer une
+ * carte ne modifie pas le tableau [cartes] : seul un nouveau mélange crée
+ * un nouveau tableau. L'état se sauve donc en temps constant.
+ */
+final class InondeurPaquet implements Inondeur {
+    /** Plus grand côté d'une île dont les cases tiennent sur 16 bits. */
+    static final int COTE_MAX = 0xFFFF;
+
+    private final int cartesParTour;
+    /** Cases du paquet, [x << 16 | y] ; les cartes [0, position[ sont tirées. */
+    private int[] cartes;
+    private int taille, position;
+    /** Numéro du mélange en cours, pour l'empreinte. */
+    private long melange;
+
+    InondeurPaquet(int cartesParTour) {
+        if (cartesParTour < 1) throw new IllegalArgumentException("au moins une carte par tour");
+        this.cartesParTour = cartesParTour;
+    }
+
+    public void verifie(CModele modele) {
+        if (modele.getLargeur() > COTE_MAX || modele.getHauteur() > COTE_MAX) {
+            throw new IllegalArgumentException("paquet d'inondation : au plus " + COTE_MAX + " cases de côté");
+        }
+    }
+
+    public void inonde(CModele modele, Alea rand) {
+        Plateau p = modele.getPlateau();
+        if (cartes == null) construit(modele, rand);
+        for (int n = 0; n < cartesParTour && taille > 0; n++) {
+            if (position == taille) remelange(p, rand);
+            if (taille == 0) return;
+            int carte = cartes[position++];
+            int x = carte >>> 16, y = carte & 0xFFFF;
+            // La carte d'une case déjà submergée est retirée sans compter.
+            if (p.isSubmergee(x, y)) {
+                n--;
+                continue;
+            }
+            modele.inonde(x, y);
+        }
+    }
+
+    /** Une carte par case de terre de l'île, bords exclus. */
+    private void construit(CModele modele, Alea rand) {
+        Plateau p = modele.getPlateau();
+        int[] c = new int[64];
+        int n = 0;
+        for (int x = 1; x <= modele.getLargeur(); x++) {
+            for (int y = 1; y <= modele.getHauteur(); y++) {
+                if (p.isMer(x, y) || p.isSubmergee(x, y)) continue;
+                if (n == c.length) c = Arrays.copyOf(c, 2 * n);
+                c[n++] = x << 16 | y;
+            }
+        }
+        melange(c, n, rand);
+    }
+
+    /** La défausse, privée des cases submergées, forme le nouveau paquet. */
+    private void remelange(Plateau p, Alea rand) {
+        int[] c = new int[taille];
+        int n = 0;
+        for (int k = 0; k < taille; k++) {
+            int x = cartes[k] >>> 16, y = cartes[k] & 0xFFFF;
+            if (!p.isSubmergee(x, y)) c[n++] = cartes[k];
+        }
+        melange(c, n, rand);
+    }
+
+    /** Mélange de Fisher-Yates des [n] premières cartes de [c]. */
+    private void melange(int[] c, int n, Alea rand) {
+        for (int k = n - 1; k > 0; k--) {
+            int j = rand.nextInt(k + 1);
+            int t = c[k]; c[k] = c[j]; c[j] = t;
+        }
+        this.cartes = c;
+        this.taille = n;
+        this.position = 0;
+        this.melange = rand.nextLong();
+    }
+
+    public Inondeur copie() {
+        InondeurPaquet i = new InondeurPaquet(cartesParTour);
+        i.restaure(sauve());
+        return i;
+    }
+
+    public Object sauve() { return new Etat(cartes, taille, position, melange); }
+
+    /** Un état [null] (sauvé avant que le paquet ne serve) le fait reconstruire. */
+    public void restaure(Object etat) {
+        if (!(etat instanceof Etat)) {
+            this.cartes = null;
+            return;
+        }
+        Etat e = (Etat) etat;
+        this.cartes = e.cartes;
+        this.taille = e.taille;
+        this.position = e.position;
+        this.melange = e.melange;
+    }
+
+    public long getEmpreinte() {
+        return cartes == null ? 0 : Zobrist.melange(melange + position);
+    }
+
+    /**
+     * En moyenne sur un paquet, chaque carte encore en jeu sort une fois
+     * tous les [n / cartesParTour] tours, [n] étant le nombre de cases de
+     * terre non submergées : c'est la probabilité donnée, sans tenir
+     * compte de la position dans le paquet en cours.
+     */
+    public float probabilite(CModele modele, Plateau p, int x, int y) {
+        // Les compteurs du plateau donnent [n] en temps constant.
+        int n = p.nombreTerres() - p.nombreSubmergees();
+        return n == 0 ? 0 : Math.min(1f, (float) cartesParTour / n);
+    }
+
+    public boolean probabilitesVariables() { return true; }
+
+    /** Le nombre de cartes par tour, tant que le paquet n'a pas servi : son état ne s'enregistre pas. */
+    public int code() { return cartes == null ? cartesParTour : -1; }
+
+    private static final class Etat {
+        final int[] cartes;
+        final int taille, position;
+        final long melange;
+
+        Etat(int[] cartes, int taille, int position, long melange) {
+            this.cartes = cartes;
+            this.taille = taille;
+            this.position = position;
+            this.melange = melange;
+        }
+    }
+}
+
+/**
+ * Champ de probabilités : chaque case de terre est inondée à chaque tour
+ * avec sa propre probabilité, en 256e (0 à 255).
+ *
+ * Le tirage se fait 64 cases à la fois, sur des mots de 64 bits : les
+ * probabilités d'une colonne de 64 cases sont rangées en 8 plans de bits
+ * (le bit b de chaque probabilité dans le plan b), et l'on compare en une
+ * fois 64 tirages de 8 bits à ces 64 seuils, plan par plan en partant du
+ * bit de poids fort (comparaison « bit-sliced »). La comparaison s'arrête
+ * dès que les 64 cases sont tranchées, soit après quelques plans en
+ * moyenne ; les colonnes sans terre ne tirent rien. Seules les cases
+ * effectivement inondées passent ensuite, une à une, par [CModele.inonde].
+ *
+ * Le champ est figé à la construction : il n'a pas d'état, et n'est pas
+ * copié avec les branches.
+ */
+final class InondeurProbabilites implements Inondeur {
+    private static final int PLANS = 8;
+
+    private final int largeur, hauteur, mots;
+    /** Plans de bits des seuils, [PLANS] mots par colonne de 64 cases. */
+    private final long[] plans;
+    /** Une colonne de 64 cases a-t-elle au moins un seuil non nul ? */
+    private final boolean[] actives;
+
+    /**
+     * Champ donnant à la case [x, y] de l'île du modèle la probabilité
+     * [probabilite(x, y) / 256], pour les cases de terre seulement ; les
+     * bords ne sont jamais inondés.
+     */
+    InondeurProbabilites(CModele modele, IntBinaryOperator probabilite) {
+        Plateau p = modele.getPlateau();
+        this.largeur = p.getLargeur();
+        this.hauteur = p.getHauteur();
+        this.mots = (hauteur + 63) >>> 6;
+        this.plans = new long[largeur * mots * PLANS];
+        this.actives = new boolean[largeur * mots];
+        for (int x = 1; x <= modele.getLargeur(); x++) {
+            for (int y = 1; y <= modele.getHauteur(); y++) {
+                if (p.isMer(x, y)) continue;
+                int seuil = Math.max(0, Math.min(255, probabilite.applyAsInt(x, y)));
+                if (seuil == 0) continue;
+                int colonne = x * mots + (y >>> 6);
+                actives[colonne] = true;
+                for (int b = 0; b < PLANS; b++) {
+                    if ((seuil >>> b & 1) != 0) plans[colonne * PLANS + b] |= 1L << (y & 63);
+                }
+            }
+        }
+    }
+
+    /**
+     * Champ classique : les cases de terre au bord de la mer sont inondées
+     * avec la probabilité [cote], les autres avec [interieur].
+     */
+    static InondeurProbabilites cotes(CModele modele, double cote, double interieur) {
+        Plateau p = modele.getPlateau();
+        int c = (int) Math.round(256 * cote), i = (int) Math.round(256 * interieur);
+        return new InondeurProbabilites(modele, (x, y) ->
+                p.isMer(x - 1, y) || p.isMer(x + 1, y) || p.isMer(x, y - 1) || p.isMer(x, y + 1) ? c : i);
+    }
+
+    /** Le champ est rangé par case du plateau : il ne sert qu'à un modèle de mêmes dimensions. */
+    public void verifie(CModele modele) {
+        if (modele.getLargeur() + 2 != largeur || modele.getHauteur() + 2 != hauteur) {
+            throw new IllegalArgumentException("champ de probabilités de " + (largeur - 2) + " x " + (hauteur - 2)
+                    + " cases, pour une île de " + modele.getLargeur() + " x " + modele.getHauteur());
+        }
+    }
+
+    public void inonde(CModele modele, Alea rand) {
+        for (int colonne = 0; colonne < actives.length; colonne++) {
+            if (!actives[colonne]) continue;
+            long inondees = tire(colonne, rand);
+            int x = colonne / mots, y0 = (colonne % mots) << 6;
+            while (inondees != 0) {
+                int y = y0 + Long.numberOfTrailingZeros(inondees);
+                inondees &= inondees - 1;
+                modele.inonde(x, y);
+            }
+        }
+    }
+
+    /** Les seuils, relus dans les plans de bits. */
+    public float probabilite(CModele modele, Plateau p, int x, int y) {
+        if (x < 0 || y < 0 || x >= largeur || y >= hauteur) return 0;
+        int colonne = x * mots + (y >>> 6), seuil = 0;
+        if (!actives[colonne]) return 0;
+        for (int b = 0; b < PLANS; b++) seuil |= (int) (plans[colonne * PLANS + b] >>> (y & 63) & 1) << b;
+        return seuil / 256f;
+    }
+
+    /**
+     * Les cases de la colonne dont le tirage sur 8 bits est inférieur au
+     * seuil : [inferieur] les cases déjà tranchées en dessous, [egal] celles
+     * dont les bits tirés égalent jusqu'ici ceux du seuil.
+     */
+    private long tire(int colonne, Alea rand) {
+        long inferieur = 0, egal = -1L;
+        for (int b = PLANS - 1; b >= 0 && egal != 0; b--) {
+            long seuil = plans[colonne * PLANS + b], tirage = rand.nextLong();
+            inferieur |= egal & ~tirage & seuil;
+            egal &= ~(tirage ^ seuil);
+        }
+        return inferieur;
+    }
+}
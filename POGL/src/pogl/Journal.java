@@ -0,0 +1,214 @@
+package pogl;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Le journal des actions du modèle.
+ *
+ * Chaque événement est un enregistrement binaire de taille fixe (date,
+ * type, niveau et trois entiers), écrit dans un tampon circulaire alloué
+ * une fois pour toutes : journaliser n'alloue rien et ne fait aucune
+ * entrée-sortie. Un fil d'arrière-plan vide le tampon vers une [Sortie]
+ * (console, fichier binaire...).
+ *
+ * Plusieurs fils peuvent écrire dans le même journal. Si le tampon est
+ * plein, l'événement est abandonné et compté plutôt que de bloquer le jeu.
+ *
+ * Le journal [INACTIF] ne fait rien : un appel se réduit au test du niveau.
+ */
+final class Journal {
+    /** Niveaux, du plus bavard au plus discret. */
+    static final int TRACE = 0, INFO = 1, AVERTISSEMENT = 2, AUCUN = 3;
+
+    /** Types d'événements, et signification des arguments [a, b, c]. */
+    static final int DEPLACEMENT = 1;  // position avant le mouvement, 1 si réussi
+    static final int ASSECHEMENT = 2;  // case asséchée
+    static final int INONDATION = 3;   // case inondée, nouvel état
+    static final int ARTEFACT = 4;     // case de l'artefact récupéré
+    static final int TOUR = 5;         // numéro du tour qui commence
+    static final int ERREUR = 6;       // code de la commande en échec (-1 : non enregistrée, aperçu)
+
+    /**
+     * Destination des événements, appelée uniquement depuis le fil du
+     * journal : elle peut prendre son temps, et allouer.
+     */
+    interface Sortie {
+        void ecrit(long date, int type, int niveau, int a, int b, int c) throws IOException;
+
+        default void vide() throws IOException { }
+
+        /** Texte lisible, dans le format historique des déplacements. */
+        static Sortie texte(PrintStream out) {
+            return (date, type, niveau, a, b, c) -> {
+                switch (type) {
+                    case DEPLACEMENT: out.println("playerX : " + a + ", playerY : " + b); break;
+                    case ASSECHEMENT: out.println("asseche : " + a + ", " + b); break;
+                    case INONDATION: out.println("inonde : " + a + ", " + b + " -> " + c); break;
+                    case ARTEFACT: out.println("artefact : " + a + ", " + b); break;
+                    case TOUR: out.println("tour : " + a); break;
+                    case ERREUR: out.println("erreur : commande " + a); break;
+                    default: out.println("evenement " + type + " : " + a + ", " + b + ", " + c);
+                }
+            };
+        }
+
+        /** Enregistrements binaires de 24 octets, pour une analyse hors ligne. */
+        static Sortie binaire(OutputStream flux) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(flux, 1 << 16));
+            return new Sortie() {
+                public void ecrit(long date, int type, int niveau, int a, int b, int c) throws IOException {
+                    out.writeLong(date);
+                    out.writeShort(type);
+                    out.writeShort(niveau);
+                    out.writeInt(a);
+                    out.writeInt(b);
+                    out.writeInt(c);
+                }
+
+                public void vide() throws IOException { out.flush(); }
+            };
+        }
+    }
+
+    /** Un journal qui n'enregistre rien. */
+    static final Journal INACTIF = new Journal();
+
+    private static Journal console;
+
+    /** Journal partagé vers la sortie standard, créé au premier appel. */
+    static synchronized Journal console() {
+        if (console == null) console = new Journal(TRACE, 1 << 12, Sortie.texte(System.out));
+        return console;
+    }
+
+    /** Nombre de [long] par enregistrement : date, en-tête, (a, b), c. */
+    private static final int TAILLE = 4;
+
+    private volatile int niveau;
+    private final int capacite, masque;
+    private final long[] donnees;
+    /** Pour chaque case du tampon : numéro (+ 1) du dernier enregistrement publié. */
+    private final AtomicLongArray publie;
+    /** Prochain numéro à attribuer, et prochain numéro à lire. */
+    private final AtomicLong ecrit = new AtomicLong(), lu = new AtomicLong();
+    private final AtomicLong perdus = new AtomicLong();
+    private final Sortie sortie;
+    private final Thread fil;
+    private volatile boolean actif = true;
+    /** Vrai pendant que le fil du journal s'endort faute d'enregistrement : un producteur doit le réveiller. */
+    private volatile boolean endormi;
+
+    /** Constructeur du journal inactif. */
+    private Journal() {
+        this.niveau = AUCUN;
+        this.capacite = 0;
+        this.masque = 0;
+        this.donnees = null;
+        this.publie = null;
+        this.sortie = null;
+        this.fil = null;
+    }
+
+    /**
+     * Un journal de [capacite] enregistrements (arrondie à une puissance de
+     * deux) vidé vers [sortie] par un fil d'arrière-plan.
+     */
+    Journal(int niveau, int capacite, Sortie sortie) {
+        this.niveau = niveau;
+        this.capacite = Integer.highestOneBit(Math.max(2, capacite - 1)) << 1;
+        this.masque = this.capacite - 1;
+        this.donnees = new long[this.capacite * TAILLE];
+        this.publie = new AtomicLongArray(this.capacite);
+        this.sortie = sortie;
+        this.fil = Fils.demarre("journal", this::boucle);
+    }
+
+    /** Seuil d'enregistrement ; [AUCUN] coupe le journal. */
+    void setNiveau(int niveau) {
+        if (donnees != null) this.niveau = niveau;
+    }
+
+    int getNiveau() { return niveau; }
+
+    boolean enregistre(int niveau) { return niveau >= this.niveau; }
+
+    /** Nombre d'événements abandonnés faute de place. */
+    long getPerdus() { return perdus.get(); }
+
+    /**
+     * Écriture d'un événement : aucune allocation, aucune attente. Le fil
+     * du journal n'est réveillé que s'il s'est endormi sur un tampon vide.
+     */
+    void ecrit(int niveau, int type, int a, int b, int c) {
+        if (niveau < this.niveau) return;
+        long n;
+        do {
+            n = ecrit.get();
+            if (n - lu.get() >= capacite) {
+                perdus.incrementAndGet();
+                return;
+            }
+        } while (!ecrit.compareAndSet(n, n + 1));
+        int i = (int) (n & masque);
+        int k = i * TAILLE;
+        donnees[k] = System.nanoTime();
+        donnees[k + 1] = (long) type << 32 | niveau;
+        donnees[k + 2] = (long) a << 32 | (b & 0xFFFFFFFFL);
+        donnees[k + 3] = c;
+        // Écriture ordonnée avec la lecture de [endormi] : voir [boucle].
+        publie.set(i, n + 1);
+        if (endormi) LockSupport.unpark(fil);
+    }
+
+    /**
+     * Boucle du fil du journal : on vide le tampon, ou on s'endort jusqu'au
+     * prochain enregistrement. [endormi] est levé avant de revérifier le
+     * tampon : un enregistrement publié entre-temps est vu ici, ou bien son
+     * producteur voit [endormi] et réveille le fil.
+     */
+    private void boucle() {
+        while (actif) {
+            if (vide() > 0) continue;
+            endormi = true;
+            long suivant = lu.get();
+            if (actif && publie.get((int) (suivant & masque)) != suivant + 1) LockSupport.park(this);
+            endormi = false;
+        }
+        vide();
+    }
+
+    /** Transmet à la sortie tous les enregistrements publiés ; renvoie leur nombre. */
+    private int vide() {
+        int n = 0;
+        try {
+            long suivant = lu.get();
+            while (publie.get((int) (suivant & masque)) == suivant + 1) {
+                int k = (int) (suivant & masque) * TAILLE;
+                long entete = donnees[k + 1], ab = donnees[k + 2];
+                sortie.ecrit(donnees[k], (int) (entete >>> 32), (int) entete,
+                        (int) (ab >>> 32), (int) ab, (int) donnees[k + 3]);
+                lu.lazySet(++suivant);
+                n++;
+            }
+            if (n > 0) sortie.vide();
+        } catch (IOException e) {
+            actif = false;
+        }
+        return n;
+    }
+
+    /** Arrête le fil après avoir vidé ce qui reste dans le tampon. */
+    void ferme() throws InterruptedException {
+        if (fil == null) return;
+        actif = false;
+        LockSupport.unpark(fil);
+        fil.join();
+    }
+}
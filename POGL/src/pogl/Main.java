@@ -0,0 +1,353 @@
+package pogl;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+
+
+public class Main {
+
+    // Ca va être ici qu'on va lancer le jeu, C'est notre classe principale
+
+    /** Fichier où est enregistrée la dernière partie jouée dans la fenêtre. */
+    static final String DERNIERE_PARTIE = "derniere-partie.ile";
+
+    public static void main(String[] args) throws IOException {
+        /** Mesures et événements JFR, si demandés par [-Dpogl.mesures] ou [-Dpogl.jfr] (voir [Mesures]). */
+        Mesures.demarreDepuisProprietes();
+
+        /**
+         * Mode sans interface : [simulation <parties> [graine] [tours] [fichier]]
+         * joue un lot de parties avec la politique aléatoire et affiche le
+         * bilan ; les parties sont enregistrées si un fichier est donné.
+         */
+        if (args.length > 0 && args[0].equals("simulation")) {
+            int parties = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+            long graine = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+            int tours = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+            Simulateur simulateur = new Simulateur(tours);
+            Enregistreur enregistreur = args.length > 4 ? new Enregistreur(Paths.get(args[4])) : null;
+            simulateur.setEnregistreur(enregistreur);
+            long debut = System.nanoTime();
+            Bilan bilan = simulateur.lance(graine, parties, () -> Politique.ALEATOIRE);
+            double secondes = (System.nanoTime() - debut) / 1e9;
+            if (enregistreur != null) enregistreur.close();
+            System.out.println(bilan);
+            System.out.println(String.format("%.0f parties/s", parties / secondes));
+            return;
+        }
+
+        /**
+         * Tournoi : [tournoi <parties> <fichier> [graine] [tours] [largeur
+         * hauteur | paquet]] oppose les politiques aléatoire et gloutonne,
+         * sous les règles d'inondation par lignes et par paquet, sur les
+         * mêmes îles (voir [Tournoi]), écrit les résultats dans le fichier
+         * et affiche les statistiques de chaque concurrent. Avec un paquet
+         * de cartes (voir [PaquetCartes]), la graine de chaque partie
+         * choisit sa carte et son artefact.
+         */
+        if (args.length > 2 && args[0].equals("tournoi")) {
+            long parties = Long.parseLong(args[1]);
+            long graine = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+            int tours = args.length > 4 ? Integer.parseInt(args[4]) : 50;
+            PaquetCartes paquet = args.length == 6 ? new PaquetCartes(Paths.get(args[5])) : null;
+            LongFunction<CModele> modeles = args.length > 6
+                    ? g -> new CModele(Integer.parseInt(args[5]), Integer.parseInt(args[6]), g)
+                    : paquet != null
+                    ? g -> paquet.carte(Long.remainderUnsigned(g, paquet.nombreCartes()))
+                            .modele(Artefact.values()[(int) (g >>> 62)], g)
+                    : CModele::new;
+            Tournoi tournoi = new Tournoi(tours, modeles)
+                    .ajoute("aléatoire, lignes", () -> Politique.ALEATOIRE, null)
+                    .ajoute("aléatoire, paquet", () -> Politique.ALEATOIRE, m -> new InondeurPaquet(m.getHauteur()))
+                    .ajoute("gloutonne, lignes", () -> Politique.GLOUTONNE, null)
+                    .ajoute("gloutonne, paquet", () -> Politique.GLOUTONNE, m -> new InondeurPaquet(m.getHauteur()));
+            long debut = System.nanoTime();
+            Tournoi.Statistiques[] stats;
+            try {
+                stats = tournoi.lance(graine, parties, Paths.get(args[2]));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            double secondes = (System.nanoTime() - debut) / 1e9;
+            if (paquet != null) paquet.close();
+            for (int k = 0; k < stats.length; k++) System.out.println(tournoi.getNoms().get(k) + " : " + stats[k]);
+            System.out.println(String.format("%.0f parties/s", tournoi.getJouees() / secondes));
+            return;
+        }
+
+        /**
+         * Cartes : [cartes <nombre> <largeur> <hauteur> <fichier> [graine]
+         * [noeuds]] génère un paquet de cartes d'îles jouables (voir
+         * [PaquetCartes]) ; avec un nombre de noeuds, chaque carte retenue
+         * par le tri doit encore être résolue par le [Solveur], pour ses
+         * quatre artefacts, dans ce budget (sans limite de temps, pour que
+         * le paquet ne dépende que de la graine).
+         */
+        if (args.length > 4 && args[0].equals("cartes")) {
+            long nombre = Long.parseLong(args[1]);
+            int largeur = Integer.parseInt(args[2]), hauteur = Integer.parseInt(args[3]);
+            long graine = args.length > 5 ? Long.parseLong(args[5]) : System.nanoTime();
+            long noeuds = args.length > 6 ? Long.parseLong(args[6]) : 0;
+            // Un solveur par fil, séquentiel, sans table ni limite de temps : le verdict ne dépend que de la carte.
+            ThreadLocal<Solveur> solveurs = ThreadLocal.withInitial(() -> {
+                Solveur s = new Solveur(3 * (largeur + hauteur), noeuds, null);
+                s.setTable(null);
+                s.setParallele(false);
+                return s;
+            });
+            Predicate<CarteIle> epreuve = noeuds == 0 ? null : carte -> {
+                Solveur solveur = solveurs.get();
+                for (int a = 0; a < CarteIle.ARTEFACTS; a++) {
+                    if (!solveur.resous(carte.modele(Artefact.values()[a], carte.graine)).estTrouvee()) return false;
+                }
+                return true;
+            };
+            System.out.println(PaquetCartes.genere(Paths.get(args[4]), graine, nombre, largeur, hauteur, epreuve));
+            return;
+        }
+
+        /**
+         * Résolution : [solveur <graine> [largeur hauteur] [tirages]] cherche
+         * une suite gagnante pour la partie de cette graine, sur la carte
+         * classique ou une île générée, puis estime la part des tirages
+         * d'inondations gagnables depuis le départ.
+         */
+        if (args.length > 1 && args[0].equals("solveur")) {
+            long graine = Long.parseLong(args[1]);
+            CModele modele = args.length > 3
+                    ? new CModele(Integer.parseInt(args[2]), Integer.parseInt(args[3]), graine)
+                    : new CModele(graine);
+            int tirages = args.length > 4 ? Integer.parseInt(args[4]) : 100;
+            int profondeur = 3 * (modele.getLargeur() + modele.getHauteur());
+            Solveur solveur = new Solveur(profondeur, 50_000_000L, Duration.ofSeconds(10));
+            System.out.println(solveur.resous(modele));
+            System.out.println(solveur.estime(modele, tirages, graine));
+            return;
+        }
+
+        /**
+         * Serveur de parties : [serveur <port | chemin.sock>] accueille des
+         * parties en réseau (voir [ServeurParties]) jusqu'à l'arrêt du
+         * programme, et affiche son bilan toutes les dix secondes.
+         */
+        if (args.length > 1 && args[0].equals("serveur")) {
+            ServeurParties serveur = ServeurParties.ouvre(args[1]);
+            System.out.println("écoute sur " + serveur.getAdresse());
+            long commandes = 0;
+            while (true) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                if (serveur.getCommandes() == commandes) continue;
+                commandes = serveur.getCommandes();
+                System.out.println(serveur.bilan());
+            }
+            serveur.close();
+            return;
+        }
+
+        /**
+         * Charge : [charge <clients> <commandes> [port | chemin.sock]
+         * [largeur hauteur] [graine]] lance autant de clients simultanés
+         * contre un serveur de parties (voir [ChargeParties]) ; sans
+         * adresse, ou avec [-], un serveur est démarré dans le programme,
+         * sur un port libre.
+         */
+        if (args.length > 2 && args[0].equals("charge")) {
+            int clients = Integer.parseInt(args[1]), commandes = Integer.parseInt(args[2]);
+            boolean local = args.length <= 3 || args[3].equals("-");
+            ServeurParties serveur = local ? ServeurParties.tcp(0) : null;
+            SocketAddress adresse = local ? serveur.getAdresse() : adresseServeur(args[3]);
+            int largeur = args.length > 5 ? Integer.parseInt(args[4]) : 0;
+            int hauteur = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+            long graine = args.length > 6 ? Long.parseLong(args[6]) : System.nanoTime();
+            ChargeParties charge = new ChargeParties(adresse, clients, commandes, graine, largeur, hauteur);
+            try {
+                System.out.println(charge.lance());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (serveur != null) {
+                System.out.println(serveur.bilan());
+                serveur.close();
+            }
+            return;
+        }
+
+        /**
+         * Coopération : [cooperation <joueurs> <largeur> <hauteur> [graine]
+         * [manches]] joue une partie à plusieurs sur une île générée, chaque
+         * joueur mené par son propre fil avec la politique aléatoire (voir
+         * [IleCommune]).
+         */
+        if (args.length > 3 && args[0].equals("cooperation")) {
+            int joueurs = Integer.parseInt(args[1]);
+            long graine = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+            int manches = args.length > 5 ? Integer.parseInt(args[5]) : 50;
+            CModele modele = new CModele(Integer.parseInt(args[2]), Integer.parseInt(args[3]), graine);
+            IleCommune ile = new IleCommune(modele, joueurs);
+            AtomicLong actions = new AtomicLong();
+            Thread[] fils = new Thread[joueurs];
+            long debut = System.nanoTime();
+            for (int k = 0; k < joueurs; k++) {
+                Joueur j = ile.getJoueur(k);
+                Alea rand = new Alea(Simulateur.graine(graine, k));
+                fils[k] = Fils.demarre("joueur-" + k, () -> {
+                    long n = 0;
+                    int depuisPasse = 0;
+                    while (ile.attend(j) && ile.getManche() < manches) {
+                        // Comme dans [Simulateur], on force la fin de manche au-delà de 16 actions.
+                        Action a = depuisPasse < 16 ? Action.TOUTES[rand.nextInt(Action.TOUTES.length)] : Action.PASSE;
+                        ile.joue(j, a);
+                        depuisPasse = a == Action.PASSE ? 0 : depuisPasse + 1;
+                        n++;
+                    }
+                    actions.addAndGet(n);
+                });
+            }
+            for (Thread t : fils) {
+                try {
+                    t.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            double secondes = (System.nanoTime() - debut) / 1e9;
+            System.out.println((ile.estGagnee() ? "gagnée" : ile.estPerdue() ? "perdue" : "abandonnée")
+                    + " après " + ile.getManche() + " manches, " + actions.get() + " actions, "
+                    + String.format("%.0f actions/s", actions.get() / secondes)
+                    + ", cases occupées : " + ile.casesOccupees() + " / " + joueurs);
+            return;
+        }
+
+        /**
+         * Relecture sans interface : [rejoue <fichier> [debut] [fin]] rejoue
+         * à pleine vitesse les parties enregistrées et affiche le bilan.
+         */
+        if (args.length > 1 && args[0].equals("rejoue")) {
+            try (Relecteur relecteur = new Relecteur(Paths.get(args[1]))) {
+                long debutLot = args.length > 2 ? Long.parseLong(args[2]) : 0;
+                long finLot = args.length > 3 ? Long.parseLong(args[3]) : relecteur.nombreParties();
+                Bilan bilan = new Bilan();
+                long debut = System.nanoTime();
+                relecteur.rejoue(debutLot, finLot,
+                        m -> bilan.ajoute(m.estGagnee(), m.estPerdue(), m.getTour(), 0));
+                double secondes = (System.nanoTime() - debut) / 1e9;
+                System.out.println(bilan);
+                System.out.println(String.format("%.0f parties/s", bilan.getParties() / secondes));
+            }
+            return;
+        }
+
+        /**
+         * Images d'une relecture, sans fenêtre : [images <fichier> <dossier>
+         * [indice] [taille] [pas]] rejoue la partie enregistrée et écrit
+         * une image PNG toutes les [pas] actions, ainsi que la dernière.
+         */
+        if (args.length > 2 && args[0].equals("images")) {
+            System.setProperty("java.awt.headless", "true");
+            PartieEnregistree partie;
+            try (Relecteur relecteur = new Relecteur(Paths.get(args[1]))) {
+                partie = relecteur.partie(args.length > 3 ? Long.parseLong(args[3]) : 0);
+            }
+            Path dossier = Paths.get(args[2]);
+            Files.createDirectories(dossier);
+            int pas = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+            CModele modele = partie.modeleInitial();
+            modele.setTrace(false);
+            modele.setHistorique(partie.utiliseHistorique());
+            int cote = Math.max(modele.getLargeur(), modele.getHauteur());
+            int taille = args.length > 4 ? Integer.parseInt(args[4]) : Math.max(1, Math.min(32, 1024 / cote));
+            RenduGrille rendu = new RenduGrille(taille);
+            BufferedImage image = null;
+            int ecrites = 0;
+            long debut = System.nanoTime();
+            for (int k = 0; k <= partie.nombreActions(); k++) {
+                if (k > 0) partie.action(k - 1).applique(modele);
+                if (k % pas != 0 && k != partie.nombreActions()) continue;
+                image = rendu.image(modele.getPlateau(), null, image);
+                ImageIO.write(image, "png", dossier.resolve(String.format("image-%05d.png", k)).toFile());
+                ecrites++;
+            }
+            double secondes = (System.nanoTime() - debut) / 1e9;
+            System.out.println(ecrites + " images dans " + dossier
+                    + String.format(" (%.1f images/s)", ecrites / secondes));
+            return;
+        }
+
+        /**
+         * Relecture pas à pas : [relecture <fichier> [indice]] ouvre la
+         * fenêtre sur la partie enregistrée.
+         */
+        if (args.length > 1 && args[0].equals("relecture")) {
+            PartieEnregistree partie;
+            try (Relecteur relecteur = new Relecteur(Paths.get(args[1]))) {
+                partie = relecteur.partie(args.length > 2 ? Long.parseLong(args[2]) : 0);
+            }
+            EventQueue.invokeLater(() -> {
+                CModele initial = partie.modeleInitial();
+                initial.setHistorique(partie.utiliseHistorique());
+                MoteurModele moteur = new MoteurModele(initial);
+                new CVue(moteur, new VueRelecture(moteur, partie));
+            });
+            return;
+        }
+
+        /**
+         * Grande carte : [ile <largeur> <hauteur> [graine]] ouvre la fenêtre
+         * sur une île générée.
+         */
+        CModele modele;
+        if (args.length > 2 && args[0].equals("ile")) {
+            int largeur = Integer.parseInt(args[1]), hauteur = Integer.parseInt(args[2]);
+            long graine = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+            modele = new CModele(largeur, hauteur, graine);
+        } else {
+            modele = new CModele();
+        }
+
+        /**
+         * La partie jouée dans la fenêtre est enregistrée, pour pouvoir être
+         * rejouée à l'identique ; le fichier est fermé à la sortie.
+         */
+        Enregistreur enregistreur = new Enregistreur(Paths.get(DERNIERE_PARTIE));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                enregistreur.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+        EventQueue.invokeLater(() -> {
+            modele.setHistorique(true);
+            CVue vue = new CVue(new MoteurModele(modele, enregistreur));
+        });
+
+    }
+
+    /** Adresse d'un serveur de parties : un port de la boucle locale, ou une socket Unix. */
+    private static SocketAddress adresseServeur(String adresse) {
+        return adresse.chars().allMatch(Character::isDigit)
+                ? new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(adresse))
+                : UnixDomainSocketAddress.of(adresse);
+    }
+
+}
@@ -0,0 +1,197 @@
+package pogl;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+
+/**
+ * Registre de mesures : des compteurs et des distributions nommés, que
+ * l'on peut lire depuis le programme ([valeurs], [distribution]) ou
+ * écrire dans un fichier ([ecrit]).
+ *
+ * Les mesures du jeu sont rangées dans le registre [GLOBALES], sous les
+ * noms des constantes ci-dessous. Elles sont inactives par défaut : un
+ * point de mesure se réduit alors au test de [actives], sans lecture de
+ * l'horloge, et le Flight Recorder n'est pas touché. Actifs, les mêmes
+ * points émettent aussi des événements du JDK Flight Recorder (voir
+ * [EvenementAction] et suivants).
+ *
+ * Les propriétés système [pogl.mesures] (fichier texte du registre) et
+ * [pogl.jfr] (enregistrement JFR des seuls événements du jeu) activent
+ * les mesures au démarrage et les écrivent à la sortie du programme (voir
+ * [demarreDepuisProprietes]).
+ */
+final class Mesures {
+    /** Le registre du jeu. */
+    static final Mesures GLOBALES = new Mesures();
+
+    /** Noms des mesures du jeu ; les durées sont en nanosecondes. */
+    static final String ACTIONS = "modele.actions", DUREE_ACTION = "modele.action.duree",
+            DUREE_TOUR = "modele.tour.duree", INONDATIONS_TOUR = "modele.tour.inondations",
+            INONDATIONS = "modele.inondations", SUBMERSIONS = "modele.submersions",
+            DUREE_NOTIFICATION = "observateurs.notification.duree", DUREE_AFFICHAGE = "vue.affichage.duree";
+
+    /** Poignées des mesures du jeu, pour ne pas chercher le nom à chaque mesure. */
+    static final Compteur C_INONDATIONS = GLOBALES.compteur(INONDATIONS),
+            C_SUBMERSIONS = GLOBALES.compteur(SUBMERSIONS);
+    static final Distribution D_ACTION = GLOBALES.distribution(DUREE_ACTION),
+            D_TOUR = GLOBALES.distribution(DUREE_TOUR),
+            D_INONDATIONS_TOUR = GLOBALES.distribution(INONDATIONS_TOUR),
+            D_NOTIFICATION = GLOBALES.distribution(DUREE_NOTIFICATION),
+            D_AFFICHAGE = GLOBALES.distribution(DUREE_AFFICHAGE);
+    /** Un compteur par action, [modele.actions.MONTE]... */
+    private static final Compteur[] C_ACTIONS = new Compteur[Action.TOUTES.length];
+
+    static {
+        for (Action a : Action.TOUTES) C_ACTIONS[a.ordinal()] = GLOBALES.compteur(ACTIONS + "." + a);
+    }
+
+    private static volatile boolean actives;
+
+    private final Map<String, Compteur> compteurs = new ConcurrentHashMap<>();
+    private final Map<String, Distribution> distributions = new ConcurrentHashMap<>();
+
+    /** Les points de mesure du jeu sont-ils actifs ? */
+    static boolean actives() { return actives; }
+
+    static void setActives(boolean a) { actives = a; }
+
+    static Compteur action(Action a) { return C_ACTIONS[a.ordinal()]; }
+
+    /** Le compteur [nom], créé au besoin. */
+    Compteur compteur(String nom) { return compteurs.computeIfAbsent(nom, n -> new Compteur()); }
+
+    /** La distribution [nom], créée au besoin. */
+    Distribution distribution(String nom) { return distributions.computeIfAbsent(nom, n -> new Distribution()); }
+
+    /** Valeurs actuelles de tous les compteurs, et nombre de valeurs de chaque distribution. */
+    Map<String, Long> valeurs() {
+        Map<String, Long> res = new TreeMap<>();
+        compteurs.forEach((n, c) -> res.put(n, c.get()));
+        distributions.forEach((n, d) -> res.put(n, d.instantane().getNombre()));
+        return res;
+    }
+
+    /** Remet toutes les mesures à zéro. */
+    void vide() {
+        compteurs.values().forEach(Compteur::vide);
+        distributions.values().forEach(Distribution::vide);
+    }
+
+    /** Rapport lisible : une ligne par compteur, puis une par distribution. */
+    String rapport() {
+        StringWriter s = new StringWriter();
+        PrintWriter out = new PrintWriter(s);
+        new TreeMap<>(compteurs).forEach((n, c) -> out.println(n + " : " + c.get()));
+        new TreeMap<>(distributions).forEach((n, d) -> {
+            Histogramme h = d.instantane();
+            out.println(n + " : n " + h.getNombre() + ", moyenne " + String.format("%.1f", h.getMoyenne())
+                    + ", p50 " + h.quantile(0.5) + ", p90 " + h.quantile(0.9) + ", p99 " + h.quantile(0.99)
+                    + ", max " + h.getMax());
+        });
+        out.flush();
+        return s.toString();
+    }
+
+    void ecrit(Path fichier) throws IOException {
+        Files.writeString(fichier, rapport());
+    }
+
+    /**
+     * Lecture des propriétés [pogl.mesures] et [pogl.jfr] : si l'une est
+     * donnée, les mesures sont activées, et écrites dans le fichier
+     * correspondant à la sortie du programme.
+     */
+    static void demarreDepuisProprietes() {
+        String texte = System.getProperty("pogl.mesures"), jfr = System.getProperty("pogl.jfr");
+        // Un enregistrement lancé avec la JVM (-XX:StartFlightRecording) active aussi les mesures.
+        if (FlightRecorder.isInitialized()) setActives(true);
+        if (texte == null && jfr == null) return;
+        setActives(true);
+        try {
+            if (jfr != null) enregistrement(Paths.get(jfr));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (texte == null) return;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                GLOBALES.ecrit(Paths.get(texte));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+    }
+
+    /**
+     * Enregistrement JFR, démarré, des seuls événements du jeu ; il est
+     * écrit dans [fichier] à son arrêt, ou à la sortie du programme.
+     */
+    static Recording enregistrement(Path fichier) throws IOException {
+        Recording r = new Recording();
+        r.setName("pogl");
+        r.setDestination(fichier);
+        r.enable(EvenementAction.class);
+        r.enable(EvenementTour.class);
+        r.enable(EvenementNotification.class);
+        r.enable(EvenementAffichage.class);
+        r.start();
+        return r;
+    }
+
+    /** Compteur partagé entre fils. */
+    static final class Compteur {
+        private final LongAdder valeur = new LongAdder();
+
+        void ajoute(long n) { valeur.add(n); }
+
+        void incremente() { valeur.increment(); }
+
+        long get() { return valeur.sum(); }
+
+        void vide() { valeur.reset(); }
+    }
+
+    /**
+     * Distribution partagée entre fils : les seaux de [Histogramme], en
+     * compteurs atomiques, sans verrou.
+     */
+    static final class Distribution {
+        private final AtomicLongArray comptes = new AtomicLongArray(Histogramme.SEAUX);
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void ajoute(long valeur) {
+            if (valeur < 0) valeur = 0;
+            comptes.incrementAndGet(Histogramme.seau(valeur));
+            total.add(valeur);
+            if (valeur > max.get()) max.accumulateAndGet(valeur, Math::max);
+        }
+
+        /** Copie des valeurs reçues jusqu'ici, à lire à loisir. */
+        Histogramme instantane() {
+            long[] c = new long[comptes.length()];
+            for (int s = 0; s < c.length; s++) c[s] = comptes.get(s);
+            return new Histogramme(c, total.sum(), max.get());
+        }
+
+        void vide() {
+            for (int s = 0; s < comptes.length(); s++) comptes.set(s, 0);
+            total.reset();
+            max.set(0);
+        }
+    }
+}
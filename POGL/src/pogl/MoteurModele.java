@@ -0,0 +1,301 @@
+package pogl;
+
+import java.awt.EventQueue;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Le moteur : une file de commandes devant le modèle.
+ *
+ * Seul le fil du moteur modifie le [CModele] (un seul écrivain). La vue ne
+ * fait que soumettre des [Commande] avec [soumet], sans attendre, puis lit
+ * le dernier [Instantane] publié : aucun verrou n'est partagé entre le
+ * modèle et l'affichage, et un tour long (inondation d'une grande carte)
+ * ne gèle plus l'interface.
+ *
+ * Les commandes en attente sont appliquées par paquets : un seul
+ * instantané est publié par paquet, et les observateurs de la vue ne
+ * reçoivent qu'une notification par passage du fil d'événements Swing.
+ *
+ * Le moteur calcule aussi des aperçus (voir [apercu]) : la commande est
+ * appliquée à une branche du modèle ([CModele.branche]), qui partage son
+ * plateau avec lui, et le résultat est publié à côté de l'instantané.
+ */
+class MoteurModele implements Observer {
+    /** Nombre maximal de commandes appliquées avant de publier un instantané. */
+    private static final int PAQUET = 64;
+
+    private final CModele modele;
+    private final BlockingQueue<Commande> commandes = new LinkedBlockingQueue<>();
+    /** Dernier état publié, lu sans verrou par la vue. */
+    private volatile Instantane instantane;
+    /** État qu'atteindrait le modèle avec la commande survolée, ou [null]. */
+    private volatile Instantane apercu;
+    /** Commande de l'aperçu, recalculé après chaque commande appliquée. */
+    private Commande commandeApercu;
+    /**
+     * Cases où l'aperçu en cours diffère du modèle, chemin compris : seules
+     * celles de l'ancien et du nouvel aperçu sont signalées à la vue quand
+     * l'aperçu change.
+     */
+    private final Changements casesApercu = new Changements();
+    /** Changements accumulés par le fil du moteur depuis la dernière publication. */
+    private final Changements accumules = new Changements();
+    /** Changements publiés mais pas encore remis aux observateurs de la vue. */
+    private final Changements aRemettre = new Changements();
+    private boolean remisePrevue;
+    private final List<Observer> observers = new CopyOnWriteArrayList<>();
+    /** Si non nul, chaque commande appliquée y est enregistrée. */
+    private final Enregistreur enregistreur;
+    private final Thread fil;
+    private volatile RuntimeException derniereErreur;
+
+    public MoteurModele(CModele modele) {
+        this(modele, null);
+    }
+
+    /** Moteur dont la partie est enregistrée dans [enregistreur], sous l'indice 0. */
+    public MoteurModele(CModele modele, Enregistreur enregistreur) {
+        this.modele = modele;
+        this.enregistreur = enregistreur;
+        if (enregistreur != null) enregistreur.debutPartie(0, modele);
+        modele.addObserver(this);
+        this.instantane = new Instantane(modele);
+        this.fil = Fils.demarre("moteur-modele", this::boucle);
+    }
+
+    /** Le modèle, dont seules les dimensions peuvent être lues hors du moteur. */
+    public CModele getModele() { return modele; }
+
+    /** Soumission d'une commande ; n'attend pas qu'elle soit appliquée. */
+    public void soumet(Commande a) { commandes.add(a); }
+
+    /**
+     * Demande l'aperçu de la commande [a], sans toucher au modèle ;
+     * [null] efface l'aperçu. L'aperçu suit le modèle : il est recalculé
+     * après chaque commande appliquée, jusqu'à ce qu'il soit effacé.
+     *
+     * [Action.PASSE], seule ou dans une [Sequence], n'a pas d'aperçu : la
+     * branche tire au sort comme le modèle, et révélerait les prochaines
+     * inondations. L'historique non plus : la branche n'en a pas. Ces
+     * commandes effacent l'aperçu.
+     */
+    public void apercu(Commande a) { commandes.add(new Apercu(apercevable(a) ? a : null)); }
+
+    static boolean apercevable(Commande a) {
+        if (a instanceof Sequence) {
+            int s = ((Sequence) a).valeur;
+            for (int k = 0; k < Sequence.longueur(s); k++) if (Sequence.action(s, k) == Action.PASSE) return false;
+        }
+        return a != Action.PASSE && !(a instanceof Historique);
+    }
+
+    /** Le dernier instantané publié. */
+    public Instantane getInstantane() { return instantane; }
+
+    /** Le dernier aperçu publié, ou [null]. */
+    public Instantane getApercu() { return apercu; }
+
+    /** Inscription d'un observateur, notifié dans le fil d'événements Swing. */
+    public void addObserver(Observer o) { observers.add(o); }
+
+    public void arrete() { fil.interrupt(); }
+
+    /** Appelé par le modèle, dans le fil du moteur. */
+    public void update() { accumules.tout(); }
+
+    public void update(Changements c) { accumules.fusionne(c); }
+
+    private void boucle() {
+        try {
+            while (true) {
+                Commande a = commandes.take();
+                int n = 0;
+                do {
+                    try {
+                        if (a instanceof Apercu) {
+                            commandeApercu = ((Apercu) a).commande;
+                        } else if (a instanceof Trajet || a instanceof Sequence) {
+                            // On enregistre les actions jouées, pas la case visée ni la suite.
+                            int s = a instanceof Trajet ? ((Trajet) a).sequence(modele) : ((Sequence) a).valeur;
+                            if (modele.joue(s) && enregistreur != null) {
+                                for (int k = 0; k < Sequence.longueur(s); k++) enregistreur.action(Sequence.action(s, k));
+                            }
+                        } else {
+                            a.applique(modele);
+                            if (enregistreur != null) enregistreur.action(a);
+                        }
+                    } catch (RuntimeException e) {
+                        // Une commande en échec ne doit pas arrêter le moteur : l'interface gèlerait.
+                        erreur(a.code(), e);
+                    }
+                    n++;
+                } while (n < PAQUET && (a = commandes.poll()) != null);
+                try {
+                    calculeApercu();
+                } catch (RuntimeException e) {
+                    // On abandonne l'aperçu plutôt que de l'échouer après chaque commande.
+                    commandeApercu = null;
+                    apercu = null;
+                    casesApercu.vide();
+                    erreur(-1, e);
+                }
+                publie();
+            }
+        } catch (InterruptedException e) {
+            // Arrêt du moteur.
+        }
+    }
+
+    /**
+     * Signale au journal une commande qui a levé [e], et affiche la trace
+     * de [e] : la suivante est traitée normalement.
+     */
+    private void erreur(int code, RuntimeException e) {
+        derniereErreur = e;
+        Journal.console().ecrit(Journal.AVERTISSEMENT, Journal.ERREUR, code, 0, 0);
+        e.printStackTrace();
+    }
+
+    /** La dernière exception levée par une commande, ou [null]. */
+    public RuntimeException getDerniereErreur() { return derniereErreur; }
+
+    private void calculeApercu() {
+        // Les cases de l'ancien aperçu reviennent à l'état du modèle.
+        accumules.fusionne(casesApercu);
+        casesApercu.vide();
+        if (commandeApercu == null) {
+            apercu = null;
+            return;
+        }
+        CModele branche = modele.branche();
+        /** La branche signale ses changements comme le modèle : ce sont les cases de l'aperçu. */
+        branche.addObserver(new Observer() {
+            public void update() { casesApercu.tout(); }
+            public void update(Changements c) { casesApercu.fusionne(c); }
+        });
+        if (commandeApercu instanceof Trajet) {
+            /**
+             * Le chemin est lu dans le champ des distances du modèle, déjà
+             * calculé : la branche n'a qu'à jouer les déplacements.
+             */
+            Trajet t = (Trajet) commandeApercu;
+            int[] cases = cases(modele.trajet(t.x, t.y));
+            branche.joue(t.sequence(modele));
+            for (int k = 0; k < cases.length; k += 2) casesApercu.tuile(cases[k], cases[k + 1]);
+            apercu = new Instantane(branche, cases);
+        } else {
+            commandeApercu.applique(branche);
+            apercu = new Instantane(branche);
+        }
+        accumules.fusionne(casesApercu);
+    }
+
+    /** Les cases traversées par [chemin] depuis le joueur, en [x, y] successifs. */
+    private int[] cases(List<Action> chemin) {
+        int[] cases = new int[2 * chemin.size()];
+        int x = modele.getAventurier().getPositionX(), y = modele.getAventurier().getPositionY();
+        for (int k = 0; k < chemin.size(); k++) {
+            switch (chemin.get(k)) {
+                case MONTE: y--; break;
+                case DESCEND: y++; break;
+                case DROITE: x++; break;
+                default: x--; break;
+            }
+            cases[2 * k] = x;
+            cases[2 * k + 1] = y;
+        }
+        return cases;
+    }
+
+    /** Publication d'un nouvel instantané, puis remise des changements à la vue. */
+    private void publie() {
+        instantane = new Instantane(modele);
+        if (accumules.isVide()) return;
+        synchronized (aRemettre) {
+            aRemettre.fusionne(accumules);
+            if (!remisePrevue) {
+                remisePrevue = true;
+                EventQueue.invokeLater(this::remet);
+            }
+        }
+        accumules.vide();
+    }
+
+    private void remet() {
+        Changements c;
+        synchronized (aRemettre) {
+            c = aRemettre.copie();
+            aRemettre.vide();
+            remisePrevue = false;
+        }
+        for (Observer o : observers) {
+            o.update(c);
+        }
+    }
+}
+
+/**
+ * Un état figé du modèle, publié par [MoteurModele] : il n'est plus jamais
+ * modifié, et peut donc être lu depuis n'importe quel fil.
+ */
+final class Instantane {
+    private final Plateau plateau;
+    private final int x, y, actions;
+    private final boolean artefact, gagnee, perdue;
+    /** Règle d'inondation du modèle, lue dans le fil du moteur (voir [CarteRisques]). */
+    private final Inondeur inondeur;
+    /** Pour un aperçu de [Trajet] : les cases du chemin, en [x, y] successifs. */
+    private final int[] chemin;
+
+    Instantane(CModele modele) {
+        this(modele, null);
+    }
+
+    Instantane(CModele modele, int[] chemin) {
+        Aventurier a = modele.getAventurier();
+        this.plateau = modele.getPlateau().fige();
+        this.x = a.getPositionX();
+        this.y = a.getPositionY();
+        this.actions = a.getNumberAction();
+        this.artefact = a.haveArtefact();
+        this.gagnee = modele.estGagnee();
+        this.perdue = modele.estPerdue();
+        this.inondeur = modele.getInondeur();
+        this.chemin = chemin;
+    }
+
+    /** Le plateau de l'instantané : à lire seulement. */
+    public Plateau getPlateau() { return plateau; }
+
+    public int getPositionX() { return x; }
+
+    public int getPositionY() { return y; }
+
+    public int getNumberAction() { return actions; }
+
+    public boolean haveArtefact() { return artefact; }
+
+    public boolean estGagnee() { return gagnee; }
+
+    public boolean estPerdue() { return perdue; }
+
+    public Inondeur getInondeur() { return inondeur; }
+
+    /** Le chemin de l'aperçu, ou [null] (à lire seulement). */
+    int[] getChemin() { return chemin; }
+}
+
+/** Demande d'aperçu, traitée par le moteur sans toucher au modèle. */
+final class Apercu implements Commande {
+    final Commande commande;
+
+    Apercu(Commande commande) { this.commande = commande; }
+
+    public void applique(CModele modele) { commande.applique(modele); }
+
+    /** Les aperçus ne sont jamais enregistrés. */
+    public int code() { return -1; }
+}
@@ -0,0 +1,161 @@
+package pogl;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Que faire lorsque la file d'un observateur asynchrone est pleine ?
+ *  - PERTE : la nouvelle notification est abandonnée (et comptée) ;
+ *  - FUSION : elle est fusionnée avec la dernière notification en attente,
+ *    rien n'est perdu mais les changements arrivent regroupés ;
+ *  - BLOCAGE : le modèle attend que l'observateur ait rattrapé son retard.
+ */
+enum Debordement {
+    PERTE, FUSION, BLOCAGE
+}
+
+/**
+ * Un observateur qui en enveloppe un autre pour le notifier dans son propre
+ * fil d'exécution.
+ *
+ * Chaque notification reçue du modèle est copiée dans une file bornée, que
+ * vide un fil dédié (virtuel si le JDK le permet, voir [Fils]). Un
+ * observateur lent (journal, enregistrement, spectateur) ne ralentit donc
+ * plus l'action qui a déclenché la notification ; il prend seulement du
+ * retard, mesuré par [getRetard].
+ *
+ * On l'obtient avec [Observable.addObserver(o, debordement, capacite)].
+ */
+class ObservateurAsynchrone implements Observer {
+    /** Une notification en attente, datée de sa mise en file. */
+    private static final class Entree {
+        final Changements changements;
+        final long date;
+
+        Entree(Changements changements, long date) {
+            this.changements = changements;
+            this.date = date;
+        }
+    }
+
+    private final Observer cible;
+    private final Debordement debordement;
+    private final int capacite;
+    private final ArrayDeque<Entree> file;
+    private final ReentrantLock verrou = new ReentrantLock();
+    private final Condition nonVide = verrou.newCondition(), nonPleine = verrou.newCondition();
+    private final Thread fil;
+    private volatile boolean actif = true;
+    /** Statistiques : notifications perdues, et dernier retard constaté. */
+    private volatile long perdues, dernierRetard;
+
+    ObservateurAsynchrone(Observer cible, Debordement debordement, int capacite) {
+        if (capacite < 1) throw new IllegalArgumentException("capacité nulle");
+        this.cible = cible;
+        this.debordement = debordement;
+        this.capacite = capacite;
+        this.file = new ArrayDeque<>(capacite);
+        this.fil = Fils.demarre("observateur-" + cible.getClass().getSimpleName(), this::boucle);
+    }
+
+    public Observer getCible() { return cible; }
+
+    public void update() {
+        Changements c = new Changements();
+        c.tout();
+        update(c);
+    }
+
+    /**
+     * Appelé dans le fil du modèle : on copie les changements (l'objet
+     * reçu est réutilisé par le modèle) et on les met en file.
+     */
+    public void update(Changements c) {
+        verrou.lock();
+        try {
+            while (file.size() == capacite) {
+                switch (debordement) {
+                    case PERTE:
+                        perdues++;
+                        return;
+                    case FUSION:
+                        file.peekLast().changements.fusionne(c);
+                        return;
+                    case BLOCAGE:
+                        // Le fil dédié arrêté ne videra plus la file : on abandonne le changement.
+                        if (!actif) return;
+                        nonPleine.awaitUninterruptibly();
+                        break;
+                }
+            }
+            file.addLast(new Entree(c.copie(), System.nanoTime()));
+            nonVide.signal();
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /** Boucle du fil dédié : on vide la file dans l'ordre d'arrivée. */
+    private void boucle() {
+        while (actif) {
+            Entree e;
+            verrou.lock();
+            try {
+                while (file.isEmpty()) {
+                    nonVide.await();
+                }
+                e = file.pollFirst();
+                nonPleine.signal();
+            } catch (InterruptedException ex) {
+                return;
+            } finally {
+                verrou.unlock();
+            }
+            dernierRetard = System.nanoTime() - e.date;
+            cible.update(e.changements);
+        }
+    }
+
+    /**
+     * Arrête le fil dédié ; les notifications en attente sont abandonnées,
+     * et un modèle bloqué sur la file pleine (voir [Debordement.BLOCAGE])
+     * est libéré.
+     */
+    void arrete() {
+        verrou.lock();
+        try {
+            actif = false;
+            nonPleine.signalAll();
+        } finally {
+            verrou.unlock();
+        }
+        fil.interrupt();
+    }
+
+    /** Nombre de notifications en attente. */
+    public int getEnAttente() {
+        verrou.lock();
+        try {
+            return file.size();
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Retard de l'observateur, en nanosecondes : l'âge de la plus ancienne
+     * notification en attente, ou à défaut le délai de la dernière remise.
+     */
+    public long getRetard() {
+        verrou.lock();
+        try {
+            Entree e = file.peekFirst();
+            return e == null ? dernierRetard : System.nanoTime() - e.date;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    public long getPerdues() { return perdues; }
+}
@@ -0,0 +1,208 @@
+package pogl;
+
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Interface des objets observateurs.
+ */
+interface Observer {
+    /**
+     * Un observateur doit posséder une méthode [update] déclenchant la mise à
+     * jour.
+     */
+    public void update();
+    /**
+     * La version officielle de Java possède des paramètres précisant le
+     * changement qui a eu lieu. Ici, [update(Changements)] reçoit le détail
+     * des changements ; par défaut, on se ramène à une mise à jour complète.
+     * L'objet [c] n'est valide que pendant l'appel.
+     */
+    public default void update(Changements c) { update(); }
+}
+
+/**
+ * Classe des objets pouvant être observés.
+ */
+abstract class Observable {
+    /**
+     * On a une liste [observers] d'observateurs, initialement vide, à laquelle
+     * viennent s'inscrire les observateurs via la méthode [addObserver].
+     * La liste est copiée à chaque modification : on peut donc ajouter ou
+     * retirer un observateur pendant une notification.
+     */
+    private final List<Observer> observers;
+    /**
+     * Changements accumulés depuis la dernière notification. Avec le
+     * regroupement par le fil d'événements Swing, le modèle y écrit dans
+     * son fil et le fil d'événements les en retire : on les lit et écrit
+     * donc sous le verrou de [enCours].
+     */
+    private final Changements enCours = new Changements();
+    /** Profondeur d'imbrication des lots, voir [debutLot]. */
+    private int profondeur;
+    /**
+     * Si vrai, les changements sont regroupés jusqu'au prochain passage du
+     * fil d'événements Swing, au lieu d'être notifiés à la fin de chaque lot.
+     */
+    private volatile boolean regroupementEDT;
+    /** Une notification est déjà demandée au fil d'événements ; sous le verrou de [enCours]. */
+    private boolean notificationPrevue;
+
+    public Observable() {
+        this.observers = new CopyOnWriteArrayList<Observer>();
+    }
+    public void addObserver(Observer o) {
+        observers.add(o);
+    }
+
+    /**
+     * Inscription d'un observateur notifié dans son propre fil, à travers
+     * une file bornée de [capacite] notifications (voir [ObservateurAsynchrone]).
+     */
+    public ObservateurAsynchrone addObserver(Observer o, Debordement debordement, int capacite) {
+        ObservateurAsynchrone a = new ObservateurAsynchrone(o, debordement, capacite);
+        observers.add(a);
+        return a;
+    }
+
+    /** Désinscription, y compris d'un observateur asynchrone, dont le fil est arrêté. */
+    public void removeObserver(Observer o) {
+        for (Observer x : observers) {
+            if (x == o || (x instanceof ObservateurAsynchrone && ((ObservateurAsynchrone) x).getCible() == o)) {
+                observers.remove(x);
+                if (x instanceof ObservateurAsynchrone) ((ObservateurAsynchrone) x).arrete();
+            }
+        }
+    }
+
+    /** Les observateurs asynchrones inscrits, pour suivre leur retard. */
+    public List<ObservateurAsynchrone> getObservateursAsynchrones() {
+        List<ObservateurAsynchrone> res = new ArrayList<>();
+        for (Observer o : observers) {
+            if (o instanceof ObservateurAsynchrone) res.add((ObservateurAsynchrone) o);
+        }
+        return res;
+    }
+
+    /**
+     * Lorsque l'état de l'objet observé change, il est convenu d'appeler la
+     * méthode [notifyObservers] pour prévenir l'ensemble des observateurs
+     * enregistrés. Sans autre précision, tout est considéré comme changé.
+     */
+    public void notifyObservers() {
+        synchronized (enCours) { enCours.tout(); }
+        envoie();
+    }
+
+    /**
+     * Ouverture d'un lot : les changements signalés jusqu'au [finLot]
+     * correspondant sont envoyés en une seule notification. Les lots
+     * peuvent s'imbriquer ; seul le plus externe notifie.
+     */
+    protected void debutLot() { profondeur++; }
+
+    protected void finLot() {
+        if (--profondeur == 0) envoie();
+    }
+
+    /**
+     * Regroupe les notifications par passage du fil d'événements Swing :
+     * c'est à qui crée la vue de le choisir, avant de modifier le modèle
+     * dans un autre fil que celui d'événements.
+     */
+    public void setRegroupementEDT(boolean regroupementEDT) {
+        this.regroupementEDT = regroupementEDT;
+    }
+
+    /**
+     * Signalement des changements. Sans observateur (simulation), rien
+     * n'est enregistré.
+     */
+    protected void signaleTuile(int x, int y) {
+        if (observers.isEmpty()) return;
+        synchronized (enCours) { enCours.tuile(x, y); }
+        envoieHorsLot();
+    }
+
+    protected void signaleJoueur() {
+        if (observers.isEmpty()) return;
+        synchronized (enCours) { enCours.joueur(); }
+        envoieHorsLot();
+    }
+
+    protected void signaleActions() {
+        if (observers.isEmpty()) return;
+        synchronized (enCours) { enCours.actions(); }
+        envoieHorsLot();
+    }
+
+    protected void signaleTour() {
+        if (observers.isEmpty()) return;
+        synchronized (enCours) { enCours.tour(); }
+        envoieHorsLot();
+    }
+
+    private void envoieHorsLot() {
+        if (profondeur == 0) envoie();
+    }
+
+    /**
+     * On envoie les changements accumulés en appelant concrètement la
+     * méthode [update] de chaque observateur. Avec le regroupement, le fil
+     * d'événements reçoit une copie des changements, prise sous le verrou.
+     */
+    private void envoie() {
+        if (regroupementEDT) {
+            synchronized (enCours) {
+                if (enCours.isVide() || notificationPrevue) return;
+                notificationPrevue = true;
+            }
+            EventQueue.invokeLater(() -> {
+                Changements c;
+                synchronized (enCours) {
+                    notificationPrevue = false;
+                    c = enCours.copie();
+                    enCours.vide();
+                }
+                distribue(c);
+            });
+            return;
+        }
+        distribue(enCours);
+    }
+
+    private void distribue(Changements c) {
+        if (c.isVide()) return;
+        if (Mesures.actives()) {
+            distribueMesure(c);
+            return;
+        }
+        for(Observer o : observers) {
+            o.update(c);
+        }
+        c.vide();
+    }
+
+    /** [distribue], en notant sa durée (voir [Mesures]). */
+    private void distribueMesure(Changements c) {
+        EvenementNotification e = new EvenementNotification();
+        e.begin();
+        int cases = c.contient(Changements.TOUT) ? -1 : c.nombreTuiles();
+        long debut = System.nanoTime();
+        for(Observer o : observers) {
+            o.update(c);
+        }
+        c.vide();
+        Mesures.D_NOTIFICATION.ajoute(System.nanoTime() - debut);
+        e.end();
+        if (e.shouldCommit()) {
+            e.observateurs = observers.size();
+            e.cases = cases;
+            e.commit();
+        }
+    }
+}
+/** Fin du schéma observateur/observé. */
@@ -0,0 +1,200 @@
+package pogl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+/**
+ * Paquet de cartes d'îles (voir [CarteIle]), toutes de la même taille,
+ * lu par projection en mémoire.
+ *
+ * Format, en gros-boutien : un en-tête de [ENTETE] octets, [MAGIQUE],
+ * [VERSION], largeur, hauteur (int), nombre de cartes (long), taille
+ * d'une carte (int) et un int nul ; puis les cartes, toutes de la même
+ * taille (voir [CarteIle.ecrit]) : graine (long), départ, héliport et un
+ * emplacement par artefact (x, y : deux short chacun), puis la terre
+ * ([CarteIle.mots] long). La carte k est donc à la position
+ * [ENTETE + k * taille] : on la lit sans parcourir les précédentes.
+ *
+ * Le fichier est projeté par régions d'un nombre entier de cartes ; les
+ * lectures étant absolues, un paquet se partage entre fils.
+ */
+final class PaquetCartes implements Closeable {
+    static final int MAGIQUE = 0x494C5031; // "ILP1"
+    static final int VERSION = 1;
+    static final int ENTETE = 32;
+    /** Taille visée d'une région projetée, et des cartes examinées par une tâche de [genere]. */
+    private static final int REGION = 1 << 26, LOT = 1 << 22;
+    /** Au plus tant de candidates examinées par carte demandée, si le tri en refuse trop. */
+    private static final int ESSAIS_MAX = 64;
+
+    private final FileChannel canal;
+    private final int largeur, hauteur, taille, parRegion;
+    private final long nombre;
+    private final MappedByteBuffer[] regions;
+
+    PaquetCartes(Path fichier) throws IOException {
+        this.canal = FileChannel.open(fichier, StandardOpenOption.READ);
+        ByteBuffer e = ByteBuffer.allocate(ENTETE);
+        Protocole.litTout(canal, e);
+        e.flip();
+        if (e.getInt() != MAGIQUE || e.getInt() != VERSION) {
+            canal.close();
+            throw new IOException(fichier + " n'est pas un paquet de cartes");
+        }
+        this.largeur = e.getInt();
+        this.hauteur = e.getInt();
+        this.nombre = e.getLong();
+        this.taille = e.getInt();
+        if (taille != CarteIle.taille(largeur, hauteur) || canal.size() < ENTETE + nombre * taille) {
+            canal.close();
+            throw new IOException(fichier + " : paquet tronqué ou corrompu");
+        }
+        this.parRegion = Math.max(1, REGION / taille);
+        this.regions = new MappedByteBuffer[(int) ((nombre + parRegion - 1) / parRegion)];
+        for (int r = 0; r < regions.length; r++) {
+            long premiere = (long) r * parRegion;
+            regions[r] = canal.map(FileChannel.MapMode.READ_ONLY, ENTETE + premiere * taille,
+                    Math.min(parRegion, nombre - premiere) * taille);
+        }
+    }
+
+    public int getLargeur() { return largeur; }
+
+    public int getHauteur() { return hauteur; }
+
+    public long nombreCartes() { return nombre; }
+
+    /** La carte d'indice [k], copiée hors du fichier. */
+    public CarteIle carte(long k) {
+        if (k < 0 || k >= nombre) throw new IndexOutOfBoundsException("pas de carte " + k);
+        int debut = (int) (k % parRegion) * taille;
+        return CarteIle.lit(regions[(int) (k / parRegion)].slice(debut, taille), largeur, hauteur);
+    }
+
+    public void close() throws IOException { canal.close(); }
+
+    /**
+     * Génère un paquet de [nombre] cartes de [largeur] x [hauteur] dans
+     * [fichier]. Les candidates, de graines [Simulateur.graine(graineBase,
+     * i)], sont générées et triées (voir [CarteIle.trie]) par lots, en
+     * parallèle sur le pool commun ; [epreuve], si elle n'est pas nulle,
+     * n'est passée qu'aux cartes retenues par le tri. Les lots sont écrits
+     * dans l'ordre des graines : le paquet, fait des [nombre] premières
+     * candidates retenues, ne dépend que de [graineBase], pourvu que
+     * [epreuve] ne dépende que de la carte (ni de l'heure, ni de la charge,
+     * ni des cartes déjà éprouvées par le même fil).
+     * S'il y a trop de refus (voir [ESSAIS_MAX]), le paquet a moins de
+     * cartes que demandé.
+     */
+    static Generation genere(Path fichier, long graineBase, long nombre, int largeur, int hauteur,
+                             Predicate<CarteIle> epreuve) throws IOException {
+        int taille = CarteIle.taille(largeur, hauteur);
+        int parLotMax = Math.max(1, Math.min(1024, LOT / taille));
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int lots = 2 * pool.getParallelism();
+        Generation generation = new Generation();
+        long debut = System.nanoTime();
+        try (FileChannel sortie = FileChannel.open(fichier, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            sortie.position(ENTETE);
+            long candidate = 0, ecrites = 0;
+            while (ecrites < nombre && candidate < nombre * ESSAIS_MAX) {
+                // Pas plus de candidates que de cartes manquantes : les refus se rattrapent au tour suivant.
+                int parLot = (int) Math.min(parLotMax, (nombre - ecrites + lots - 1) / lots);
+                List<Callable<Lot>> taches = new ArrayList<>();
+                for (int k = 0; k < lots; k++) {
+                    long premiere = candidate + (long) k * parLot;
+                    taches.add(() -> Lot.genere(graineBase, premiere, parLot, largeur, hauteur, epreuve));
+                }
+                candidate += (long) lots * parLot;
+                for (Future<Lot> f : pool.invokeAll(taches)) {
+                    Lot lot = resultat(f);
+                    generation.ajoute(lot);
+                    int n = (int) Math.min(lot.cartes, nombre - ecrites);
+                    Protocole.ecritTout(sortie, lot.donnees.flip().limit(n * taille));
+                    ecrites += n;
+                }
+            }
+            ByteBuffer e = ByteBuffer.allocate(ENTETE).putInt(MAGIQUE).putInt(VERSION).putInt(largeur)
+                    .putInt(hauteur).putLong(ecrites).putInt(taille).putInt(0);
+            sortie.position(0);
+            Protocole.ecritTout(sortie, e.flip());
+            generation.cartes = ecrites;
+        }
+        generation.duree = System.nanoTime() - debut;
+        return generation;
+    }
+
+    private static Lot resultat(Future<Lot> f) {
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Les cartes retenues parmi [nombre] candidates, encodées à la suite, et le décompte des verdicts. */
+    private static final class Lot {
+        final long[] tris = new long[CarteIle.Tri.values().length];
+        ByteBuffer donnees;
+        int cartes;
+
+        static Lot genere(long graineBase, long premiere, int nombre, int largeur, int hauteur,
+                          Predicate<CarteIle> epreuve) {
+            Lot lot = new Lot();
+            lot.donnees = ByteBuffer.allocate(nombre * CarteIle.taille(largeur, hauteur));
+            CarteIle.Parcours parcours = new CarteIle.Parcours();
+            for (int i = 0; i < nombre; i++) {
+                CarteIle c = CarteIle.genere(Simulateur.graine(graineBase, premiere + i), largeur, hauteur);
+                CarteIle.Tri t = c == null ? CarteIle.Tri.TROP_PETITE : c.trie(parcours);
+                if (t == CarteIle.Tri.RETENUE && epreuve != null && !epreuve.test(c)) t = CarteIle.Tri.INSOLUBLE;
+                lot.tris[t.ordinal()]++;
+                if (t == CarteIle.Tri.RETENUE) {
+                    c.ecrit(lot.donnees);
+                    lot.cartes++;
+                }
+            }
+            return lot;
+        }
+    }
+
+    /** Bilan de [genere] : candidates examinées, par verdict, et cartes écrites. */
+    static final class Generation {
+        final long[] tris = new long[CarteIle.Tri.values().length];
+        long cartes, duree;
+
+        void ajoute(Lot lot) {
+            for (int k = 0; k < tris.length; k++) tris[k] += lot.tris[k];
+        }
+
+        long candidates() {
+            long n = 0;
+            for (long t : tris) n += t;
+            return n;
+        }
+
+        public String toString() {
+            StringBuilder res = new StringBuilder("cartes : " + cartes + ", candidates : " + candidates());
+            for (CarteIle.Tri t : CarteIle.Tri.values()) {
+                res.append(", ").append(t.name().toLowerCase().replace('_', ' ')).append(" : ").append(tris[t.ordinal()]);
+            }
+            return res.append(String.format(", %.0f candidates/s", candidates() / (duree / 1e9))).toString();
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package pogl;
+
+import java.util.Arrays;
+
+/**
+ * Représentation compacte du plateau de jeu.
+ *
+ * Plutôt qu'un tableau d'objets [Tuile], chaque propriété d'une case est
+ * rangée dans un tableau de types primitifs :
+ *  - [cases] : un octet par case, avec l'état sur les bits 0-1 et le type
+ *    d'artefact sur les bits 2-4 ;
+ *  - [mer], [heliport], [artefact], [aventurier] : des plans de bits, un
+ *    bit par case, rangés dans des [long].
+ *
+ * Pour les grandes cartes, le plateau est découpé en blocs de 64 x 64 cases
+ * alloués à la demande : un bloc jamais écrit est de la mer, et ne coûte
+ * qu'une référence nulle. Une île de quelques milliers de cases au milieu
+ * d'un océan de plusieurs millions n'occupe donc que les blocs qui la
+ * recouvrent. Dans un bloc, chaque colonne tient dans un seul [long] de
+ * chaque plan de bits.
+ *
+ * Toute case hors du plateau se lit comme de la mer : les bords n'ont pas
+ * besoin d'être traités à part.
+ *
+ * Les copies partagent leurs blocs (copie sur écriture) : [copie()] et
+ * [fige()] ne copient que des références, et un bloc n'est dupliqué que
+ * lorsque l'un des plateaux qui le partagent le modifie. Chaque plateau
+ * modifiable possède un jeton [proprietaire] ; il n'écrit directement que
+ * dans les blocs marqués de son jeton, et duplique les autres.
+ *
+ * Chaque écriture met aussi à jour l'empreinte de Zobrist du plateau
+ * ([getEmpreinte], voir [Zobrist]) : deux plateaux égaux ont la même
+ * empreinte, qui se lit en temps constant. De même, les nombres de cases
+ * de terre, inondées, submergées et d'artefacts sont tenus à jour par
+ * chaque écriture, et se lisent sans parcourir le plateau, quelle que
+ * soit sa taille.
+ */
+class Plateau {
+    /** Côté maximal d'un bloc, en cases (puissance de deux). */
+    static final int BLOC = 64;
+    /** Masque de l'état dans [cases] : 0 = normale, 1 = inondée, 2 = submergée. */
+    private static final int ETAT = 0b11;
+    /** Décalage du type d'artefact dans [cases] (0 = aucun, sinon ordinal + 1). */
+    private static final int ARTEFACT = 2;
+    private static final Artefact[] TYPES = Artefact.values();
+
+    /** Dimensions du plateau, bords compris. */
+    private final int largeur, hauteur;
+    /**
+     * Côté effectif des blocs : [BLOC], ou moins pour les petites cartes
+     * (un seul bloc de 8 x 8 pour la carte classique).
+     */
+    private final int decalage, masque;
+    /** Nombre de blocs sur chaque axe. */
+    private final int blocsX, blocsY;
+    /** Blocs rangés par colonnes, [null] tant qu'ils ne sont que de la mer. */
+    private Bloc[] blocs;
+    /** Le tableau [blocs] est-il partagé avec une copie ? */
+    private boolean blocsPartages;
+    /** Jeton des blocs que ce plateau peut modifier sans les dupliquer. */
+    private Object proprietaire;
+    /** Un plateau figé ne peut plus être modifié (voir [fige()]). */
+    private final boolean fige;
+    /** Empreinte de Zobrist, tenue à jour par chaque écriture. */
+    private long empreinte;
+    /** Cases de terre (hors mer), et parmi elles les inondées et les submergées ; artefacts posés. */
+    private int terres, inondees, submergees, artefacts;
+
+    /** Un bloc de [cote] x [cote] cases, au plus 64 x 64. */
+    static final class Bloc {
+        final byte[] cases;
+        final long[] mer, heliport, artefact, aventurier;
+        /** Jeton du plateau qui peut modifier ce bloc sur place. */
+        Object proprietaire;
+
+        Bloc(int cote) {
+            cases = new byte[cote * cote];
+            mer = new long[cote];
+            heliport = new long[cote];
+            artefact = new long[cote];
+            aventurier = new long[cote];
+            Arrays.fill(mer, -1L);
+        }
+
+        Bloc(Bloc b) {
+            cases = b.cases.clone();
+            mer = b.mer.clone();
+            heliport = b.heliport.clone();
+            artefact = b.artefact.clone();
+            aventurier = b.aventurier.clone();
+        }
+
+        boolean equals(Bloc b) {
+            return Arrays.equals(cases, b.cases) && Arrays.equals(mer, b.mer)
+                    && Arrays.equals(heliport, b.heliport) && Arrays.equals(artefact, b.artefact)
+                    && Arrays.equals(aventurier, b.aventurier);
+        }
+
+        int hash() {
+            int h = Arrays.hashCode(cases);
+            h = 31 * h + Arrays.hashCode(mer);
+            h = 31 * h + Arrays.hashCode(heliport);
+            h = 31 * h + Arrays.hashCode(artefact);
+            return 31 * h + Arrays.hashCode(aventurier);
+        }
+    }
+
+    public Plateau(int largeur, int hauteur) {
+        this.largeur = largeur;
+        this.hauteur = hauteur;
+        int cote = Math.min(BLOC, Integer.highestOneBit(Math.max(1, Math.max(largeur, hauteur) - 1)) << 1);
+        this.decalage = Integer.numberOfTrailingZeros(cote);
+        this.masque = cote - 1;
+        this.blocsX = (largeur + masque) >>> decalage;
+        this.blocsY = (hauteur + masque) >>> decalage;
+        this.blocs = new Bloc[blocsX * blocsY];
+        this.proprietaire = new Object();
+        this.fige = false;
+    }
+
+    /** Constructeur de copie partageant les blocs de [p], voir [copie()]. */
+    private Plateau(Plateau p, boolean fige) {
+        this.largeur = p.largeur;
+        this.hauteur = p.hauteur;
+        this.decalage = p.decalage;
+        this.masque = p.masque;
+        this.blocsX = p.blocsX;
+        this.blocsY = p.blocsY;
+        this.blocs = p.blocs;
+        this.blocsPartages = true;
+        this.empreinte = p.empreinte;
+        this.terres = p.terres;
+        this.inondees = p.inondees;
+        this.submergees = p.submergees;
+        this.artefacts = p.artefacts;
+        this.proprietaire = fige ? null : new Object();
+        this.fige = fige;
+        if (!p.fige) {
+            // [p] ne doit plus écrire dans les blocs désormais partagés.
+            p.blocsPartages = true;
+            p.proprietaire = new Object();
+        }
+    }
+
+    /**
+     * Copie indépendante du plateau, en temps constant : les blocs sont
+     * partagés, et dupliqués à la première écriture de l'un ou l'autre.
+     * Sur un plateau modifiable, seul le fil qui le modifie peut le copier.
+     */
+    public Plateau copie() { return new Plateau(this, false); }
+
+    /**
+     * Instantané figé du plateau, en temps constant : il ne sera plus
+     * jamais modifié, et peut être lu, ou copié, depuis n'importe quel fil.
+     */
+    public Plateau fige() { return fige ? this : new Plateau(this, true); }
+
+    public boolean isFige() { return fige; }
+
+    /** Empreinte de Zobrist du plateau : égale pour deux plateaux égaux. */
+    public long getEmpreinte() { return empreinte; }
+
+    /** Cases de terre, quel que soit leur état. */
+    public int nombreTerres() { return terres; }
+
+    /** Cases de terre inondées. */
+    public int nombreInondees() { return inondees; }
+
+    /** Cases de terre submergées. */
+    public int nombreSubmergees() { return submergees; }
+
+    /** Cases de mer du plateau, bords compris. */
+    public long nombreMer() { return (long) largeur * hauteur - terres; }
+
+    public int nombreArtefacts() { return artefacts; }
+
+    public int getLargeur() { return largeur; }
+
+    public int getHauteur() { return hauteur; }
+
+    /** Nombre de blocs effectivement alloués, pour suivre la mémoire occupée. */
+    public int nombreBlocs() {
+        int n = 0;
+        for (Bloc b : blocs) if (b != null) n++;
+        return n;
+    }
+
+    /** Le bloc contenant [x, y], ou [null] s'il est hors plateau ou non alloué. */
+    private Bloc lit(int x, int y) {
+        if (x < 0 || y < 0 || x >= largeur || y >= hauteur) return null;
+        return blocs[(x >>> decalage) * blocsY + (y >>> decalage)];
+    }
+
+    /** Le bloc contenant [x, y], alloué au besoin, et modifiable. */
+    private Bloc ecrit(int x, int y) {
+        if (x < 0 || y < 0 || x >= largeur || y >= hauteur) {
+            throw new IndexOutOfBoundsException("case (" + x + ", " + y + ") hors du plateau");
+        }
+        return modifiable((x >>> decalage) * blocsY + (y >>> decalage), true);
+    }
+
+    /**
+     * Le bloc contenant [x, y], modifiable, ou [null] s'il est hors plateau
+     * ou non alloué : pour les écritures qui n'ont pas d'effet sur la mer.
+     */
+    private Bloc modifie(int x, int y) {
+        if (x < 0 || y < 0 || x >= largeur || y >= hauteur) return null;
+        return modifiable((x >>> decalage) * blocsY + (y >>> decalage), false);
+    }
+
+    /** Copie sur écriture du tableau de blocs, puis du bloc [i]. */
+    private Bloc modifiable(int i, boolean alloue) {
+        if (fige) throw new IllegalStateException("plateau figé");
+        Bloc b = blocs[i];
+        if (b != null && b.proprietaire == proprietaire) return b;
+        if (b == null && !alloue) return null;
+        if (blocsPartages) {
+            blocs = blocs.clone();
+            blocsPartages = false;
+        }
+        b = b == null ? new Bloc(masque + 1) : new Bloc(b);
+        b.proprietaire = proprietaire;
+        blocs[i] = b;
+        return b;
+    }
+
+    /**
+     * Ajoute la case [x, y] du bloc [b] aux compteurs ([signe] = 1), ou
+     * l'en retire (-1) : la mer ne compte pas.
+     */
+    private void compte(Bloc b, int x, int y, int signe) {
+        if (b == null || bit(b.mer, x, y)) return;
+        terres += signe;
+        int etat = b.cases[dans(x, y)] & ETAT;
+        if (etat == 1) inondees += signe;
+        else if (etat == 2) submergees += signe;
+    }
+
+    /** Position de la case dans le tableau [cases] de son bloc. */
+    private int dans(int x, int y) { return ((x & masque) << decalage) | (y & masque); }
+
+    private boolean bit(long[] plan, int x, int y) { return (plan[x & masque] & (1L << (y & masque))) != 0; }
+
+    private void pose(long[] plan, int x, int y) { plan[x & masque] |= 1L << (y & masque); }
+
+    private void efface(long[] plan, int x, int y) { plan[x & masque] &= ~(1L << (y & masque)); }
+
+    /**
+     * L'Etat est défini par un entier
+     * 1 = normale
+     * 0 = inondee
+     * -1 = submergee
+     */
+    public int getEtat(int x, int y) {
+        Bloc b = lit(x, y);
+        return b == null ? 1 : 1 - (b.cases[dans(x, y)] & ETAT);
+    }
+
+    /**
+     * Une tuile submergée ne peut pas descendre plus bas.
+     * La mer non allouée n'évolue pas.
+     */
+    public void decreaseEtat(int x, int y) {
+        Bloc b = lit(x, y);
+        if (b == null) return;
+        int i = dans(x, y), etat = b.cases[i] & ETAT;
+        if (etat == 2) return;
+        compte(b, x, y, -1);
+        b = modifie(x, y);
+        b.cases[i]++;
+        compte(b, x, y, 1);
+        empreinte ^= cleEtat(x, y, etat) ^ cleEtat(x, y, etat + 1);
+    }
+
+    /** Une tuile normale ne peut pas monter plus haut. */
+    public void increaseEtat(int x, int y) {
+        Bloc b = lit(x, y);
+        if (b == null) return;
+        int i = dans(x, y), etat = b.cases[i] & ETAT;
+        if (etat == 0) return;
+        compte(b, x, y, -1);
+        b = modifie(x, y);
+        b.cases[i]--;
+        compte(b, x, y, 1);
+        empreinte ^= cleEtat(x, y, etat) ^ cleEtat(x, y, etat - 1);
+    }
+
+    public boolean isSubmergee(int x, int y) {
+        Bloc b = lit(x, y);
+        return b != null && (b.cases[dans(x, y)] & ETAT) == 2;
+    }
+
+    public boolean isMer(int x, int y) {
+        Bloc b = lit(x, y);
+        return b == null || bit(b.mer, x, y);
+    }
+
+    public void setMer(int x, int y) {
+        if (isMer(x, y)) return;
+        Bloc b = modifie(x, y);
+        compte(b, x, y, -1);
+        pose(b.mer, x, y);
+        empreinte ^= Zobrist.cle(x, y, Zobrist.TERRE);
+    }
+
+    /** Fait émerger une case : c'est la seule écriture qui alloue un bloc de mer. */
+    public void setTerre(int x, int y) {
+        Bloc b = ecrit(x, y);
+        if (!bit(b.mer, x, y)) return;
+        efface(b.mer, x, y);
+        compte(b, x, y, 1);
+        empreinte ^= Zobrist.cle(x, y, Zobrist.TERRE);
+    }
+
+    public boolean isHeliport(int x, int y) {
+        Bloc b = lit(x, y);
+        return b != null && bit(b.heliport, x, y);
+    }
+
+    public void setHeliport(int x, int y) {
+        Bloc b = ecrit(x, y);
+        if (bit(b.heliport, x, y)) return;
+        pose(b.heliport, x, y);
+        empreinte ^= Zobrist.cle(x, y, Zobrist.HELIPORT);
+    }
+
+    public boolean isArtefact(int x, int y) {
+        Bloc b = lit(x, y);
+        return b != null && bit(b.artefact, x, y);
+    }
+
+    public Artefact getArtefact(int x, int y) {
+        Bloc b = lit(x, y);
+        int type = b == null ? 0 : b.cases[dans(x, y)] >>> ARTEFACT;
+        return type == 0 ? Artefact.NONE : TYPES[type - 1];
+    }
+
+    public void setArtefact(int x, int y, Artefact type) {
+        supprimeArtefact(x, y);
+        Bloc b = ecrit(x, y);
+        int i = dans(x, y);
+        empreinte ^= Zobrist.cle(x, y, Zobrist.ARTEFACT + type.ordinal());
+        pose(b.artefact, x, y);
+        artefacts++;
+        b.cases[i] = (byte) ((b.cases[i] & ETAT) | ((type.ordinal() + 1) << ARTEFACT));
+    }
+
+    public void supprimeArtefact(int x, int y) {
+        if (!isArtefact(x, y)) return;
+        empreinte ^= Zobrist.cle(x, y, Zobrist.ARTEFACT + getArtefact(x, y).ordinal());
+        Bloc b = modifie(x, y);
+        efface(b.artefact, x, y);
+        artefacts--;
+        b.cases[dans(x, y)] &= ETAT;
+    }
+
+    public boolean isAventurier(int x, int y) {
+        Bloc b = lit(x, y);
+        return b != null && bit(b.aventurier, x, y);
+    }
+
+    public void setAventurier(int x, int y) {
+        Bloc b = ecrit(x, y);
+        if (bit(b.aventurier, x, y)) return;
+        pose(b.aventurier, x, y);
+        empreinte ^= Zobrist.cle(x, y, Zobrist.AVENTURIER);
+    }
+
+    public void supprimeAventurier(int x, int y) {
+        if (!isAventurier(x, y)) return;
+        efface(modifie(x, y).aventurier, x, y);
+        empreinte ^= Zobrist.cle(x, y, Zobrist.AVENTURIER);
+    }
+
+    /** Clé de Zobrist de l'état [etat] (code de [cases]) ; l'état normal n'en a pas. */
+    private static long cleEtat(int x, int y, int etat) {
+        return etat == 0 ? 0 : Zobrist.cle(x, y, etat == 1 ? Zobrist.INONDEE : Zobrist.SUBMERGEE);
+    }
+
+    /**
+     * Une case est valide si l'on peut y entrer : ni submergée, ni en mer,
+     * ni déjà occupée.
+     */
+    public boolean isValide(int x, int y) {
+        Bloc b = lit(x, y);
+        return b != null && (b.cases[dans(x, y)] & ETAT) != 2
+                && !bit(b.mer, x, y) && !bit(b.aventurier, x, y);
+    }
+
+    public boolean equals(Object o) {
+        if (!(o instanceof Plateau)) return false;
+        Plateau p = (Plateau) o;
+        if (largeur != p.largeur || hauteur != p.hauteur) return false;
+        for (int i = 0; i < blocs.length; i++) {
+            Bloc a = blocs[i], b = p.blocs[i];
+            if (a == b) continue;
+            if (a == null || b == null || !a.equals(b)) return false;
+        }
+        return true;
+    }
+
+    public int hashCode() {
+        int h = 31 * largeur + hauteur;
+        for (Bloc b : blocs) h = 31 * h + (b == null ? 0 : b.hash());
+        return h;
+    }
+}
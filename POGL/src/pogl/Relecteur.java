@@ -0,0 +1,109 @@
+package pogl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Relecture d'un fichier écrit par [Enregistreur].
+ *
+ * Les deux fichiers sont projetés en mémoire en lecture seule, par
+ * fenêtres : [partie(n)] lit la position de la partie n dans l'index,
+ * puis son en-tête et ses actions, sans parcourir les parties précédentes.
+ * Un relecteur garde sa fenêtre courante : il ne se partage pas entre fils.
+ */
+final class Relecteur implements Closeable {
+    private final Lecture donnees, index;
+    private final long parties;
+
+    Relecteur(Path fichier) throws IOException {
+        this.donnees = new Lecture(fichier);
+        this.index = new Lecture(Enregistreur.fichierIndex(fichier));
+        if (donnees.taille < Enregistreur.ENTETE || donnees.lit(0) != 'I' || donnees.lit(1) != 'L'
+                || donnees.lit(2) != 'E' || donnees.lit(3) != '1') {
+            throw new IOException(fichier + " n'est pas un enregistrement de parties");
+        }
+        int version = donnees.litInt(4);
+        if (version != Enregistreur.VERSION) {
+            throw new IOException(fichier + " : version " + version + " du format, seule la version "
+                    + Enregistreur.VERSION + " se relit");
+        }
+        this.parties = index.taille / 8;
+    }
+
+    /** Nombre d'indices de parties ; certains peuvent être vides (voir [contient]). */
+    public long nombreParties() { return parties; }
+
+    public boolean contient(long n) { return n >= 0 && n < parties && index.litLong(n * 8) != 0; }
+
+    /** La partie d'indice [n] ; ses actions sont vérifiées à la lecture (voir [Commande.decode]). */
+    public PartieEnregistree partie(long n) throws IOException {
+        if (!contient(n)) throw new IndexOutOfBoundsException("pas de partie " + n);
+        long p = index.litLong(n * 8);
+        long graine = donnees.litLong(p);
+        int largeur = donnees.litInt(p + 8), hauteur = donnees.litInt(p + 12);
+        boolean classique = donnees.lit(p + 16) != 0;
+        int regle = donnees.litInt(p + 17);
+        if (regle < 0) throw new IOException("partie " + n + " : règle d'inondation inconnue " + regle);
+        long debut = p + Enregistreur.ENTETE_PARTIE, fin = debut;
+        while (fin < donnees.taille && donnees.lit(fin) != Enregistreur.FIN) fin++;
+        byte[] actions = new byte[(int) (fin - debut)];
+        for (int k = 0; k < actions.length; k++) {
+            actions[k] = donnees.lit(debut + k);
+            Commande.decode(actions[k], debut + k);
+        }
+        return new PartieEnregistree(graine, largeur, hauteur, classique, regle, actions);
+    }
+
+    /** Rejoue à pleine vitesse les parties [debut] à [fin - 1] présentes dans le fichier. */
+    public void rejoue(long debut, long fin, Consumer<CModele> resultat) throws IOException {
+        for (long n = Math.max(0, debut); n < Math.min(fin, parties); n++) {
+            if (contient(n)) resultat.accept(partie(n).rejoue());
+        }
+    }
+
+    public void close() throws IOException {
+        donnees.canal.close();
+        index.canal.close();
+    }
+
+    /** Lecture projetée d'un fichier, une fenêtre à la fois. */
+    private static final class Lecture {
+        final FileChannel canal;
+        final long taille;
+        private MappedByteBuffer fenetre;
+        private long debut = -1;
+
+        Lecture(Path fichier) throws IOException {
+            this.canal = FileChannel.open(fichier, StandardOpenOption.READ);
+            this.taille = canal.size();
+        }
+
+        byte lit(long position) {
+            long d = position & -Projection.FENETRE;
+            if (d != debut) {
+                try {
+                    fenetre = canal.map(FileChannel.MapMode.READ_ONLY, d, Math.min(Projection.FENETRE, taille - d));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                debut = d;
+            }
+            return fenetre.get((int) (position - d));
+        }
+
+        int litInt(long position) {
+            int v = 0;
+            for (int k = 0; k < 4; k++) v = v << 8 | (lit(position + k) & 0xFF);
+            return v;
+        }
+
+        long litLong(long position) {
+            return (long) litInt(position) << 32 | (litInt(position + 4) & 0xFFFFFFFFL);
+        }
+    }
+}
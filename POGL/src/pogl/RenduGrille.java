@@ -0,0 +1,280 @@
+package pogl;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Dessin d'un [Plateau] à [taille] pixels par case, dans n'importe quel
+ * [Graphics] : celui de [VueGrille], ou une image hors écran ([image]),
+ * par exemple pour rejouer une partie sans fenêtre.
+ *
+ * Chaque case est une copie d'un rectangle de l'atlas ([AtlasTuiles]),
+ * sans dessin ni changement de couleur entre deux cases. Sous [SEUIL]
+ * pixels par case, un appel à [drawImage] par case coûterait plus que la
+ * case elle-même : les pixels des tuiles sont alors recopiés ligne à
+ * ligne dans une image de toute la zone, dessinée en une fois (sur une
+ * carte de 1000 x 1000, à 4 pixels par case, 1 ms au lieu de 11 pour
+ * une vue de 768 pixels de côté).
+ *
+ * Un rendu garde cette image d'un dessin à l'autre : il ne se partage pas
+ * entre fils.
+ */
+final class RenduGrille {
+    /** Taille sous laquelle les cases sont écrites pixel par pixel. */
+    static final int SEUIL = 16;
+
+    private final int taille;
+    private final AtlasTuiles atlas;
+    /** Image des pixels, pour les petites tailles ; agrandie au besoin. */
+    private BufferedImage pixels;
+
+    RenduGrille(int taille) {
+        this.taille = taille;
+        this.atlas = AtlasTuiles.pour(taille);
+    }
+
+    public int getTaille() { return taille; }
+
+    /**
+     * Dessine les cases de [p] qui recoupent [zone], en pixels : la case
+     * [x, y] occupe le carré de coin [(x-1)*taille, (y-1)*taille]. Les
+     * niveaux de risque sont lus dans [niveaux] (voir [CarteRisques]), ou
+     * nuls si [niveaux] est [null].
+     */
+    void dessine(Graphics g, Plateau p, Rectangle zone, IntBinaryOperator niveaux) {
+        int i0 = Math.max(1, zone.x/taille + 1);
+        int j0 = Math.max(1, zone.y/taille + 1);
+        int i1 = Math.min(p.getLargeur() - 2, (zone.x + zone.width - 1)/taille + 1);
+        int j1 = Math.min(p.getHauteur() - 2, (zone.y + zone.height - 1)/taille + 1);
+        if (i1 < i0 || j1 < j0) return;
+        if (taille < SEUIL) {
+            dessinePixels(g, p, i0, j0, i1, j1, niveaux);
+            return;
+        }
+        for (int i = i0; i <= i1; i++) {
+            for (int j = j0; j <= j1; j++) {
+                int niveau = niveaux == null ? 0 : niveaux.applyAsInt(i, j);
+                atlas.dessine(g, AtlasTuiles.tuile(p, i, j), niveau, (i-1)*taille, (j-1)*taille);
+            }
+        }
+    }
+
+    /** Les cases [i0..i1] x [j0..j1], écrites dans [pixels] puis copiées d'un coup. */
+    private void dessinePixels(Graphics g, Plateau p, int i0, int j0, int i1, int j1, IntBinaryOperator niveaux) {
+        int l = (i1 - i0 + 1) * taille, h = (j1 - j0 + 1) * taille;
+        if (pixels == null || pixels.getWidth() < l || pixels.getHeight() < h) {
+            pixels = new BufferedImage(Math.max(l, pixels == null ? 0 : pixels.getWidth()),
+                    Math.max(h, pixels == null ? 0 : pixels.getHeight()), BufferedImage.TYPE_INT_RGB);
+        }
+        int[] rgb = ((DataBufferInt) pixels.getRaster().getDataBuffer()).getData();
+        int ligne = pixels.getWidth();
+        for (int i = i0; i <= i1; i++) {
+            for (int j = j0; j <= j1; j++) {
+                int niveau = niveaux == null ? 0 : niveaux.applyAsInt(i, j);
+                atlas.copie(AtlasTuiles.tuile(p, i, j), niveau, rgb, (j - j0) * taille * ligne + (i - i0) * taille, ligne);
+            }
+        }
+        int x = (i0-1)*taille, y = (j0-1)*taille;
+        g.drawImage(pixels, x, y, x + l, y + h, 0, 0, l, h, null);
+    }
+
+    /**
+     * Image de tout le plateau [p], hors écran ; [image] est réutilisée si
+     * elle a la bonne taille, ce qui évite d'en allouer une par image
+     * d'une relecture.
+     */
+    BufferedImage image(Plateau p, IntBinaryOperator niveaux, BufferedImage image) {
+        int l = (p.getLargeur() - 2) * taille, h = (p.getHauteur() - 2) * taille;
+        if (image == null || image.getWidth() != l || image.getHeight() != h) {
+            image = new BufferedImage(l, h, BufferedImage.TYPE_INT_RGB);
+        }
+        Graphics g = image.getGraphics();
+        dessine(g, p, new Rectangle(0, 0, l, h), niveaux);
+        g.dispose();
+        return image;
+    }
+}
+
+/**
+ * Atlas des tuiles : une seule image où chaque tuile est dessinée une
+ * fois pour toutes, pour chaque niveau de risque (une ligne par niveau,
+ * une colonne par tuile). Afficher une case revient à copier un rectangle
+ * de l'atlas ; l'atlas ne changeant plus, Java2D peut le garder en mémoire
+ * vidéo et y faire ses copies.
+ *
+ * Les tuiles : la mer, les cases submergées, et pour chaque fond (terre,
+ * héliport, les quatre [Artefact], aventurier) une tuile sèche et une
+ * inondée.
+ *
+ * Un atlas est construit par taille de case et gardé : revenir à un zoom
+ * déjà vu ne coûte rien.
+ */
+final class AtlasTuiles {
+    /** Fonds des tuiles de terre ; la tuile est [2 * fond], ou [2 * fond + 1] si inondée. */
+    private static final int TERRE = 0, HELIPORT = 1, ARTEFACTS = 2, AVENTURIER = 6;
+    static final int MER = 14, SUBMERGEE = 15, TUILES = 16;
+    private static final Color C_MER = Color.BLUE.darker(), C_SUBMERGEE = C_MER.darker(),
+            C_TERRE = Color.WHITE, C_INONDEE = Color.CYAN, C_HELIPORT = Color.DARK_GRAY,
+            C_AVENTURIER = new Color(0, 160, 0), C_VAGUE = new Color(0, 140, 200);
+    /** Couleurs des quatre artefacts, dans l'ordre de [Artefact]. */
+    private static final Color[] C_ARTEFACTS = { new Color(200, 60, 220), new Color(210, 140, 40),
+            new Color(230, 200, 0), new Color(130, 130, 130) };
+    /** Opacité du rouge au niveau de risque le plus haut, sur 255. */
+    private static final int OPACITE_RISQUE = 176;
+
+    private static final Map<Integer, AtlasTuiles> ATLAS = new HashMap<>();
+
+    private final int taille;
+    private final BufferedImage image;
+    /** Les pixels de l'atlas, en RGB, ligne par ligne, pour [copie] ; sous [RenduGrille.SEUIL] seulement. */
+    private final int[] pixels;
+    private final int largeur;
+
+    /** L'atlas des cases de [taille] pixels, construit au premier appel. */
+    static synchronized AtlasTuiles pour(int taille) {
+        return ATLAS.computeIfAbsent(taille, AtlasTuiles::new);
+    }
+
+    private AtlasTuiles(int taille) {
+        this.taille = taille;
+        int l = TUILES * taille, h = CarteRisques.NIVEAUX * taille;
+        this.image = GraphicsEnvironment.isHeadless() ? new BufferedImage(l, h, BufferedImage.TYPE_INT_RGB)
+                : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                        .getDefaultConfiguration().createCompatibleImage(l, h, Transparency.OPAQUE);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        for (int t = 0; t < TUILES; t++) {
+            Graphics2D gt = (Graphics2D) g.create(t * taille, 0, taille, taille);
+            dessineTuile(gt, t);
+            gt.dispose();
+        }
+        /** Les lignes des niveaux de risque : la ligne 0 teintée de rouge. */
+        for (int n = 1; n < CarteRisques.NIVEAUX; n++) {
+            g.drawImage(image, 0, n * taille, l, (n + 1) * taille, 0, 0, l, taille, null);
+            float a = OPACITE_RISQUE / 255f * n / (CarteRisques.NIVEAUX - 1);
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, a));
+            g.setColor(Color.RED);
+            g.fillRect(0, n * taille, l, taille);
+            g.setComposite(AlphaComposite.SrcOver);
+        }
+        g.dispose();
+        this.largeur = l;
+        this.pixels = taille < RenduGrille.SEUIL ? image.getRGB(0, 0, l, h, null, 0, l) : null;
+    }
+
+    /** Tuile à afficher pour la case [x, y] de [p]. */
+    static int tuile(Plateau p, int x, int y) {
+        if (p.isMer(x, y)) return MER;
+        int etat = p.getEtat(x, y);
+        int fond;
+        if (p.isAventurier(x, y)) fond = AVENTURIER;
+        else if (etat == -1) return SUBMERGEE;
+        else if (p.isHeliport(x, y)) fond = HELIPORT;
+        else if (p.isArtefact(x, y)) fond = ARTEFACTS + p.getArtefact(x, y).ordinal();
+        else fond = TERRE;
+        return 2 * fond + (etat < 1 ? 1 : 0);
+    }
+
+    /** Copie la tuile [tuile], au niveau de risque [niveau], au point [x, y] de [g]. */
+    void dessine(Graphics g, int tuile, int niveau, int x, int y) {
+        int sx = tuile * taille, sy = niveau * taille;
+        g.drawImage(image, x, y, x + taille, y + taille, sx, sy, sx + taille, sy + taille, null);
+    }
+
+    /**
+     * Copie les pixels de la tuile [tuile], au niveau [niveau], dans [rgb]
+     * à partir de l'indice [debut], les lignes étant espacées de [ligne].
+     */
+    void copie(int tuile, int niveau, int[] rgb, int debut, int ligne) {
+        int k = niveau * taille * largeur + tuile * taille;
+        if (taille == 1) {
+            rgb[debut] = pixels[k];
+            return;
+        }
+        for (int dy = 0; dy < taille; dy++, k += largeur, debut += ligne) {
+            System.arraycopy(pixels, k, rgb, debut, taille);
+        }
+    }
+
+    /** Dessin de la tuile [t] dans le carré [0, taille[ de [g]. */
+    private void dessineTuile(Graphics2D g, int t) {
+        if (t == MER || t == SUBMERGEE) {
+            g.setColor(t == MER ? C_MER : C_SUBMERGEE);
+            g.fillRect(0, 0, taille, taille);
+            return;
+        }
+        int fond = t / 2;
+        boolean inondee = t % 2 == 1;
+        g.setColor(fond == HELIPORT ? C_HELIPORT : inondee ? C_INONDEE : C_TERRE);
+        g.fillRect(0, 0, taille, taille);
+        if (inondee && fond == HELIPORT) {
+            g.setColor(C_INONDEE);
+            g.fillRect(0, taille / 2, taille, taille - taille / 2);
+        }
+        if (inondee && taille >= 8) vagues(g);
+        int m = taille / 8, d = taille - 2 * m;
+        if (fond == HELIPORT && taille >= 12) {
+            g.setColor(Color.WHITE);
+            g.setFont(new Font(Font.SANS_SERIF, Font.BOLD, d));
+            int w = g.getFontMetrics().stringWidth("H");
+            g.drawString("H", (taille - w) / 2, taille - m - d / 8);
+        } else if (fond >= ARTEFACTS && fond < AVENTURIER) {
+            artefact(g, fond - ARTEFACTS, m, d);
+        } else if (fond == AVENTURIER) {
+            g.setColor(C_AVENTURIER);
+            g.fillOval(m, m, d, d);
+        }
+        if (taille >= 8) {
+            g.setColor(new Color(0, 0, 0, 40));
+            g.drawRect(0, 0, taille - 1, taille - 1);
+        }
+    }
+
+    /** Deux lignes de vagues, pour les cases inondées. */
+    private void vagues(Graphics2D g) {
+        g.setColor(C_VAGUE);
+        g.setStroke(new BasicStroke(Math.max(1, taille / 24f)));
+        int a = Math.max(2, taille / 8);
+        for (int k = 1; k <= 2; k++) {
+            int y = k * taille / 3;
+            for (int x = 0; x < taille; x += 2 * a) g.drawArc(x, y - a / 2, a, a, 0, 180);
+        }
+    }
+
+    /** Les quatre artefacts, de formes et de couleurs différentes. */
+    private void artefact(Graphics2D g, int k, int m, int d) {
+        g.setColor(C_ARTEFACTS[k]);
+        int c = taille / 2;
+        switch (k) {
+            case 0: // Cristal : un losange.
+                g.fillPolygon(new Polygon(new int[] { c, m + d, c, m }, new int[] { m, c, m + d, c }, 4));
+                break;
+            case 1: // Statue : un socle et une tête.
+                g.fillRect(m + d / 4, m + d / 2, d / 2, d / 2);
+                g.fillOval(m + d / 3, m, d / 3, d / 2);
+                break;
+            case 2: // Calice : une coupe sur un pied.
+                g.fillArc(m, m - d / 4, d, d, 180, 180);
+                g.fillRect(c - Math.max(1, d / 12), m + d / 4, Math.max(1, d / 6), d / 2);
+                g.fillRect(m + d / 4, m + 3 * d / 4, d / 2, Math.max(1, d / 8));
+                break;
+            default: // Pierre : un disque.
+                g.fillOval(m, m, d, d);
+                break;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package pogl;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serveur de parties : chaque connexion est une partie indépendante, avec
+ * son propre [CModele], jouée par le client au moyen du protocole binaire
+ * de [Protocole].
+ *
+ * Le serveur écoute sur la boucle locale, en TCP, ou sur une socket du
+ * domaine Unix. Chaque connexion a son fil ([Fils.demarre] : virtuel sur
+ * un JDK qui le permet), qui lit les commandes en mode bloquant et les
+ * applique au modèle de la session : le modèle ne quitte jamais ce fil,
+ * et les sessions ne partagent rien, hormis les compteurs du serveur.
+ *
+ * Le temps de traitement de chaque commande (de sa lecture à l'envoi de
+ * la réponse) est noté dans l'histogramme de la session, versé
+ * régulièrement dans celui du serveur (voir [bilan]).
+ */
+class ServeurParties implements Closeable {
+    /** Taille de la file d'attente des connexions : les clients arrivent par milliers. */
+    private static final int ATTENTE = 4096;
+    /** Nombre de commandes après lequel une session verse ses latences au serveur. */
+    private static final int VERSEMENT = 1024;
+
+    private final ServerSocketChannel canal;
+    private final SocketAddress adresse;
+    /** Chemin de la socket Unix, effacé à la fermeture, ou [null]. */
+    private final Path chemin;
+    private final Thread accueil;
+    private final AtomicInteger ouvertes = new AtomicInteger();
+    private final AtomicLong sessions = new AtomicLong(), commandes = new AtomicLong();
+    /** Latences des commandes, en nanosecondes ; protégé par lui-même. */
+    private final Histogramme latences = new Histogramme();
+
+    private ServeurParties(ServerSocketChannel canal, Path chemin) throws IOException {
+        this.canal = canal;
+        this.adresse = canal.getLocalAddress();
+        this.chemin = chemin;
+        this.accueil = Fils.demarre("serveur-parties", this::accueille);
+    }
+
+    /** Serveur TCP sur la boucle locale ; le port 0 en choisit un libre. */
+    static ServeurParties tcp(int port) throws IOException {
+        ServerSocketChannel c = ServerSocketChannel.open();
+        c.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), ATTENTE);
+        return new ServeurParties(c, null);
+    }
+
+    /** Serveur sur une socket du domaine Unix, créée au chemin [chemin]. */
+    static ServeurParties unix(Path chemin) throws IOException {
+        Files.deleteIfExists(chemin);
+        ServerSocketChannel c = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        c.bind(UnixDomainSocketAddress.of(chemin), ATTENTE);
+        return new ServeurParties(c, chemin);
+    }
+
+    /**
+     * Adresse d'écoute d'après un argument de la ligne de commande : un
+     * numéro de port TCP, ou le chemin d'une socket Unix.
+     */
+    static ServeurParties ouvre(String adresse) throws IOException {
+        return adresse.chars().allMatch(Character::isDigit)
+                ? tcp(Integer.parseInt(adresse)) : unix(Path.of(adresse));
+    }
+
+    public SocketAddress getAdresse() { return adresse; }
+
+    /** Nombre de sessions en cours. */
+    public int getOuvertes() { return ouvertes.get(); }
+
+    public long getCommandes() { return commandes.get(); }
+
+    /** Sessions et latences depuis le démarrage. */
+    public String bilan() {
+        synchronized (latences) {
+            return "sessions : " + sessions.get() + " (" + ouvertes.get() + " en cours), commandes : "
+                    + commandes.get() + "\nlatences serveur : " + latences;
+        }
+    }
+
+    public void close() throws IOException {
+        canal.close();
+        accueil.interrupt();
+        if (chemin != null) Files.deleteIfExists(chemin);
+    }
+
+    private void accueille() {
+        try {
+            while (true) {
+                SocketChannel client = canal.accept();
+                long n = sessions.incrementAndGet();
+                Fils.demarre("session-" + n, () -> session(client));
+            }
+        } catch (ClosedChannelException e) {
+            // Fermeture du serveur.
+        } catch (IOException e) {
+            System.err.println("serveur arrêté : " + e);
+        }
+    }
+
+    /** Une partie, de l'ouverture de la connexion à sa fermeture. */
+    private void session(SocketChannel client) {
+        ouvertes.incrementAndGet();
+        Histogramme locales = new Histogramme();
+        try (client) {
+            ByteBuffer entree = ByteBuffer.allocate(Protocole.OUVERTURE);
+            Protocole.litTout(client, entree);
+            CModele modele = Protocole.ouvre(entree);
+            ByteBuffer sortie = ByteBuffer.allocate(Protocole.ETAT * Protocole.LOT);
+            if (modele == null) {
+                Protocole.etat(sortie, null, Protocole.REFUSEE);
+                sortie.flip();
+                Protocole.ecritTout(client, sortie);
+                return;
+            }
+            Protocole.etat(sortie, modele, 0);
+            sortie.flip();
+            Protocole.ecritTout(client, sortie);
+            /**
+             * Les commandes peuvent arriver à la suite, sans attendre les
+             * réponses : on traite tout ce qui a été lu, puis on renvoie
+             * les réponses d'un seul envoi.
+             */
+            entree = ByteBuffer.allocate(Protocole.LOT);
+            while (true) {
+                entree.clear();
+                if (client.read(entree) < 0) return;
+                entree.flip();
+                sortie.clear();
+                long debut = System.nanoTime();
+                int n = 0;
+                while (entree.hasRemaining()) {
+                    byte code = entree.get();
+                    if (code == Protocole.FIN) {
+                        sortie.flip();
+                        Protocole.ecritTout(client, sortie);
+                        return;
+                    }
+                    Commande c = Protocole.commande(code);
+                    if (c != null) c.applique(modele);
+                    Protocole.etat(sortie, modele, c == null ? Protocole.REFUSEE : 0);
+                    n++;
+                }
+                sortie.flip();
+                Protocole.ecritTout(client, sortie);
+                // Le lot est compté comme [n] commandes de même durée.
+                long duree = (System.nanoTime() - debut) / Math.max(1, n);
+                for (int k = 0; k < n; k++) locales.ajoute(duree);
+                commandes.addAndGet(n);
+                if (locales.getNombre() >= VERSEMENT) verse(locales);
+            }
+        } catch (IOException e) {
+            // Connexion coupée par le client : la session s'arrête.
+        } finally {
+            verse(locales);
+            ouvertes.decrementAndGet();
+        }
+    }
+
+    private void verse(Histogramme locales) {
+        synchronized (latences) {
+            latences.fusionne(locales);
+        }
+        locales.vide();
+    }
+}
+
+/**
+ * Protocole binaire des parties en réseau (voir [ServeurParties]).
+ *
+ * Ouverture, du client vers le serveur, [OUVERTURE] octets :
+ *   version (1 octet), graine (8), largeur (2), hauteur (2) ;
+ *   une largeur nulle demande la carte classique ; au-delà de
+ *   [COTE_MAX] cases de côté, l'ouverture est refusée.
+ * Puis, dans les deux sens, en gros-boutien :
+ *   - client : un octet par commande, le code de [Commande.code] (les
+ *     codes de l'enregistrement), ou [FIN] pour terminer ;
+ *   - serveur : un état de [ETAT] octets par commande, et un après
+ *     l'ouverture : indicateurs (1), x (2), y (2), actions (1), tour (2).
+ * Le client peut envoyer plusieurs commandes sans attendre les réponses,
+ * qui arrivent dans l'ordre.
+ */
+final class Protocole {
+    static final byte VERSION = 1;
+    static final int OUVERTURE = 13, ETAT = 8;
+    /** Nombre de commandes lues, et de réponses envoyées, d'un coup au plus. */
+    static final int LOT = 256;
+    static final byte FIN = 0x7F;
+    /** Indicateurs de l'état. */
+    static final int GAGNEE = 1, PERDUE = 2, ARTEFACT = 4, REFUSEE = 8;
+    /** Plus grand côté d'île accepté : un client ne peut pas faire allouer un plateau démesuré. */
+    static final int COTE_MAX = 1024;
+
+    private Protocole() { }
+
+    /** Message d'ouverture d'une partie ; [largeur] nulle pour la carte classique. */
+    static ByteBuffer ouverture(long graine, int largeur, int hauteur) {
+        ByteBuffer b = ByteBuffer.allocate(OUVERTURE);
+        b.put(VERSION).putLong(graine).putShort((short) largeur).putShort((short) hauteur);
+        return b.flip();
+    }
+
+    /** Le modèle demandé par un message d'ouverture, ou [null] s'il est invalide. */
+    static CModele ouvre(ByteBuffer b) {
+        b.flip();
+        if (b.get() != VERSION) return null;
+        long graine = b.getLong();
+        int largeur = Short.toUnsignedInt(b.getShort()), hauteur = Short.toUnsignedInt(b.getShort());
+        if (largeur > COTE_MAX || hauteur > COTE_MAX) return null;
+        CModele modele;
+        try {
+            modele = largeur == 0 ? new CModele(graine) : new CModele(largeur, hauteur, graine);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        modele.setTrace(false);
+        modele.setHistorique(true);
+        return modele;
+    }
+
+    /** La commande du code [code], ou [null] s'il n'en désigne aucune. */
+    static Commande commande(byte code) {
+        return Commande.decode(code);
+    }
+
+    /** Ajoute à [b] l'état de [modele] (ou un état vide), avec les [indicateurs] donnés. */
+    static void etat(ByteBuffer b, CModele modele, int indicateurs) {
+        if (modele == null) {
+            b.put((byte) indicateurs).putShort((short) 0).putShort((short) 0).put((byte) 0).putShort((short) 0);
+            return;
+        }
+        Aventurier a = modele.getAventurier();
+        if (modele.estGagnee()) indicateurs |= GAGNEE;
+        else if (modele.estPerdue()) indicateurs |= PERDUE;
+        if (a.haveArtefact()) indicateurs |= ARTEFACT;
+        b.put((byte) indicateurs).putShort((short) a.getPositionX()).putShort((short) a.getPositionY())
+                .put((byte) a.getNumberAction()).putShort((short) modele.getTour());
+    }
+
+    static void litTout(ByteChannel c, ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) {
+            if (c.read(b) < 0) throw new EOFException();
+        }
+    }
+
+    static void ecritTout(ByteChannel c, ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) c.write(b);
+    }
+}
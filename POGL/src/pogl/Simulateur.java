@@ -0,0 +1,210 @@
+package pogl;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+/**
+ * Interface des politiques de jeu : à chaque appel, la politique choisit
+ * la prochaine action à jouer sur le modèle.
+ */
+interface Politique {
+    Action choisit(CModele modele, SplittableRandom rand);
+
+    /** Politique de référence : une action tirée au hasard. */
+    Politique ALEATOIRE = (modele, rand) -> Action.TOUTES[rand.nextInt(Action.TOUTES.length)];
+
+    /**
+     * Politique gloutonne : ramasser l'artefact si possible, assécher ce
+     * qui peut l'être, puis avancer d'un pas sur un plus court chemin vers
+     * l'artefact, ou vers l'héliport une fois l'artefact en poche.
+     */
+    Politique GLOUTONNE = (modele, rand) -> {
+        if (modele.estPossible(Action.RECUPERE)) return Action.RECUPERE;
+        for (int k = Action.ASSECHE_S.ordinal(); k <= Action.ASSECHE_G.ordinal(); k++) {
+            if (modele.estPossible(Action.TOUTES[k])) return Action.TOUTES[k];
+        }
+        if (modele.getAventurier().getNumberAction() > 0) {
+            boolean porte = modele.getAventurier().haveArtefact();
+            List<Action> chemin = porte ? modele.trajet(modele.getHeliportX(), modele.getHeliportY())
+                    : modele.trajet(modele.getArtefactX(), modele.getArtefactY());
+            if (!chemin.isEmpty()) return chemin.get(0);
+        }
+        return Action.PASSE;
+    };
+}
+
+
+/**
+ * Le simulateur : joue des parties complètes sans interface graphique.
+ *
+ * Chaque partie possède son propre [CModele], construit à partir d'une
+ * graine : une partie est donc entièrement reproductible. Les lots de
+ * parties sont découpés et répartis sur un [ForkJoinPool], chaque feuille
+ * jouant ses parties de manière séquentielle.
+ */
+class Simulateur {
+    /** Nombre de parties en dessous duquel on ne découpe plus un lot. */
+    private static final int SEUIL = 256;
+    /**
+     * Une politique peut choisir indéfiniment des actions gratuites (les
+     * assèchements ne coûtent rien) : on force la fin du tour au-delà.
+     */
+    private static final int ACTIONS_MAX_PAR_TOUR = 16;
+
+    private final int toursMax;
+    private final ForkJoinPool pool;
+    /** Fabrique des modèles à partir d'une graine : la carte classique par défaut. */
+    private final LongFunction<CModele> modeles;
+    /** Si non nul, chaque partie des lots y est enregistrée (voir [Enregistreur]). */
+    private Enregistreur enregistreur;
+
+    public Simulateur(int toursMax) {
+        this(toursMax, ForkJoinPool.commonPool());
+    }
+
+    public Simulateur(int toursMax, ForkJoinPool pool) {
+        this(toursMax, pool, CModele::new);
+    }
+
+    /** Simulation sur d'autres cartes, par exemple [g -> new CModele(64, 64, g)]. */
+    public Simulateur(int toursMax, ForkJoinPool pool, LongFunction<CModele> modeles) {
+        this.toursMax = toursMax;
+        this.pool = pool;
+        this.modeles = modeles;
+    }
+
+    /** Enregistre les parties des prochains lots, sous leur indice dans le lot. */
+    public void setEnregistreur(Enregistreur enregistreur) { this.enregistreur = enregistreur; }
+
+    /**
+     * Joue une partie complète et l'ajoute au bilan.
+     * Le modèle et l'aléa de la politique dérivent tous deux de [graine].
+     */
+    public void joue(long graine, Politique politique, Bilan bilan) {
+        joue(graine, politique, bilan, null);
+    }
+
+    /** Variante qui note les actions jouées dans [tampon], s'il est non nul. */
+    private void joue(long graine, Politique politique, Bilan bilan, PartieEnregistree tampon) {
+        CModele modele = modeles.apply(graine);
+        if (tampon != null) tampon.debut(modele);
+        modele.setTrace(false);
+        SplittableRandom rand = new SplittableRandom(~graine);
+        int tours = 0, actions = 0;
+        while (tours < toursMax && !modele.estGagnee() && !modele.estPerdue()) {
+            int n = 0;
+            Action a;
+            do {
+                a = n < ACTIONS_MAX_PAR_TOUR ? politique.choisit(modele, rand) : Action.PASSE;
+                a.applique(modele);
+                if (tampon != null) tampon.action(a);
+                n++;
+            } while (a != Action.PASSE && !modele.estGagnee() && !modele.estPerdue());
+            actions += n;
+            if (a == Action.PASSE) {
+                tours++;
+            }
+        }
+        bilan.ajoute(modele.estGagnee(), modele.estPerdue(), tours, actions);
+    }
+
+    /**
+     * Joue [nombre] parties en parallèle. La partie d'indice [i] utilise la
+     * graine [graine(graineBase, i)] : le résultat ne dépend pas du
+     * découpage ni du nombre de cœurs.
+     */
+    public Bilan lance(long graineBase, int nombre, Supplier<Politique> politiques) {
+        return pool.invoke(new Lot(graineBase, 0, nombre, politiques));
+    }
+
+    /** Graine de la partie [indice] d'un lot (mélange SplitMix64). */
+    static long graine(long graineBase, long indice) {
+        long z = graineBase + (indice + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /** Tâche fork-join : un intervalle [debut, fin[ d'indices de parties ; jamais sérialisée. */
+    @SuppressWarnings("serial")
+    private class Lot extends RecursiveTask<Bilan> {
+        private final long graineBase;
+        private final int debut, fin;
+        private final Supplier<Politique> politiques;
+
+        Lot(long graineBase, int debut, int fin, Supplier<Politique> politiques) {
+            this.graineBase = graineBase;
+            this.debut = debut;
+            this.fin = fin;
+            this.politiques = politiques;
+        }
+
+        protected Bilan compute() {
+            if (fin - debut <= SEUIL) {
+                Bilan bilan = new Bilan();
+                Politique politique = politiques.get();
+                Enregistreur e = enregistreur;
+                PartieEnregistree tampon = e == null ? null : new PartieEnregistree();
+                for (int i = debut; i < fin; i++) {
+                    joue(graine(graineBase, i), politique, bilan, tampon);
+                    if (e != null) e.ajoute(i, tampon);
+                }
+                return bilan;
+            }
+            int milieu = (debut + fin) >>> 1;
+            Lot gauche = new Lot(graineBase, debut, milieu, politiques);
+            gauche.fork();
+            Bilan droite = new Lot(graineBase, milieu, fin, politiques).compute();
+            return gauche.join().fusionne(droite);
+        }
+    }
+}
+
+/**
+ * Résultats cumulés d'un lot de parties.
+ * Un bilan n'est pas partagé entre threads : chaque feuille du lot remplit
+ * le sien, et les bilans sont fusionnés en remontant.
+ */
+class Bilan {
+    private long parties, victoires, defaites, tours, actions;
+
+    void ajoute(boolean gagnee, boolean perdue, int tours, int actions) {
+        this.parties++;
+        if (gagnee) this.victoires++;
+        else if (perdue) this.defaites++;
+        this.tours += tours;
+        this.actions += actions;
+    }
+
+    Bilan fusionne(Bilan autre) {
+        this.parties += autre.parties;
+        this.victoires += autre.victoires;
+        this.defaites += autre.defaites;
+        this.tours += autre.tours;
+        this.actions += autre.actions;
+        return this;
+    }
+
+    public long getParties() { return parties; }
+
+    public long getVictoires() { return victoires; }
+
+    public long getDefaites() { return defaites; }
+
+    /** Parties arrêtées par la limite de tours, ni gagnées ni perdues. */
+    public long getAbandons() { return parties - victoires - defaites; }
+
+    public double getToursMoyens() { return parties == 0 ? 0 : (double) tours / parties; }
+
+    public long getActions() { return actions; }
+
+    public String toString() {
+        return "parties : " + parties + ", victoires : " + victoires
+                + ", défaites : " + defaites + ", abandons : " + getAbandons()
+                + ", tours moyens : " + String.format("%.2f", getToursMoyens());
+    }
+}
@@ -0,0 +1,415 @@
+package pogl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Le solveur : cherche une suite d'actions qui gagne la partie, à partir
+ * de l'état actuel d'un [CModele].
+ *
+ * L'aléa du modèle fait partie de son état : depuis un état donné, les
+ * inondations à venir sont connues, et la recherche est exacte. C'est
+ * une recherche en profondeur itérative (IDA*) : chaque itération explore
+ * les suites dont la longueur, plus une estimation optimiste de ce qui
+ * reste à jouer (voir [estimation]), ne dépasse pas une limite, qui
+ * augmente d'une itération à l'autre.
+ *
+ * Les premiers niveaux de l'arbre sont découpés en tâches sur un
+ * [ForkJoinPool], chacune sur sa branche du modèle ([CModele.branche]) ;
+ * en dessous, chaque tâche explore son sous-arbre seule, en revenant en
+ * arrière par [CModele.sauve] et [CModele.restaure], qui ne copient pas
+ * le plateau. La recherche s'arrête à la première solution, ou lorsque
+ * le budget de noeuds ou le temps sont épuisés.
+ *
+ * Les sous-arbres déjà explorés sans succès sont rangés dans une table de
+ * transpositions ([TableTranspositions]), sous l'empreinte de leur
+ * position : une position atteinte par un autre chemin, par n'importe
+ * quelle tâche, n'est pas explorée de nouveau si la profondeur restante
+ * ne dépasse pas celle déjà explorée. La table sert d'une itération et
+ * d'une résolution à l'autre.
+ *
+ * Le mode Monte-Carlo ([estime]) mesure la difficulté d'une carte plutôt
+ * que d'une partie : la même position est résolue pour de nombreux tirages
+ * des inondations, en parallèle.
+ */
+class Solveur {
+    /** Profondeur (en actions) jusqu'à laquelle les sous-arbres sont des tâches séparées. */
+    private static final int PROFONDEUR_PARALLELE = 3;
+    /** Nombre de noeuds visités par une tâche entre deux contrôles du budget et du temps. */
+    private static final int PAS_CONTROLE = 1024;
+    /** Nombre d'entrées de la table de transpositions par défaut (16 Mo). */
+    private static final int TAILLE_TABLE = 1 << 20;
+    /** Renvoyé par [Noeud.cherche] quand la recherche est finie, et [EPUISE] quand un sous-arbre l'est. */
+    private static final int ARRET = Integer.MIN_VALUE, EPUISE = Integer.MAX_VALUE;
+    /** Actions rechargées à chaque tour (voir [Aventurier.resetNumberAction]). */
+    private static final int ACTIONS_PAR_TOUR = 3;
+    /** Ordre d'essai des actions : récupérer d'abord, passer le tour en dernier. */
+    private static final Action[] ORDRE = {
+        Action.RECUPERE, Action.MONTE, Action.DESCEND, Action.DROITE, Action.GAUCHE,
+        Action.ASSECHE_S, Action.ASSECHE_H, Action.ASSECHE_B, Action.ASSECHE_D, Action.ASSECHE_G,
+        Action.PASSE
+    };
+
+    private final int profondeurMax;
+    private final long noeudsMax;
+    private final long dureeMax;
+    private final ForkJoinPool pool;
+    private TableTranspositions table = new TableTranspositions(TAILLE_TABLE);
+    /** Profondeur des tâches séparées ; 0 pour une recherche entière dans le fil appelant. */
+    private int profondeurParallele = PROFONDEUR_PARALLELE;
+
+    public Solveur(int profondeurMax, long noeudsMax, Duration dureeMax) {
+        this(profondeurMax, noeudsMax, dureeMax, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Solveur cherchant des solutions d'au plus [profondeurMax] actions,
+     * en visitant au plus [noeudsMax] positions et pendant au plus
+     * [dureeMax] par résolution ([null] : sans limite de temps).
+     */
+    public Solveur(int profondeurMax, long noeudsMax, Duration dureeMax, ForkJoinPool pool) {
+        this.profondeurMax = profondeurMax;
+        this.noeudsMax = noeudsMax;
+        this.dureeMax = dureeMax == null ? Long.MAX_VALUE : dureeMax.toNanos();
+        this.pool = pool;
+    }
+
+    /** Table de transpositions à utiliser, éventuellement partagée ; [null] pour s'en passer. */
+    public void setTable(TableTranspositions table) { this.table = table; }
+
+    /**
+     * Recherche parallèle (par défaut) ou entière dans le fil appelant.
+     * Sans parallélisme, ni table, ni limite de temps, l'ordre de visite et
+     * le compte des noeuds ne dépendent que de la position : l'issue d'une
+     * résolution, interrompue ou non, est reproductible.
+     */
+    public void setParallele(boolean parallele) { this.profondeurParallele = parallele ? PROFONDEUR_PARALLELE : 0; }
+
+    /** Cherche une solution depuis l'état actuel de [modele], sans le modifier. */
+    public Solution resous(CModele modele) {
+        if (table != null) table.nouvelleGeneration();
+        long debut = System.nanoTime();
+        Recherche r = new Recherche(debut);
+        CModele depart = modele.branche();
+        if (depart.estGagnee()) return new Solution(Issue.TROUVEE, new Action[0], 0, 0);
+        int limite = estimation(depart);
+        while (!depart.estPerdue() && limite <= profondeurMax) {
+            r.prochaine.set(Integer.MAX_VALUE);
+            Noeud racine = new Noeud(r, depart, new byte[0], limite);
+            if (ForkJoinTask.inForkJoinPool()) racine.invoke();
+            else pool.invoke(racine);
+            if (r.solution.get() != null || r.interrompue) break;
+            // Aucune position n'a dépassé la limite : l'arbre est épuisé.
+            if (r.prochaine.get() == Integer.MAX_VALUE) break;
+            limite = r.prochaine.get();
+        }
+        byte[] s = r.solution.get();
+        long duree = System.nanoTime() - debut;
+        if (s != null) {
+            Action[] actions = new Action[s.length];
+            for (int k = 0; k < s.length; k++) actions[k] = Action.TOUTES[s[k]];
+            return new Solution(Issue.TROUVEE, actions, r.noeuds.get(), duree);
+        }
+        return new Solution(r.interrompue ? Issue.INTERROMPUE : Issue.IMPOSSIBLE, null, r.noeuds.get(), duree);
+    }
+
+    /**
+     * Mode Monte-Carlo : résout la position de [modele] pour [tirages]
+     * suites d'inondations différentes, dérivées de [graine], et compte
+     * celles qui peuvent être gagnées.
+     */
+    public Estimation estime(CModele modele, int tirages, long graine) {
+        CModele depart = modele.branche();
+        Tirages t = new Tirages(depart, graine, 0, tirages);
+        return ForkJoinTask.inForkJoinPool() ? t.invoke() : pool.invoke(t);
+    }
+
+    /**
+     * Estimation optimiste du nombre d'actions restant à jouer : les
+     * déplacements jusqu'à l'artefact puis l'héliport, sans obstacle, les
+     * fins de tour nécessaires pour les payer, et la récupération.
+     */
+    static int estimation(CModele m) {
+        Aventurier a = m.getAventurier();
+        int x = a.getPositionX(), y = a.getPositionY();
+        int hx = m.getHeliportX(), hy = m.getHeliportY();
+        int deplacements, recupere;
+        if (a.haveArtefact()) {
+            deplacements = Math.abs(x - hx) + Math.abs(y - hy);
+            recupere = 0;
+        } else {
+            int ax = m.getArtefactX(), ay = m.getArtefactY();
+            deplacements = Math.abs(x - ax) + Math.abs(y - ay) + Math.abs(ax - hx) + Math.abs(ay - hy);
+            recupere = 1;
+        }
+        int reste = a.getNumberAction();
+        int passes = deplacements > reste ? (deplacements - reste + ACTIONS_PAR_TOUR - 1) / ACTIONS_PAR_TOUR : 0;
+        return deplacements + passes + recupere;
+    }
+
+    /**
+     * Un déplacement qui défait le précédent ne fait que perdre deux
+     * actions : ces suites sont écartées.
+     */
+    private static boolean inutile(byte[] chemin, int g, Action a) {
+        if (g == 0) return false;
+        Action p = Action.TOUTES[chemin[g - 1]];
+        switch (a) {
+            case MONTE: return p == Action.DESCEND;
+            case DESCEND: return p == Action.MONTE;
+            case DROITE: return p == Action.GAUCHE;
+            case GAUCHE: return p == Action.DROITE;
+            default: return false;
+        }
+    }
+
+    /** État partagé par toutes les tâches d'une résolution. */
+    private final class Recherche {
+        final long debut;
+        final AtomicLong noeuds = new AtomicLong();
+        final AtomicReference<byte[]> solution = new AtomicReference<>();
+        /** Plus petite estimation ayant dépassé la limite : la limite suivante. */
+        final AtomicInteger prochaine = new AtomicInteger(Integer.MAX_VALUE);
+        volatile boolean interrompue;
+
+        Recherche(long debut) { this.debut = debut; }
+
+        /** Ajoute [n] noeuds au compte ; renvoie vrai s'il faut s'arrêter. */
+        boolean controle(long n) {
+            if (noeuds.addAndGet(n) > noeudsMax || System.nanoTime() - debut > dureeMax) interrompue = true;
+            return arret();
+        }
+
+        boolean arret() { return interrompue || solution.get() != null; }
+
+        void depasse(int f) { prochaine.accumulateAndGet(f, Math::min); }
+    }
+
+    /** Tâche fork-join : le sous-arbre sous le modèle [m], atteint par [chemin]. */
+    @SuppressWarnings("serial")
+    private final class Noeud extends RecursiveAction {
+        private final Recherche r;
+        private final TableTranspositions table = Solveur.this.table;
+        private final CModele m;
+        private final byte[] chemin;
+        private final int limite;
+        private int compte;
+
+        Noeud(Recherche r, CModele m, byte[] chemin, int limite) {
+            this.r = r;
+            this.m = m;
+            this.chemin = chemin;
+            this.limite = limite;
+        }
+
+        protected void compute() {
+            int g = chemin.length;
+            if (g >= profondeurParallele || limite - g <= profondeurParallele) {
+                int f = cherche(Arrays.copyOf(chemin, limite), g);
+                if (f != ARRET) r.depasse(f);
+                r.controle(compte);
+                return;
+            }
+            List<Noeud> fils = new ArrayList<>();
+            for (Action a : ORDRE) {
+                if (r.arret()) return;
+                if (!m.estPossible(a) || inutile(chemin, g, a)) continue;
+                CModele b = m.branche();
+                a.applique(b);
+                byte[] suite = Arrays.copyOf(chemin, g + 1);
+                suite[g] = (byte) a.ordinal();
+                if (b.estGagnee()) {
+                    r.solution.compareAndSet(null, suite);
+                    return;
+                }
+                if (b.estPerdue()) continue;
+                int f = g + 1 + estimation(b);
+                if (f > limite) {
+                    r.depasse(f);
+                    continue;
+                }
+                fils.add(new Noeud(r, b, suite, limite));
+            }
+            r.controle(fils.size());
+            invokeAll(fils);
+        }
+
+        /**
+         * Recherche séquentielle sous la position courante de [m], à la
+         * profondeur [g] ; [chemin] a la taille de la limite. Renvoie la
+         * plus petite estimation ayant dépassé la limite dans le
+         * sous-arbre ([EPUISE] s'il n'y en a pas), ou [ARRET].
+         */
+        private int cherche(byte[] chemin, int g) {
+            if (++compte >= PAS_CONTROLE) {
+                boolean arret = r.controle(compte);
+                compte = 0;
+                if (arret) return ARRET;
+            }
+            EtatModele e = m.sauve();
+            int min = EPUISE;
+            for (Action a : ORDRE) {
+                if (!m.estPossible(a) || inutile(chemin, g, a)) continue;
+                a.applique(m);
+                chemin[g] = (byte) a.ordinal();
+                int f;
+                if (m.estGagnee()) {
+                    r.solution.compareAndSet(null, Arrays.copyOf(chemin, g + 1));
+                    f = ARRET;
+                } else if (m.estPerdue()) {
+                    f = EPUISE;
+                } else {
+                    f = g + 1 + estimation(m);
+                    if (f <= limite) f = sousArbre(chemin, g + 1);
+                }
+                m.restaure(e);
+                if (f == ARRET || r.arret()) return ARRET;
+                min = Math.min(min, f);
+            }
+            return min;
+        }
+
+        /**
+         * Le sous-arbre de la position courante, atteinte à la profondeur
+         * [g] : lu dans la table s'il y a été exploré au moins aussi
+         * profondément, sinon exploré puis rangé dans la table. La table
+         * garde l'écart entre la plus petite estimation dépassée et la
+         * profondeur, qui ne dépend pas du chemin suivi jusqu'à la position.
+         */
+        private int sousArbre(byte[] chemin, int g) {
+            if (table == null) return cherche(chemin, g);
+            long empreinte = m.getEmpreinte();
+            int reste = limite - g;
+            long t = table.cherche(empreinte);
+            if (t != TableTranspositions.ABSENT && TableTranspositions.profondeur(t) >= reste) {
+                int ecart = TableTranspositions.valeur(t);
+                return ecart == EPUISE ? EPUISE : g + ecart;
+            }
+            int f = cherche(chemin, g);
+            if (f != ARRET) table.range(empreinte, f == EPUISE ? EPUISE : f - g, reste);
+            return f;
+        }
+    }
+
+    /** Tâche fork-join du mode Monte-Carlo : les tirages [debut, fin[. */
+    @SuppressWarnings("serial")
+    private final class Tirages extends RecursiveTask<Estimation> {
+        private final CModele depart;
+        private final long graine;
+        private final int debut, fin;
+
+        Tirages(CModele depart, long graine, int debut, int fin) {
+            this.depart = depart;
+            this.graine = graine;
+            this.debut = debut;
+            this.fin = fin;
+        }
+
+        protected Estimation compute() {
+            if (fin - debut == 1) {
+                CModele m = depart.branche();
+                m.setEtatAlea(Simulateur.graine(graine, debut));
+                return new Estimation().ajoute(resous(m));
+            }
+            int milieu = (debut + fin) >>> 1;
+            Tirages gauche = new Tirages(depart, graine, debut, milieu);
+            gauche.fork();
+            Estimation droite = new Tirages(depart, graine, milieu, fin).compute();
+            return gauche.join().fusionne(droite);
+        }
+    }
+}
+
+/** Issue d'une résolution. */
+enum Issue {
+    /** Une suite gagnante a été trouvée. */
+    TROUVEE,
+    /** Aucune suite gagnante d'au plus [profondeurMax] actions n'existe. */
+    IMPOSSIBLE,
+    /** Le budget de noeuds ou le temps ont été épuisés avant la fin. */
+    INTERROMPUE
+}
+
+/** Résultat de [Solveur.resous]. */
+final class Solution {
+    private final Issue issue;
+    private final Action[] actions;
+    private final long noeuds, duree;
+
+    Solution(Issue issue, Action[] actions, long noeuds, long duree) {
+        this.issue = issue;
+        this.actions = actions;
+        this.noeuds = noeuds;
+        this.duree = duree;
+    }
+
+    public Issue getIssue() { return issue; }
+
+    public boolean estTrouvee() { return issue == Issue.TROUVEE; }
+
+    /** La suite gagnante, ou [null] si aucune n'a été trouvée. */
+    public List<Action> getActions() { return actions == null ? null : List.of(actions); }
+
+    public long getNoeuds() { return noeuds; }
+
+    /** Durée de la résolution, en nanosecondes. */
+    public long getDuree() { return duree; }
+
+    public String toString() {
+        return issue + (actions == null ? "" : " en " + actions.length + " actions " + Arrays.toString(actions))
+                + String.format(" (%d noeuds, %.1f ms)", noeuds, duree / 1e6);
+    }
+}
+
+/** Bilan du mode Monte-Carlo de [Solveur.estime]. */
+final class Estimation {
+    private int tirages, gagnables, impossibles, interrompus;
+    private long noeuds;
+
+    Estimation ajoute(Solution s) {
+        tirages++;
+        noeuds += s.getNoeuds();
+        switch (s.getIssue()) {
+            case TROUVEE: gagnables++; break;
+            case IMPOSSIBLE: impossibles++; break;
+            default: interrompus++; break;
+        }
+        return this;
+    }
+
+    Estimation fusionne(Estimation e) {
+        tirages += e.tirages;
+        gagnables += e.gagnables;
+        impossibles += e.impossibles;
+        interrompus += e.interrompus;
+        noeuds += e.noeuds;
+        return this;
+    }
+
+    public int getTirages() { return tirages; }
+
+    public int getGagnables() { return gagnables; }
+
+    public int getImpossibles() { return impossibles; }
+
+    public int getInterrompus() { return interrompus; }
+
+    public long getNoeuds() { return noeuds; }
+
+    /** Proportion des tirages gagnables. */
+    public double getTaux() { return tirages == 0 ? 0 : (double) gagnables / tirages; }
+
+    public String toString() {
+        return String.format("tirages : %d, gagnables : %d (%.1f %%), impossibles : %d, interrompus : %d, noeuds : %d",
+                tirages, gagnables, 100 * getTaux(), impossibles, interrompus, noeuds);
+    }
+}
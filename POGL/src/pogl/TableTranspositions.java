@@ -0,0 +1,73 @@
+package pogl;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Table de transpositions : un cache de taille fixe des positions déjà
+ * évaluées, indexé par leur empreinte de Zobrist ([CModele.getEmpreinte]),
+ * partagé sans verrou par les fils d'une recherche (voir [Solveur]).
+ *
+ * Chaque entrée tient dans deux [long] : la donnée, et la donnée combinée
+ * à l'empreinte par ou exclusif. Un lecteur qui croise une écriture
+ * concurrente lit une paire incohérente, qui ne correspond à aucune
+ * empreinte : elle est ignorée comme une entrée absente, sans verrou ni
+ * compare-and-set.
+ *
+ * Une donnée est une valeur sur 32 bits, une profondeur sur 8 bits et la
+ * génération de la table au moment de l'écriture. Remplacement : une
+ * entrée n'est écrasée que par une profondeur au moins égale, sauf si
+ * elle date d'une génération précédente (voir [nouvelleGeneration]).
+ */
+final class TableTranspositions {
+    /** Renvoyé par [cherche] quand l'empreinte n'est pas dans la table. */
+    static final long ABSENT = -1L;
+    static final int PROFONDEUR_MAX = 0xFF;
+
+    private final AtomicLongArray entrees;
+    private final int masque;
+    private volatile int generation;
+
+    /** Table d'au moins [taille] entrées (arrondi à une puissance de deux). */
+    TableTranspositions(int taille) {
+        int n = Integer.highestOneBit(Math.max(2, taille - 1)) << 1;
+        this.entrees = new AtomicLongArray(2 * n);
+        this.masque = n - 1;
+    }
+
+    public int getTaille() { return masque + 1; }
+
+    /** Les entrées écrites jusqu'ici deviennent remplaçables. */
+    public void nouvelleGeneration() { generation = (generation + 1) & 0xFF; }
+
+    /** La donnée rangée sous [empreinte], ou [ABSENT]. */
+    public long cherche(long empreinte) {
+        int i = indice(empreinte);
+        long cle = entrees.getOpaque(i), donnee = entrees.getOpaque(i + 1);
+        return donnee != 0 && (cle ^ donnee) == empreinte ? donnee : ABSENT;
+    }
+
+    /**
+     * Range [valeur] sous [empreinte], pour une recherche de profondeur
+     * [profondeur] (bornée à [PROFONDEUR_MAX]), selon la règle de
+     * remplacement.
+     */
+    public void range(long empreinte, int valeur, int profondeur) {
+        int p = Math.min(Math.max(profondeur, 0), PROFONDEUR_MAX);
+        int i = indice(empreinte);
+        long ancienne = entrees.getOpaque(i + 1);
+        if (ancienne != 0 && generation(ancienne) == generation && profondeur(ancienne) > p) return;
+        long donnee = (valeur & 0xFFFFFFFFL) | (long) p << 32 | (long) generation << 40 | 1L << 48;
+        entrees.setOpaque(i, empreinte ^ donnee);
+        entrees.setOpaque(i + 1, donnee);
+    }
+
+    static int valeur(long donnee) { return (int) donnee; }
+
+    static int profondeur(long donnee) { return (int) (donnee >>> 32) & 0xFF; }
+
+    private static int generation(long donnee) { return (int) (donnee >>> 40) & 0xFF; }
+
+    private int indice(long empreinte) {
+        return ((int) (empreinte ^ empreinte >>> 32) & masque) << 1;
+    }
+}
@@ -0,0 +1,53 @@
+package pogl;
+
+import java.util.Arrays;
+
+/**
+ * Tableau d'entiers indicé comme les cases du plateau ([x * hauteur + y]),
+ * alloué par pages de [PAGE] cases : une page n'existe qu'à la première
+ * écriture d'une valeur autre que [defaut]. Comme les blocs du [Plateau],
+ * les étendues de mer ne coûtent donc rien aux index qui s'en servent
+ * ([Accessibilite], [ChampDistances]).
+ *
+ * Une page couvre [PAGE] cases consécutives d'une colonne : sur une île,
+ * seules les colonnes qui traversent la terre sont allouées, et seulement
+ * autour de la terre.
+ */
+final class TableauCreux {
+    static final int DECALAGE = 8, PAGE = 1 << DECALAGE, MASQUE = PAGE - 1;
+
+    private final int[][] pages;
+    private final int defaut;
+
+    TableauCreux(int taille, int defaut) {
+        this.pages = new int[(taille + MASQUE) >>> DECALAGE][];
+        this.defaut = defaut;
+    }
+
+    int get(int i) {
+        int[] p = pages[i >>> DECALAGE];
+        return p == null ? defaut : p[i & MASQUE];
+    }
+
+    void set(int i, int v) {
+        int[] p = pages[i >>> DECALAGE];
+        if (p == null) {
+            if (v == defaut) return;
+            p = pages[i >>> DECALAGE] = new int[PAGE];
+            if (defaut != 0) Arrays.fill(p, defaut);
+        }
+        p[i & MASQUE] = v;
+    }
+
+    /** Remet toutes les cases à [defaut], en libérant les pages. */
+    void efface() { Arrays.fill(pages, null); }
+
+    /** Nombre de pages allouées, pour suivre la mémoire occupée. */
+    int nombrePages() {
+        int n = 0;
+        for (int[] p : pages) {
+            if (p != null) n++;
+        }
+        return n;
+    }
+}
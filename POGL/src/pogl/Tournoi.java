@@ -0,0 +1,413 @@
+package pogl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+/**
+ * Tournoi de politiques : chaque concurrent (une [Politique] et une règle
+ * d'inondation, voir [Inondeur]) joue les mêmes parties, sur les mêmes
+ * îles, tirées des mêmes graines que [Simulateur].
+ *
+ * Les parties sont jouées par blocs de [BLOC], répartis entre [fils] fils
+ * qui prennent chacun le bloc suivant dès qu'ils ont fini le leur. Les
+ * résultats d'un bloc et d'un concurrent sont rangés par colonnes, puis
+ * confiés à un fil d'écriture par une file bornée : le fichier est écrit
+ * au fil du tournoi, et la mémoire ne dépend pas du nombre de parties.
+ *
+ * Format du fichier, en gros-boutien :
+ *   en-tête : [MAGIQUE] (int), [VERSION] (int), nombre de concurrents
+ *   (int), puis le nom de chacun (short : longueur en octets, UTF-8) ;
+ *   puis des segments, dans l'ordre où ils sont finis :
+ *     première partie (long), nombre de parties n (int), concurrent (int),
+ *     tours (n short), cases inondées (n int), issue (n octets : [ABANDON],
+ *     [GAGNEE] ou [PERDUE]), artefact ramassé ((n + 63) / 64 long, un bit
+ *     par partie), héliport atteint (idem).
+ * Voir [relit] pour la lecture.
+ */
+class Tournoi {
+    static final int MAGIQUE = 0x54524E31; // "TRN1"
+    static final int VERSION = 1;
+    /** Nombre de parties d'un bloc : l'unité de travail des fils, et d'un segment du fichier. */
+    static final int BLOC = 4096;
+    /** Issue d'une partie. */
+    static final byte ABANDON = 0, GAGNEE = 1, PERDUE = 2;
+    /** Même limite que [Simulateur] aux actions gratuites d'un tour. */
+    private static final int ACTIONS_MAX_PAR_TOUR = 16;
+
+    private final int toursMax;
+    private final LongFunction<CModele> modeles;
+    private final List<Concurrent> concurrents = new ArrayList<>();
+    private int fils = Runtime.getRuntime().availableProcessors();
+    private final AtomicLong jouees = new AtomicLong();
+
+    /** Tournoi sur les îles [modeles(graine)], de [toursMax] tours au plus par partie. */
+    Tournoi(int toursMax, LongFunction<CModele> modeles) {
+        this.toursMax = toursMax;
+        this.modeles = modeles;
+    }
+
+    /**
+     * Inscrit un concurrent ; [regle] donne la règle d'inondation de chaque
+     * partie, une fois le modèle construit ([null] : la règle par défaut).
+     */
+    Tournoi ajoute(String nom, Supplier<Politique> politiques, Function<CModele, Inondeur> regle) {
+        concurrents.add(new Concurrent(nom, politiques, regle));
+        return this;
+    }
+
+    /** Noms des concurrents, dans l'ordre d'inscription. */
+    List<String> getNoms() {
+        List<String> noms = new ArrayList<>();
+        for (Concurrent c : concurrents) noms.add(c.nom);
+        return noms;
+    }
+
+    void setFils(int fils) { this.fils = Math.max(1, fils); }
+
+    /** Parties jouées jusqu'ici, tous concurrents confondus ; lisible pendant le tournoi. */
+    public long getJouees() { return jouees.get(); }
+
+    /**
+     * Joue [parties] parties par concurrent, à partir de [graineBase], et
+     * écrit les résultats dans [fichier]. Renvoie les statistiques de
+     * chaque concurrent, dans l'ordre d'inscription.
+     */
+    Statistiques[] lance(long graineBase, long parties, Path fichier) throws IOException, InterruptedException {
+        int c = concurrents.size();
+        Statistiques[] total = new Statistiques[c];
+        for (int k = 0; k < c; k++) total[k] = new Statistiques();
+        BlockingQueue<ByteBuffer> aEcrire = new ArrayBlockingQueue<>(2 * fils);
+        AtomicLong prochain = new AtomicLong();
+        // Première exception d'un fil de jeu : les autres s'arrêtent au bloc suivant.
+        AtomicReference<RuntimeException> echec = new AtomicReference<>();
+        try (FileChannel sortie = FileChannel.open(fichier, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Protocole.ecritTout(sortie, entete());
+            Ecrivain ecrivain = new Ecrivain(sortie, aEcrire);
+            Thread fil = Fils.demarre("tournoi-ecriture", ecrivain);
+            List<Thread> joueurs = new ArrayList<>();
+            for (int f = 0; f < fils; f++) {
+                Thread t = new Thread(() -> {
+                    try {
+                        Statistiques[] locales = joue(graineBase, parties, prochain, aEcrire, ecrivain, echec);
+                        synchronized (total) {
+                            for (int k = 0; k < c; k++) total[k].fusionne(locales[k]);
+                        }
+                    } catch (RuntimeException e) {
+                        echec.compareAndSet(null, e);
+                    }
+                }, "tournoi-" + f);
+                t.start();
+                joueurs.add(t);
+            }
+            for (Thread t : joueurs) t.join();
+            aEcrire.put(Ecrivain.FIN);
+            fil.join();
+            if (echec.get() != null) throw echec.get();
+            if (ecrivain.erreur != null) throw ecrivain.erreur;
+        }
+        return total;
+    }
+
+    private ByteBuffer entete() {
+        List<byte[]> noms = new ArrayList<>();
+        int taille = 12;
+        for (Concurrent c : concurrents) {
+            byte[] nom = c.nom.getBytes(StandardCharsets.UTF_8);
+            noms.add(nom);
+            taille += 2 + nom.length;
+        }
+        ByteBuffer b = ByteBuffer.allocate(taille).putInt(MAGIQUE).putInt(VERSION).putInt(noms.size());
+        for (byte[] nom : noms) b.putShort((short) nom.length).put(nom);
+        return b.flip();
+    }
+
+    /** Boucle d'un fil de jeu : des blocs, jusqu'à épuiser les parties. */
+    private Statistiques[] joue(long graineBase, long parties, AtomicLong prochain, BlockingQueue<ByteBuffer> aEcrire,
+                                Ecrivain ecrivain, AtomicReference<RuntimeException> echec) {
+        int c = concurrents.size();
+        Statistiques[] stats = new Statistiques[c];
+        Politique[] politiques = new Politique[c];
+        for (int k = 0; k < c; k++) {
+            stats[k] = new Statistiques();
+            politiques[k] = concurrents.get(k).politiques.get();
+        }
+        Segment segment = new Segment();
+        try {
+            for (long b = prochain.getAndIncrement(); b * BLOC < parties && ecrivain.erreur == null
+                    && echec.get() == null; b = prochain.getAndIncrement()) {
+                long premiere = b * BLOC;
+                int n = (int) Math.min(BLOC, parties - premiere);
+                for (int k = 0; k < c; k++) {
+                    segment.vide(premiere, n, k);
+                    for (int i = 0; i < n; i++) {
+                        joue(Simulateur.graine(graineBase, premiere + i), concurrents.get(k), politiques[k], segment, i);
+                        stats[k].ajoute(segment, i);
+                    }
+                    aEcrire.put(segment.encode());
+                    jouees.addAndGet(n);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return stats;
+    }
+
+    /** Une partie du concurrent [c], notée à la ligne [i] de [segment]. */
+    private void joue(long graine, Concurrent c, Politique politique, Segment segment, int i) {
+        CModele modele = modeles.apply(graine);
+        modele.setTrace(false);
+        if (c.regle != null) modele.setInondeur(c.regle.apply(modele));
+        SplittableRandom rand = new SplittableRandom(~graine);
+        Aventurier av = modele.getAventurier();
+        int tours = 0, inondations = 0;
+        boolean heliport = false;
+        while (tours < toursMax && !modele.estGagnee() && !modele.estPerdue()) {
+            int n = 0;
+            Action a;
+            do {
+                a = n < ACTIONS_MAX_PAR_TOUR ? politique.choisit(modele, rand) : Action.PASSE;
+                a.applique(modele);
+                if (av.getPositionX() == modele.getHeliportX() && av.getPositionY() == modele.getHeliportY()) {
+                    heliport = true;
+                }
+                n++;
+            } while (a != Action.PASSE && !modele.estGagnee() && !modele.estPerdue());
+            if (a == Action.PASSE) {
+                tours++;
+                inondations += modele.getInondationsTour();
+            }
+        }
+        segment.note(i, tours, inondations,
+                modele.estGagnee() ? GAGNEE : modele.estPerdue() ? PERDUE : ABANDON,
+                av.haveArtefact(), heliport);
+    }
+
+    /**
+     * Relit un fichier de tournoi, segment par segment, et renvoie les
+     * statistiques de chaque concurrent ; [noms] reçoit leurs noms.
+     */
+    static Statistiques[] relit(Path fichier, List<String> noms) throws IOException {
+        try (FileChannel entree = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            ByteBuffer b = ByteBuffer.allocate(12);
+            Protocole.litTout(entree, b);
+            b.flip();
+            if (b.getInt() != MAGIQUE || b.getInt() != VERSION) throw new IOException(fichier + " n'est pas un tournoi");
+            int c = b.getInt();
+            Statistiques[] stats = new Statistiques[c];
+            for (int k = 0; k < c; k++) {
+                stats[k] = new Statistiques();
+                ByteBuffer l = ByteBuffer.allocate(2);
+                Protocole.litTout(entree, l);
+                ByteBuffer nom = ByteBuffer.allocate(l.flip().getShort());
+                Protocole.litTout(entree, nom);
+                noms.add(new String(nom.array(), StandardCharsets.UTF_8));
+            }
+            Segment segment = new Segment();
+            ByteBuffer tete = ByteBuffer.allocate(Segment.TETE);
+            while (true) {
+                tete.clear();
+                try {
+                    Protocole.litTout(entree, tete);
+                } catch (EOFException e) {
+                    if (tete.position() == 0) return stats;
+                    throw e;
+                }
+                tete.flip();
+                long premiere = tete.getLong();
+                int n = tete.getInt(), k = tete.getInt();
+                ByteBuffer corps = ByteBuffer.allocate(Segment.taille(n) - Segment.TETE);
+                Protocole.litTout(entree, corps);
+                segment.decode(premiere, n, k, corps.flip());
+                for (int i = 0; i < n; i++) stats[k].ajoute(segment, i);
+            }
+        }
+    }
+
+    private static final class Concurrent {
+        final String nom;
+        final Supplier<Politique> politiques;
+        final Function<CModele, Inondeur> regle;
+
+        Concurrent(String nom, Supplier<Politique> politiques, Function<CModele, Inondeur> regle) {
+            this.nom = nom;
+            this.politiques = politiques;
+            this.regle = regle;
+        }
+    }
+
+    /** Fil d'écriture : les segments, dans l'ordre de la file, jusqu'à [FIN]. */
+    private static final class Ecrivain implements Runnable {
+        static final ByteBuffer FIN = ByteBuffer.allocate(0);
+
+        private final FileChannel sortie;
+        private final BlockingQueue<ByteBuffer> file;
+        /** Erreur d'écriture : les fils de jeu s'arrêtent au bloc suivant. */
+        volatile IOException erreur;
+
+        Ecrivain(FileChannel sortie, BlockingQueue<ByteBuffer> file) {
+            this.sortie = sortie;
+            this.file = file;
+        }
+
+        public void run() {
+            try {
+                for (ByteBuffer b = file.take(); b != FIN; b = file.take()) {
+                    // Après une erreur, on vide la file sans écrire jusqu'à [FIN], pour ne pas bloquer les fils de jeu.
+                    if (erreur != null) continue;
+                    try {
+                        Protocole.ecritTout(sortie, b);
+                    } catch (IOException e) {
+                        erreur = e;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Résultats d'un bloc de parties pour un concurrent, rangés par
+     * colonnes ; réutilisé d'un bloc à l'autre par le fil qui le remplit.
+     */
+    static final class Segment {
+        static final int TETE = 16;
+
+        long premiere;
+        int nombre, concurrent;
+        final short[] tours = new short[BLOC];
+        final int[] inondations = new int[BLOC];
+        final byte[] issues = new byte[BLOC];
+        final long[] artefacts = new long[BLOC / 64], heliports = new long[BLOC / 64];
+
+        static int taille(int n) { return TETE + n * (2 + 4 + 1) + 2 * 8 * ((n + 63) / 64); }
+
+        void vide(long premiere, int nombre, int concurrent) {
+            this.premiere = premiere;
+            this.nombre = nombre;
+            this.concurrent = concurrent;
+            Arrays.fill(artefacts, 0);
+            Arrays.fill(heliports, 0);
+        }
+
+        void note(int i, int t, int inondees, byte issue, boolean artefact, boolean heliport) {
+            tours[i] = (short) t;
+            inondations[i] = inondees;
+            issues[i] = issue;
+            if (artefact) artefacts[i >>> 6] |= 1L << i;
+            if (heliport) heliports[i >>> 6] |= 1L << i;
+        }
+
+        boolean artefact(int i) { return (artefacts[i >>> 6] >>> i & 1) != 0; }
+
+        boolean heliport(int i) { return (heliports[i >>> 6] >>> i & 1) != 0; }
+
+        ByteBuffer encode() {
+            ByteBuffer b = ByteBuffer.allocate(taille(nombre));
+            b.putLong(premiere).putInt(nombre).putInt(concurrent);
+            b.asShortBuffer().put(tours, 0, nombre);
+            b.position(b.position() + 2 * nombre);
+            b.asIntBuffer().put(inondations, 0, nombre);
+            b.position(b.position() + 4 * nombre);
+            b.put(issues, 0, nombre);
+            int mots = (nombre + 63) / 64;
+            b.asLongBuffer().put(artefacts, 0, mots).put(heliports, 0, mots);
+            b.position(b.position() + 16 * mots);
+            return b.flip();
+        }
+
+        /** Lecture du corps d'un segment (après [TETE]) depuis [b]. */
+        void decode(long premiere, int nombre, int concurrent, ByteBuffer b) {
+            this.premiere = premiere;
+            this.nombre = nombre;
+            this.concurrent = concurrent;
+            b.asShortBuffer().get(tours, 0, nombre);
+            b.position(b.position() + 2 * nombre);
+            b.asIntBuffer().get(inondations, 0, nombre);
+            b.position(b.position() + 4 * nombre);
+            b.get(issues, 0, nombre);
+            int mots = (nombre + 63) / 64;
+            b.asLongBuffer().get(artefacts, 0, mots).get(heliports, 0, mots);
+        }
+    }
+
+    /**
+     * Statistiques d'un concurrent, tenues en ligne : des compteurs, et des
+     * histogrammes des tours et des cases inondées pour les centiles. Comme
+     * [Bilan], chaque fil remplit les siennes, fusionnées à la fin.
+     */
+    static final class Statistiques {
+        long parties, victoires, defaites, artefacts, heliports;
+        final Histogramme tours = new Histogramme(), inondations = new Histogramme();
+        /** Nombre de parties finies après chaque nombre de tours. */
+        long[] parTours = new long[64];
+
+        void ajoute(Segment s, int i) {
+            parties++;
+            if (s.issues[i] == GAGNEE) victoires++;
+            else if (s.issues[i] == PERDUE) defaites++;
+            if (s.artefact(i)) artefacts++;
+            if (s.heliport(i)) heliports++;
+            int t = s.tours[i];
+            if (t >= parTours.length) parTours = Arrays.copyOf(parTours, Math.max(t + 1, 2 * parTours.length));
+            parTours[t]++;
+            tours.ajoute(t);
+            inondations.ajoute(s.inondations[i]);
+        }
+
+        Statistiques fusionne(Statistiques autre) {
+            parties += autre.parties;
+            victoires += autre.victoires;
+            defaites += autre.defaites;
+            artefacts += autre.artefacts;
+            heliports += autre.heliports;
+            tours.fusionne(autre.tours);
+            if (autre.parTours.length > parTours.length) parTours = Arrays.copyOf(parTours, autre.parTours.length);
+            for (int t = 0; t < autre.parTours.length; t++) parTours[t] += autre.parTours[t];
+            inondations.fusionne(autre.inondations);
+            return this;
+        }
+
+        private String pourcent(long n) { return String.format("%.2f %%", 100.0 * n / Math.max(1, parties)); }
+
+        private static String centiles(Histogramme h) {
+            return String.format("moyenne %.2f", h.getMoyenne()) + ", p50 " + h.quantile(0.5)
+                    + ", p90 " + h.quantile(0.9) + ", p99 " + h.quantile(0.99) + ", max " + h.getMax();
+        }
+
+        /** Nombre de parties finies après chaque nombre de tours, jusqu'au plus grand. */
+        String repartitionTours() {
+            StringBuilder res = new StringBuilder();
+            for (int t = 0; t < parTours.length; t++) {
+                long n = parTours[t];
+                if (n > 0) res.append(res.length() == 0 ? "" : " ").append(t).append(':').append(n);
+            }
+            return res.toString();
+        }
+
+        public String toString() {
+            return "parties : " + parties + ", victoires : " + pourcent(victoires) + ", défaites : "
+                    + pourcent(defaites) + ", artefact : " + pourcent(artefacts) + ", héliport : "
+                    + pourcent(heliports) + "\n  tours : " + centiles(tours)
+                    + "\n  cases inondées : " + centiles(inondations);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package pogl;
+
+/**
+ * Clés de Zobrist des états du jeu (voir [Plateau.getEmpreinte] et
+ * [CModele.getEmpreinte]).
+ *
+ * L'empreinte d'un état est le ou exclusif des clés de ses attributs :
+ * une case de terre, l'état d'une case, l'héliport, un artefact, le
+ * joueur... Chaque modification du plateau met l'empreinte à jour en
+ * temps constant, par un ou exclusif de la clé de l'attribut modifié.
+ *
+ * Les clés ne sont pas tirées dans une table, qui pèserait plusieurs
+ * mégaoctets pour les grandes cartes : elles sont calculées à la demande
+ * par le mélange SplitMix64 de la case et de l'attribut.
+ */
+final class Zobrist {
+    /** Attributs d'une case ; la mer, état par défaut, n'a pas de clé. */
+    static final int TERRE = 0, INONDEE = 1, SUBMERGEE = 2, HELIPORT = 3, AVENTURIER = 4;
+    /** Clé d'un artefact de type [t] : [ARTEFACT + t.ordinal()]. */
+    static final int ARTEFACT = 8;
+    /** Attributs du joueur, hors plateau. */
+    static final int ACTIONS = 0, PORTE_ARTEFACT = 64, ALEA = 65;
+
+    private Zobrist() { }
+
+    /** Clé de l'attribut [attribut] de la case [x, y]. */
+    static long cle(int x, int y, int attribut) {
+        return melange(((long) x << 32 | (y & 0xFFFFFFFFL)) * 16 + attribut + 1);
+    }
+
+    /** Clé d'un attribut du joueur : [ACTIONS + n] pour [n] actions restantes. */
+    static long cle(int attribut) {
+        return melange(~(long) attribut);
+    }
+
+    /** Mélange SplitMix64 (voir [Simulateur.graine]). */
+    static long melange(long z) {
+        z *= 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
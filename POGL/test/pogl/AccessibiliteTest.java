@@ -0,0 +1,61 @@
+package pogl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * L'index tenu à jour par [Accessibilite.submerge] doit donner, après
+ * chaque submersion, les mêmes composantes qu'un index reconstruit par un
+ * parcours complet du plateau.
+ */
+class AccessibiliteTest {
+    @Test
+    void submersionsAleatoires() {
+        for (long graine = 1; graine <= 20; graine++) {
+            Alea rand = new Alea(graine);
+            int largeur = 8 + rand.nextInt(24), hauteur = 8 + rand.nextInt(24);
+            // Terre clairsemée : beaucoup de coupes, et d'anneaux autour des cases submergées.
+            Plateau p = new Plateau(largeur, hauteur);
+            for (int x = 0; x < largeur; x++) {
+                for (int y = 0; y < hauteur; y++) {
+                    if (rand.nextInt(10) < 7) p.setTerre(x, y);
+                }
+            }
+            Accessibilite a = new Accessibilite(p, 0);
+            compare(a, new Accessibilite(p, 0), largeur, hauteur);
+            for (int k = 0; k < largeur * hauteur; k++) {
+                int x = rand.nextInt(largeur), y = rand.nextInt(hauteur);
+                if (p.isMer(x, y) || p.isSubmergee(x, y)) continue;
+                long cle = rand.nextLong();
+                while (!p.isSubmergee(x, y)) p.decreaseEtat(x, y);
+                a.submerge(x, y, cle);
+                Accessibilite neuve = new Accessibilite(p, a.getEmpreinte());
+                compare(a, neuve, largeur, hauteur);
+            }
+        }
+    }
+
+    /** Même partition des cases praticables : chaque case reliée au représentant de sa composante, et à lui seul. */
+    private static void compare(Accessibilite a, Accessibilite neuve, int largeur, int hauteur) {
+        List<int[]> representants = new ArrayList<>();
+        for (int x = 0; x < largeur; x++) {
+            for (int y = 0; y < hauteur; y++) {
+                String ici = "case " + x + ", " + y;
+                assertEquals(neuve.taille(x, y), a.taille(x, y), ici);
+                if (neuve.taille(x, y) == 0) continue;
+                int[] r = null;
+                for (int[] c : representants) {
+                    if (neuve.relies(x, y, c[0], c[1])) r = c;
+                }
+                if (r == null) representants.add(r = new int[] { x, y });
+                for (int[] c : representants) {
+                    assertEquals(c == r, a.relies(x, y, c[0], c[1]), ici + " et " + c[0] + ", " + c[1]);
+                }
+            }
+        }
+    }
+}
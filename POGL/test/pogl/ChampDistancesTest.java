@@ -0,0 +1,52 @@
+package pogl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Le champ réparé par [ChampDistances.submerge] doit donner, après chaque
+ * submersion, les distances d'un nouveau parcours en largeur complet, et
+ * des chemins de cette longueur.
+ */
+class ChampDistancesTest {
+    @Test
+    void submersionsAleatoires() {
+        for (long graine = 1; graine <= 20; graine++) {
+            Alea rand = new Alea(graine);
+            int largeur = 8 + rand.nextInt(24), hauteur = 8 + rand.nextInt(24);
+            Plateau p = new Plateau(largeur, hauteur);
+            for (int x = 0; x < largeur; x++) {
+                for (int y = 0; y < hauteur; y++) {
+                    if (rand.nextInt(10) < 8) p.setTerre(x, y);
+                }
+            }
+            int jx = largeur / 2, jy = hauteur / 2;
+            p.setTerre(jx, jy);
+            ChampDistances champ = new ChampDistances(p, jx, jy);
+            compare(champ, new ChampDistances(p, jx, jy), largeur, hauteur);
+            for (int k = 0; k < largeur * hauteur; k++) {
+                int x = rand.nextInt(largeur), y = rand.nextInt(hauteur);
+                // La case du joueur en dernier : sa submersion efface tout le champ.
+                if (p.isMer(x, y) || p.isSubmergee(x, y) || (x == jx && y == jy && k < largeur * hauteur - 1)) continue;
+                while (!p.isSubmergee(x, y)) p.decreaseEtat(x, y);
+                champ.submerge(p, x, y);
+                compare(champ, new ChampDistances(p, jx, jy), largeur, hauteur);
+            }
+        }
+    }
+
+    private static void compare(ChampDistances champ, ChampDistances neuf, int largeur, int hauteur) {
+        for (int x = 0; x < largeur; x++) {
+            for (int y = 0; y < hauteur; y++) {
+                String ici = "case " + x + ", " + y;
+                int d = neuf.distance(x, y);
+                assertEquals(d, champ.distance(x, y), ici);
+                List<Action> chemin = champ.chemin(x, y);
+                assertEquals(d == ChampDistances.INFINI ? 0 : d, chemin.size(), ici);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package pogl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Une partie écrite par [Enregistreur] et relue par [Relecteur] doit se
+ * rejouer jusqu'au même état final, règle d'inondation et historique
+ * compris ; les parties qui ne se rejouent pas doivent être refusées.
+ */
+class EnregistrementTest {
+    private static final int PARTIES = 60, ACTIONS = 300;
+
+    @TempDir
+    Path dossier;
+
+    @Test
+    void allerRetour() throws IOException {
+        Path fichier = dossier.resolve("parties.ile");
+        Alea rand = new Alea(3);
+        List<CModele> finales = new ArrayList<>();
+        try (Enregistreur e = new Enregistreur(fichier)) {
+            PartieEnregistree tampon = new PartieEnregistree();
+            for (int g = 0; g < PARTIES; g++) {
+                CModele m = g % 3 == 0 ? new CModele(g) : new CModele(12 + g % 5, 10, g);
+                m.setTrace(false);
+                m.setHistorique(true);
+                if (g % 2 == 1) m.setInondeur(new InondeurPaquet(1 + g % 4));
+                tampon.debut(m);
+                for (int k = 0; k < ACTIONS && !m.estGagnee() && !m.estPerdue(); k++) {
+                    int c = rand.nextInt(20);
+                    Commande a = c == 0 ? Historique.ANNULE : c == 1 ? Historique.REFAIT
+                            : Action.TOUTES[rand.nextInt(Action.TOUTES.length)];
+                    a.applique(m);
+                    tampon.action(a);
+                }
+                e.ajoute(g, tampon);
+                finales.add(m);
+            }
+        }
+        try (Relecteur r = new Relecteur(fichier)) {
+            assertEquals(PARTIES, r.nombreParties());
+            for (int g = 0; g < PARTIES; g++) {
+                PartieEnregistree p = r.partie(g);
+                assertEquals(g % 2 == 1 ? 1 + g % 4 : 0, p.getRegle(), "partie " + g);
+                memeEtat(finales.get(g), p.rejoue(), "partie " + g);
+            }
+        }
+    }
+
+    @Test
+    void partiesRefusees() throws IOException {
+        PartieEnregistree tampon = new PartieEnregistree();
+        CModele surCarte = new CModele(CarteIle.genere(5, 16, 16), Artefact.CALICE, 5);
+        assertThrows(IllegalArgumentException.class, () -> tampon.debut(surCarte));
+
+        CModele champ = new CModele(16, 16, 5);
+        champ.setInondeur(InondeurProbabilites.cotes(champ, 0.25, 0));
+        assertThrows(IllegalArgumentException.class, () -> tampon.debut(champ));
+
+        // Un paquet entamé a un état que l'enregistrement ne garde pas.
+        CModele paquet = new CModele(16, 16, 5);
+        paquet.setTrace(false);
+        paquet.setInondeur(new InondeurPaquet(2));
+        paquet.passeTour();
+        try (Enregistreur e = new Enregistreur(dossier.resolve("refus.ile"))) {
+            assertThrows(IllegalArgumentException.class, () -> e.debutPartie(0, paquet));
+        }
+    }
+
+    private static void memeEtat(CModele attendu, CModele relu, String ici) {
+        assertEquals(attendu.getPlateau(), relu.getPlateau(), ici + " : plateau");
+        assertEquals(attendu.getEmpreinte(), relu.getEmpreinte(), ici + " : empreinte");
+        assertEquals(attendu.getTour(), relu.getTour(), ici + " : tour");
+        assertEquals(attendu.getAventurier().getPositionX(), relu.getAventurier().getPositionX(), ici);
+        assertEquals(attendu.getAventurier().getPositionY(), relu.getAventurier().getPositionY(), ici);
+        assertEquals(attendu.estGagnee(), relu.estGagnee(), ici + " : gagnée");
+        assertEquals(attendu.estPerdue(), relu.estPerdue(), ici + " : perdue");
+    }
+}
@@ -0,0 +1,53 @@
+package pogl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * [CModele.annule] et [CModele.refait] reviennent à des états sauvés en
+ * partageant les blocs du [Plateau] : chaque état retrouvé doit être
+ * exactement celui d'origine, empreinte de Zobrist comprise, sans que les
+ * écritures suivantes n'aient touché aux blocs partagés.
+ */
+class HistoriqueTest {
+    @Test
+    void annuleEtRefait() {
+        Alea rand = new Alea(9);
+        for (int g = 0; g < 100; g++) {
+            CModele m = g % 2 == 0 ? new CModele(g) : new CModele(48, 32, g);
+            m.setTrace(false);
+            m.setHistorique(true);
+            List<Plateau> plateaux = new ArrayList<>();
+            List<Long> empreintes = new ArrayList<>();
+            plateaux.add(m.getPlateau().copie());
+            empreintes.add(m.getEmpreinte());
+            for (int k = 0; k < 80 && !m.estPerdue(); k++) {
+                long avant = m.getEmpreinte();
+                Action.TOUTES[rand.nextInt(Action.TOUTES.length)].applique(m);
+                // Une action refusée n'entre pas dans l'historique.
+                if (m.getEmpreinte() == avant && m.getPlateau().equals(plateaux.get(plateaux.size() - 1))) continue;
+                plateaux.add(m.getPlateau().copie());
+                empreintes.add(m.getEmpreinte());
+            }
+            int n = plateaux.size() - 1;
+            for (int k = n; k > 0 && m.peutAnnuler(); k--) {
+                m.annule();
+                verifie(m, plateaux, empreintes, k - 1, "partie " + g + ", annulation " + k);
+            }
+            for (int k = 1; m.peutRefaire(); k++) {
+                m.refait();
+                verifie(m, plateaux, empreintes, k, "partie " + g + ", rétablissement " + k);
+            }
+        }
+    }
+
+    private static void verifie(CModele m, List<Plateau> plateaux, List<Long> empreintes, int k, String ici) {
+        assertEquals(plateaux.get(k), m.getPlateau(), ici + " : plateau");
+        assertEquals(empreintes.get(k).longValue(), m.getEmpreinte(), ici + " : empreinte");
+        assertEquals(plateaux.get(k).getEmpreinte(), m.getPlateau().getEmpreinte(), ici + " : empreinte du plateau");
+    }
+}
@@ -0,0 +1,89 @@
+package pogl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * L'issue tenue à jour par [CModele] ([estGagnee], [estPerdue]) et les
+ * compteurs du [Plateau] doivent suivre, à chaque pas d'une partie jouée
+ * au hasard, la définition calculée de zéro : actions, suites, annulations,
+ * rétablissements et branches compris.
+ */
+class IssueIncrementaleTest {
+    private static final int PARTIES = 3000, PAS = 400;
+
+    @Test
+    void partiesAleatoires() {
+        Alea rand = new Alea(1);
+        for (int g = 0; g < PARTIES; g++) {
+            CModele m = g % 3 == 0 ? new CModele(g) : g % 3 == 1 ? new CModele(12, 10, g) : new CModele(40, 40, g);
+            m.setTrace(false);
+            m.setHistorique(true);
+            // Une fois sur deux, l'issue est calculée avant la première action.
+            if (g % 2 == 0) m.estPerdue();
+            // Une partie perdue le reste : la définition ne vaut qu'au moment de la défaite.
+            boolean dejaPerdue = false;
+            for (int k = 0; k < PAS; k++) {
+                String ici = "partie " + g + ", pas " + k;
+                int c = rand.nextInt(20);
+                boolean restaure = false;
+                if (c == 0) {
+                    restaure = m.peutAnnuler();
+                    m.annule();
+                } else if (c == 1) {
+                    restaure = m.peutRefaire();
+                    m.refait();
+                } else if (c == 2) {
+                    CModele b = m.branche();
+                    assertEquals(m.estPerdue(), b.estPerdue(), ici + " : branche");
+                    assertEquals(m.estGagnee(), b.estGagnee(), ici + " : branche");
+                } else if (c == 3) {
+                    m.joue(Sequence.de(Action.TOUTES[rand.nextInt(Action.TOUTES.length)],
+                            Action.TOUTES[rand.nextInt(Action.TOUTES.length)]));
+                } else {
+                    Action.TOUTES[rand.nextInt(Action.TOUTES.length)].applique(m);
+                }
+                // Après une restauration, l'issue est celle de l'état restauré.
+                if (restaure) dejaPerdue = perdue(m);
+                boolean perdue = perdue(m);
+                if (dejaPerdue) assertTrue(m.estPerdue(), ici);
+                else assertEquals(perdue, m.estPerdue(), ici);
+                dejaPerdue |= perdue;
+                assertEquals(gagnee(m), m.estGagnee(), ici);
+                compteurs(m.getPlateau(), ici);
+            }
+        }
+    }
+
+    private static boolean gagnee(CModele m) {
+        Aventurier a = m.getAventurier();
+        return a.haveArtefact() && a.getPositionX() == m.getHeliportX() && a.getPositionY() == m.getHeliportY();
+    }
+
+    private static boolean perdue(CModele m) {
+        Plateau p = m.getPlateau();
+        Aventurier a = m.getAventurier();
+        return p.isSubmergee(a.getPositionX(), a.getPositionY()) || p.isSubmergee(m.getHeliportX(), m.getHeliportY())
+                || (!a.haveArtefact() && p.isSubmergee(m.getArtefactX(), m.getArtefactY())) || !m.peutSEchapper();
+    }
+
+    /** Les compteurs du plateau, comparés à un parcours de toutes ses cases. */
+    private static void compteurs(Plateau p, String ici) {
+        int terres = 0, inondees = 0, submergees = 0, artefacts = 0;
+        for (int x = 0; x < p.getLargeur(); x++) {
+            for (int y = 0; y < p.getHauteur(); y++) {
+                if (p.isArtefact(x, y)) artefacts++;
+                if (p.isMer(x, y)) continue;
+                terres++;
+                if (p.getEtat(x, y) == 0) inondees++;
+                else if (p.getEtat(x, y) < 0) submergees++;
+            }
+        }
+        assertEquals(terres, p.nombreTerres(), ici + " : terres");
+        assertEquals(inondees, p.nombreInondees(), ici + " : inondées");
+        assertEquals(submergees, p.nombreSubmergees(), ici + " : submergées");
+        assertEquals(artefacts, p.nombreArtefacts(), ici + " : artefacts");
+        assertEquals((long) p.getLargeur() * p.getHauteur() - terres, p.nombreMer(), ici + " : mer");
+    }
+}
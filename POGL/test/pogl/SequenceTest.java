@@ -0,0 +1,49 @@
+package pogl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * [CModele.joue] d'une suite d'actions : une suite possible
+ * ([CModele.estPossible]) est jouée en entier, comme ses actions une à
+ * une ; une suite impossible ne modifie rien.
+ */
+class SequenceTest {
+    @Test
+    void suitesAleatoires() {
+        Alea rand = new Alea(5);
+        int impossibles = 0;
+        for (int g = 0; g < 300; g++) {
+            CModele m = g % 2 == 0 ? new CModele(g) : new CModele(20, 16, g);
+            CModele temoin = g % 2 == 0 ? new CModele(g) : new CModele(20, 16, g);
+            m.setTrace(false);
+            temoin.setTrace(false);
+            for (int k = 0; k < 60 && !m.estPerdue(); k++) {
+                int n = 1 + rand.nextInt(4), s = Sequence.VIDE;
+                for (int i = 0; i < n; i++) s = Sequence.ajoute(s, Action.TOUTES[rand.nextInt(Action.TOUTES.length)]);
+                String ici = "partie " + g + ", suite " + k;
+                if (m.estPossible(s)) {
+                    assertTrue(m.joue(s), ici);
+                    for (int i = 0; i < n; i++) Sequence.action(s, i).applique(temoin);
+                } else {
+                    impossibles++;
+                    Plateau avant = m.getPlateau().copie();
+                    long empreinte = m.getEmpreinte();
+                    int x = m.getAventurier().getPositionX(), y = m.getAventurier().getPositionY();
+                    int actions = m.getAventurier().getNumberAction(), tour = m.getTour();
+                    assertFalse(m.joue(s), ici);
+                    assertEquals(avant, m.getPlateau(), ici + " : plateau");
+                    assertEquals(empreinte, m.getEmpreinte(), ici + " : empreinte");
+                    assertEquals(x, m.getAventurier().getPositionX(), ici);
+                    assertEquals(y, m.getAventurier().getPositionY(), ici);
+                    assertEquals(actions, m.getAventurier().getNumberAction(), ici + " : actions");
+                    assertEquals(tour, m.getTour(), ici + " : tour");
+                }
+                assertEquals(temoin.getPlateau(), m.getPlateau(), ici + " : plateau du témoin");
+                assertEquals(temoin.getEmpreinte(), m.getEmpreinte(), ici + " : empreinte du témoin");
+            }
+        }
+        assertTrue(impossibles > 0);
+    }
+}
@@ -0,0 +1,75 @@
+package pogl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * [TableTranspositions] : ce qui est rangé se retrouve selon la règle de
+ * remplacement, et un lecteur concurrent ne lit jamais une donnée rangée
+ * sous une autre empreinte.
+ */
+class TableTranspositionsTest {
+    @Test
+    void rangeEtCherche() {
+        TableTranspositions t = new TableTranspositions(1000);
+        assertEquals(1024, t.getTaille());
+        long a = 0x123456789ABCDEFL, b = a + 1024 * 2;
+        assertEquals(TableTranspositions.ABSENT, t.cherche(a));
+        t.range(a, -7, 5);
+        long d = t.cherche(a);
+        assertEquals(-7, TableTranspositions.valeur(d));
+        assertEquals(5, TableTranspositions.profondeur(d));
+        // Même case, autre empreinte : absente, et une profondeur moindre ne remplace pas.
+        assertEquals(TableTranspositions.ABSENT, t.cherche(b));
+        t.range(b, 1, 4);
+        assertEquals(TableTranspositions.ABSENT, t.cherche(b));
+        assertEquals(-7, TableTranspositions.valeur(t.cherche(a)));
+        t.range(b, 2, 5);
+        assertEquals(2, TableTranspositions.valeur(t.cherche(b)));
+        assertEquals(TableTranspositions.ABSENT, t.cherche(a));
+        // D'une génération à l'autre, toute entrée est remplaçable.
+        t.range(a, 3, 200);
+        t.nouvelleGeneration();
+        t.range(b, 4, 0);
+        assertEquals(4, TableTranspositions.valeur(t.cherche(b)));
+        // Les profondeurs sont bornées.
+        t.range(a, 5, 1000);
+        assertEquals(TableTranspositions.PROFONDEUR_MAX, TableTranspositions.profondeur(t.cherche(a)));
+    }
+
+    @Test
+    void lecturesConcurrentes() throws InterruptedException {
+        // Petite table : les fils écrivent sans cesse dans les mêmes cases.
+        TableTranspositions t = new TableTranspositions(64);
+        AtomicReference<String> erreur = new AtomicReference<>();
+        List<Thread> fils = new ArrayList<>();
+        for (int f = 0; f < 4; f++) {
+            long graine = f;
+            fils.add(new Thread(() -> {
+                Alea rand = new Alea(graine);
+                for (int k = 0; k < 500_000; k++) {
+                    long e = Zobrist.melange(rand.nextInt(4096));
+                    if (rand.nextInt(2) == 0) {
+                        t.range(e, valeur(e), rand.nextInt(8));
+                    } else {
+                        long d = t.cherche(e);
+                        if (d != TableTranspositions.ABSENT && TableTranspositions.valeur(d) != valeur(e)) {
+                            erreur.compareAndSet(null, "empreinte " + e + " : " + TableTranspositions.valeur(d));
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread f : fils) f.start();
+        for (Thread f : fils) f.join();
+        assertNull(erreur.get());
+    }
+
+    /** La valeur rangée sous chaque empreinte, pour reconnaître une donnée mal appariée. */
+    private static int valeur(long empreinte) { return (int) (empreinte >>> 17); }
+}